@@ -0,0 +1,170 @@
+package org.example.analytics.aggregate;
+
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.example.analytics.archive.EventArchiver;
+import org.example.analytics.archive.ScanEngine;
+import org.example.analytics.archive.ScanQuery;
+import org.example.analytics.ingest.BufferDrainer;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.AnalyticsSummary;
+import org.example.analytics.repository.AnalyticsSummaryRepository;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists EventCounters to a single summary document and restores them on startup.
+ *
+ * A checkpoint reads the counters and the ingest buffer drain position together while the
+ * drainer is held, so the counts cover exactly the records before that position. A local state
+ * snapshot takes precedence on startup. Without one, restore loads the checkpoint and
+ * BufferDrainer replays the buffer records drained after its position (see restoredPosition()).
+ * Only an older checkpoint without a position falls back to counting the events stored after
+ * checkpointAt. rebuild() recounts from the archived segments plus the raw events still in
+ * Mongo's hot window.
+ */
+@Component
+public class CounterCheckpointer {
+    private static final Logger logger = LoggerFactory.getLogger(CounterCheckpointer.class);
+    private static final String COUNTERS_HOLDER = "counters";
+
+    @Autowired
+    private EventCounters counters;
+
+    @Autowired
+    private AnalyticsSummaryRepository summaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EventArchiver archiver;
+
+    @Autowired
+    private ScanEngine scanEngine;
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    // Lazy: the drainer depends on this bean, which restores the counters it replays into
+    @Lazy
+    @Autowired
+    private BufferDrainer bufferDrainer;
+
+    private long restoredPosition;
+
+    // Runs before the Kafka listener containers start, so no increments are overwritten
+    @PostConstruct
+    public void restore() {
+        if (snapshotFile.restore(counters)) {
+            restoredFrom(snapshotFile.position());
+            logger.info("Restored event counters from the state snapshot");
+            return;
+        }
+        AnalyticsSummary summary = summaryRepository.findById(AnalyticsSummary.COUNTERS_ID).orElse(null);
+        if (summary == null) {
+            recount();
+            return;
+        }
+        counters.reset(summary.getCounts());
+        Long position = summary.getBufferPosition();
+        if (position != null && buffer.covers(position)) {
+            restoredFrom(position);
+            logger.info("Restored event counters from the checkpoint at buffer position {}", position);
+            return;
+        }
+        Map<String, Long> since = countByType(Criteria.where("timestamp").gt(summary.getCheckpointAt()));
+        since.forEach(counters::add);
+        restoredFrom(buffer.drainPosition());
+        logger.info("Restored event counters from {} plus {} later events", summary.getCheckpointAt(),
+                since.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    // Buffer position the restored counts cover; BufferDrainer replays the records after it
+    public long restoredPosition() {
+        return restoredPosition;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.counters.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        AnalyticsSummary summary = new AnalyticsSummary();
+        summary.setId(AnalyticsSummary.COUNTERS_ID);
+        bufferDrainer.quiesced(() -> {
+            summary.setCounts(counters.snapshot());
+            summary.setBufferPosition(buffer.drainPosition());
+            summary.setCheckpointAt(LocalDateTime.now());
+        });
+        summaryRepository.save(summary);
+        buffer.retain(COUNTERS_HOLDER, summary.getBufferPosition());
+    }
+
+    // Holds the drainer for the recount, so no batch is counted twice or missed
+    public Map<String, Long> rebuild() {
+        Map<String, Long> counts = new HashMap<>();
+        bufferDrainer.quiesced(() -> counts.putAll(recount()));
+        return counts;
+    }
+
+    // The drainer is not running yet on startup, or is held by rebuild()
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> recount() {
+        LocalDateTime checkpointAt = LocalDateTime.now();
+        long position = buffer.drainPosition();
+        LocalDateTime archivedThrough = archiver.archivedThrough();
+        Map<String, Long> counts;
+        if (archivedThrough == null) {
+            counts = countByType(new Criteria());
+        } else {
+            counts = countByType(Criteria.where("timestamp").gte(archivedThrough));
+            ScanQuery query = new ScanQuery();
+            query.setTo(archivedThrough);
+            query.setGroupBy(List.of("eventType"));
+            query.setLimit(Integer.MAX_VALUE);
+            List<Map<String, Object>> groups = (List<Map<String, Object>>) scanEngine
+                    .scan(archiver.segments(null, archivedThrough), query).get("groups");
+            for (Map<String, Object> group : groups) {
+                String type = (String) group.get("eventType");
+                counts.merge(type == null || type.isEmpty() ? EventCounters.UNKNOWN : type, (Long) group.get("count"), Long::sum);
+            }
+        }
+        counters.reset(counts);
+        summaryRepository.save(new AnalyticsSummary(AnalyticsSummary.COUNTERS_ID, counts, checkpointAt, position));
+        restoredFrom(position);
+        logger.info("Rebuilt event counters from raw events: {}", counts);
+        return counts;
+    }
+
+    private void restoredFrom(long position) {
+        restoredPosition = position;
+        buffer.retain(COUNTERS_HOLDER, position);
+    }
+
+    private Map<String, Long> countByType(Criteria criteria) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group("eventType").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, AnalyticsEvent.class, Document.class)) {
+            String type = row.getString("_id");
+            counts.put(type != null ? type : EventCounters.UNKNOWN, ((Number) row.get("count")).longValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.analytics.aggregate;
+
+import org.example.analytics.snapshot.SnapshotParticipant;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-event-type counters maintained at ingest. LongAdder stripes increments across cells so
+ * concurrent listener threads don't contend on one cache line; reads sum the cells.
+ */
+@Component
+public class EventCounters implements SnapshotParticipant {
+    static final String UNKNOWN = "UNKNOWN";
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(String eventType) {
+        add(eventType, 1);
+    }
+
+    public void add(String eventType, long delta) {
+        counters.computeIfAbsent(eventType != null ? eventType : UNKNOWN, type -> new LongAdder()).add(delta);
+    }
+
+    public long get(String eventType) {
+        LongAdder adder = counters.get(eventType);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder adder : counters.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((type, adder) -> snapshot.put(type, adder.sum()));
+        return snapshot;
+    }
+
+    public void reset(Map<String, Long> counts) {
+        counters.clear();
+        counts.forEach(this::add);
+    }
+
+    @Override
+    public String snapshotSection() {
+        return "counters";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        Map<String, Long> snapshot = snapshot();
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(DataInput in) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            counts.put(in.readUTF(), in.readLong());
+        }
+        reset(counts);
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.analytics.aggregate;
+
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.ItemAnalysisDocument;
+import org.example.analytics.model.QuestionResult;
+import org.example.analytics.model.SubmissionEvent;
+import org.example.analytics.repository.ItemAnalysisRepository;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.example.analytics.snapshot.SnapshotParticipant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-quiz item statistics fed from SUBMISSION_GRADED questionResults.
+ *
+ * A quiz's statistics are loaded from item_analysis on first use and kept in memory (a few
+ * hundred bytes per question); dirty quizzes are checkpointed on a fixed delay. Quizzes held in
+ * memory are also part of the state snapshot. Each quiz keeps the ids of the submissions it
+ * has counted, so a submission graded twice is only counted once.
+ */
+@Component
+public class ItemAnalysis implements SnapshotParticipant {
+
+    @Autowired
+    private ItemAnalysisRepository repository;
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    private final Map<Long, Map<String, ItemStatistics>> quizzes = new ConcurrentHashMap<>();
+    // Guarded by the quiz's questions map, like the statistics
+    private final Map<Long, Set<Long>> counted = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void restore() {
+        snapshotFile.restore(this);
+    }
+
+    public void record(Iterable<AnalyticsEvent> events) {
+        for (AnalyticsEvent event : events) {
+            if (!"SUBMISSION_GRADED".equals(event.getEventType()) || !(event instanceof SubmissionEvent graded)
+                    || graded.getQuizId() == null || graded.getQuestionResults() == null) {
+                continue;
+            }
+            int score = graded.getScore() != null ? graded.getScore() : 0;
+            int maxScore = graded.getMaxScore() != null ? graded.getMaxScore() : 0;
+
+            Map<String, ItemStatistics> questions = questions(graded.getQuizId());
+            synchronized (questions) {
+                if (graded.getSubmissionId() != null && !counted.get(graded.getQuizId()).add(graded.getSubmissionId())) {
+                    continue;
+                }
+                for (QuestionResult result : graded.getQuestionResults()) {
+                    if (result.getQuestionId() == null) {
+                        continue;
+                    }
+                    boolean correct = result.isCorrect();
+                    int points = result.getPoints() != null ? result.getPoints() : 0;
+                    // Rest score excludes this item so it does not correlate with itself
+                    int restMax = maxScore - points;
+                    Double rest = restMax > 0 ? (double) (score - (correct ? points : 0)) / restMax : null;
+
+                    questions.computeIfAbsent(String.valueOf(result.getQuestionId()), id -> new ItemStatistics())
+                            .record(result.isAnswered(), correct, result.getOptionIndex(), rest);
+                }
+            }
+            dirty.add(graded.getQuizId());
+        }
+    }
+
+    public Map<String, ItemStatistics> snapshot(Long quizId) {
+        return snapshot(quizId, null);
+    }
+
+    // Copies the quiz's statistics, and its counted submissions into the given set
+    private Map<String, ItemStatistics> snapshot(Long quizId, Set<Long> submissions) {
+        Map<String, ItemStatistics> questions = questions(quizId);
+        Map<String, ItemStatistics> copy = new HashMap<>();
+        synchronized (questions) {
+            questions.forEach((id, stats) -> copy.put(id, stats.copy()));
+            if (submissions != null) {
+                submissions.addAll(counted.get(quizId));
+            }
+        }
+        return copy;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.items.checkpoint-interval-ms:30000}")
+    public void checkpoint() {
+        List<ItemAnalysisDocument> documents = new ArrayList<>();
+        for (Long quizId : new ArrayList<>(dirty)) {
+            dirty.remove(quizId);
+            Set<Long> submissions = new HashSet<>();
+            Map<String, ItemStatistics> questions = snapshot(quizId, submissions);
+            documents.add(new ItemAnalysisDocument(quizId, questions, submissions, LocalDateTime.now()));
+        }
+        if (!documents.isEmpty()) {
+            repository.saveAll(documents);
+        }
+    }
+
+    @Override
+    public String snapshotSection() {
+        return "items";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        List<Map.Entry<Long, Map<String, ItemStatistics>>> entries = new ArrayList<>(quizzes.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<Long, Map<String, ItemStatistics>> quiz : entries) {
+            out.writeLong(quiz.getKey());
+            Map<String, ItemStatistics> questions = quiz.getValue();
+            synchronized (questions) {
+                out.writeInt(questions.size());
+                for (Map.Entry<String, ItemStatistics> question : questions.entrySet()) {
+                    out.writeUTF(question.getKey());
+                    question.getValue().writeTo(out);
+                }
+                Set<Long> submissions = counted.get(quiz.getKey());
+                out.writeInt(submissions.size());
+                for (long submissionId : submissions) {
+                    out.writeLong(submissionId);
+                }
+            }
+        }
+    }
+
+    // Restored quizzes are marked dirty: their Mongo checkpoint may be older than the snapshot
+    @Override
+    public void restoreSnapshot(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            long quizId = in.readLong();
+            Map<String, ItemStatistics> questions = new HashMap<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                questions.put(in.readUTF(), ItemStatistics.readFrom(in));
+            }
+            Set<Long> submissions = new HashSet<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                submissions.add(in.readLong());
+            }
+            counted.put(quizId, submissions);
+            quizzes.put(quizId, questions);
+            dirty.add(quizId);
+        }
+    }
+
+    private Map<String, ItemStatistics> questions(long quizId) {
+        return quizzes.computeIfAbsent(quizId, id -> {
+            Optional<ItemAnalysisDocument> document = repository.findById(id);
+            counted.put(id, document.map(ItemAnalysisDocument::getSubmissions).map(HashSet::new).orElseGet(HashSet::new));
+            return document.map(loaded -> new HashMap<>(loaded.getQuestions())).orElseGet(HashMap::new);
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.analytics.aggregate;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Online statistics for one question, updated once per graded response.
+ *
+ * Difficulty is the share of correct responses. Discrimination is the corrected point-biserial:
+ * the Pearson correlation between item correctness (0/1) and the student's rest score (score on
+ * the other questions, as a fraction of their points), kept with Welford-style co-moments so no
+ * response is ever revisited. Distractor counts are per option in authored order.
+ */
+@Data
+@NoArgsConstructor
+public class ItemStatistics {
+    private long responses;
+    private long correct;
+    private long unanswered;
+    private long otherAnswers;
+    // Keyed by authored option index (strings, as Mongo map keys)
+    private Map<String, Long> optionCounts = new HashMap<>();
+
+    // Co-moments over responses that have a rest score
+    private long pairs;
+    private double meanItem;
+    private double meanRest;
+    private double m2Item;
+    private double m2Rest;
+    private double coMoment;
+
+    public void record(boolean answered, boolean isCorrect, Integer optionIndex, Double restScore) {
+        responses++;
+        if (isCorrect) {
+            correct++;
+        }
+        if (!answered) {
+            unanswered++;
+        } else if (optionIndex != null) {
+            optionCounts.merge(String.valueOf(optionIndex), 1L, Long::sum);
+        } else {
+            otherAnswers++;
+        }
+
+        if (restScore != null) {
+            double x = isCorrect ? 1 : 0;
+            pairs++;
+            double dx = x - meanItem;
+            meanItem += dx / pairs;
+            double dy = restScore - meanRest;
+            meanRest += dy / pairs;
+            m2Item += dx * (x - meanItem);
+            m2Rest += dy * (restScore - meanRest);
+            coMoment += dx * (restScore - meanRest);
+        }
+    }
+
+    public double difficulty() {
+        return responses == 0 ? 0 : (double) correct / responses;
+    }
+
+    // NaN until both correctness and rest score vary
+    public double discrimination() {
+        if (pairs < 2 || m2Item == 0 || m2Rest == 0) {
+            return Double.NaN;
+        }
+        return coMoment / Math.sqrt(m2Item * m2Rest);
+    }
+
+    public ItemStatistics copy() {
+        ItemStatistics copy = new ItemStatistics();
+        copy.responses = responses;
+        copy.correct = correct;
+        copy.unanswered = unanswered;
+        copy.otherAnswers = otherAnswers;
+        copy.optionCounts = new HashMap<>(optionCounts);
+        copy.pairs = pairs;
+        copy.meanItem = meanItem;
+        copy.meanRest = meanRest;
+        copy.m2Item = m2Item;
+        copy.m2Rest = m2Rest;
+        copy.coMoment = coMoment;
+        return copy;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(responses);
+        out.writeLong(correct);
+        out.writeLong(unanswered);
+        out.writeLong(otherAnswers);
+        out.writeInt(optionCounts.size());
+        for (Map.Entry<String, Long> option : optionCounts.entrySet()) {
+            out.writeUTF(option.getKey());
+            out.writeLong(option.getValue());
+        }
+        out.writeLong(pairs);
+        out.writeDouble(meanItem);
+        out.writeDouble(meanRest);
+        out.writeDouble(m2Item);
+        out.writeDouble(m2Rest);
+        out.writeDouble(coMoment);
+    }
+
+    static ItemStatistics readFrom(DataInput in) throws IOException {
+        ItemStatistics stats = new ItemStatistics();
+        stats.responses = in.readLong();
+        stats.correct = in.readLong();
+        stats.unanswered = in.readLong();
+        stats.otherAnswers = in.readLong();
+        for (int i = in.readInt(); i > 0; i--) {
+            stats.optionCounts.put(in.readUTF(), in.readLong());
+        }
+        stats.pairs = in.readLong();
+        stats.meanItem = in.readDouble();
+        stats.meanRest = in.readDouble();
+        stats.m2Item = in.readDouble();
+        stats.m2Rest = in.readDouble();
+        stats.coMoment = in.readDouble();
+        return stats;
+    }
+}
@@ -0,0 +1,275 @@
+package org.example.analytics.aggregate;
+
+import jakarta.annotation.PostConstruct;
+import org.HdrHistogram.AbstractHistogram;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.SubmissionEvent;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.example.analytics.snapshot.SnapshotParticipant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Submission lifecycle latencies: time-to-submit (STARTED -> SUBMITTED) and submit-to-graded
+ * (SUBMITTED -> GRADED), measured between the events' Kafka timestamps.
+ *
+ * Events are joined by submissionId in a bounded map ordered by last update; entries expire after
+ * a TTL and the oldest are evicted past the size bound. Stages can arrive in any order. Latencies
+ * land in sliding HDR histograms keyed by the time they were observed: overall in 1-minute slots
+ * over an hour (2 significant digits, ~11 KB per slot, at most ~1.4 MB), per quiz in 5-minute slots
+ * over an hour (1 digit, ~2 KB per slot, at most ~50 KB per quiz) for a bounded set of recently
+ * active quizzes. Open lifecycles and histograms are kept across restarts by the state snapshot.
+ */
+@Component
+public class LifecycleLatency implements SnapshotParticipant {
+
+    public static final String TIME_TO_SUBMIT = "timeToSubmit";
+    public static final String SUBMIT_TO_GRADED = "submitToGraded";
+
+    private static final Map<String, Duration> WINDOWS = Map.of(
+            "1m", Duration.ofMinutes(1), "5m", Duration.ofMinutes(5),
+            "15m", Duration.ofMinutes(15), "60m", Duration.ofMinutes(60));
+    private static final List<String> WINDOW_ORDER = List.of("1m", "5m", "15m", "60m");
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    @Value("${analytics.latency.max-pending:200000}")
+    private int maxPending;
+
+    @Value("${analytics.latency.pending-ttl:PT24H}")
+    private Duration pendingTtl;
+
+    @Value("${analytics.latency.max-quizzes:500}")
+    private int maxQuizzes;
+
+    private static final class Lifecycle {
+        Long quizId;
+        long started = -1;
+        long submitted = -1;
+        long graded = -1;
+        boolean submitRecorded;
+        long touchedAt;
+    }
+
+    private static final class Histograms {
+        final SlidingHistogram timeToSubmit;
+        final SlidingHistogram submitToGraded;
+
+        Histograms(int slots, Duration slot, int digits) {
+            timeToSubmit = new SlidingHistogram(slots, slot, digits);
+            submitToGraded = new SlidingHistogram(slots, slot, digits);
+        }
+
+        static Histograms perQuiz() {
+            return new Histograms(12, Duration.ofMinutes(5), 1);
+        }
+
+        SlidingHistogram get(String metric) {
+            return TIME_TO_SUBMIT.equals(metric) ? timeToSubmit : submitToGraded;
+        }
+    }
+
+    private final Histograms overall = new Histograms(60, Duration.ofMinutes(1), 2);
+    private Map<Long, Lifecycle> pending;
+    private Map<Long, Histograms> quizzes;
+    private long expired;
+    private long evicted;
+
+    @PostConstruct
+    void init() {
+        pending = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Lifecycle> eldest) {
+                if (size() > maxPending) {
+                    evicted++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        quizzes = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Histograms> eldest) {
+                return size() > maxQuizzes;
+            }
+        };
+        snapshotFile.restore(this);
+    }
+
+    public synchronized void record(Iterable<AnalyticsEvent> events) {
+        long now = System.currentTimeMillis();
+        for (AnalyticsEvent event : events) {
+            if (!(event instanceof SubmissionEvent submission) || submission.getSubmissionId() == null) {
+                continue;
+            }
+            String type = event.getEventType();
+            long submissionId = submission.getSubmissionId();
+            // Re-inserting moves the entry to the tail, keeping the map ordered by last update
+            Lifecycle lifecycle = pending.remove(submissionId);
+            if (lifecycle == null) {
+                lifecycle = new Lifecycle();
+            }
+            if (lifecycle.quizId == null) {
+                lifecycle.quizId = submission.getQuizId();
+            }
+            long at = epochMillis(event.getOccurredAt() != null ? event.getOccurredAt() : event.getTimestamp());
+            switch (type) {
+                case "SUBMISSION_STARTED" -> lifecycle.started = lifecycle.started < 0 ? at : lifecycle.started;
+                case "SUBMISSION_SUBMITTED" -> lifecycle.submitted = lifecycle.submitted < 0 ? at : lifecycle.submitted;
+                case "SUBMISSION_GRADED" -> lifecycle.graded = lifecycle.graded < 0 ? at : lifecycle.graded;
+                default -> { }
+            }
+
+            if (!lifecycle.submitRecorded && lifecycle.started >= 0 && lifecycle.submitted >= 0) {
+                observe(TIME_TO_SUBMIT, lifecycle.quizId, lifecycle.submitted - lifecycle.started, now);
+                lifecycle.submitRecorded = true;
+            }
+            if (lifecycle.submitted >= 0 && lifecycle.graded >= 0) {
+                observe(SUBMIT_TO_GRADED, lifecycle.quizId, lifecycle.graded - lifecycle.submitted, now);
+                // Lifecycle complete
+                continue;
+            }
+            lifecycle.touchedAt = now;
+            pending.put(submissionId, lifecycle);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.latency.expiry-interval-ms:60000}")
+    public synchronized void expire() {
+        long cutoff = System.currentTimeMillis() - pendingTtl.toMillis();
+        Iterator<Lifecycle> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().touchedAt >= cutoff) {
+                break;
+            }
+            iterator.remove();
+            expired++;
+        }
+    }
+
+    public synchronized Map<String, Object> overall() {
+        Map<String, Object> result = percentiles(overall, WINDOW_ORDER);
+        result.put("pendingLifecycles", pending.size());
+        result.put("expired", expired);
+        result.put("evicted", evicted);
+        long footprint = overall.timeToSubmit.footprintBytes() + overall.submitToGraded.footprintBytes();
+        for (Histograms histograms : quizzes.values()) {
+            footprint += histograms.timeToSubmit.footprintBytes() + histograms.submitToGraded.footprintBytes();
+        }
+        result.put("histogramBytes", footprint);
+        return result;
+    }
+
+    public synchronized Map<String, Object> forQuiz(Long quizId) {
+        Histograms histograms = quizzes.get(quizId);
+        if (histograms == null) {
+            histograms = Histograms.perQuiz();
+        }
+        Map<String, Object> result = percentiles(histograms, List.of("15m", "60m"));
+        result.put("quizId", quizId);
+        return result;
+    }
+
+    @Override
+    public String snapshotSection() {
+        return "latency";
+    }
+
+    @Override
+    public synchronized void writeSnapshot(DataOutput out) throws IOException {
+        out.writeLong(expired);
+        out.writeLong(evicted);
+        out.writeInt(pending.size());
+        for (Map.Entry<Long, Lifecycle> entry : pending.entrySet()) {
+            Lifecycle lifecycle = entry.getValue();
+            out.writeLong(entry.getKey());
+            out.writeLong(lifecycle.quizId != null ? lifecycle.quizId : -1);
+            out.writeLong(lifecycle.started);
+            out.writeLong(lifecycle.submitted);
+            out.writeLong(lifecycle.graded);
+            out.writeBoolean(lifecycle.submitRecorded);
+            out.writeLong(lifecycle.touchedAt);
+        }
+        overall.timeToSubmit.writeTo(out);
+        overall.submitToGraded.writeTo(out);
+        out.writeInt(quizzes.size());
+        for (Map.Entry<Long, Histograms> entry : quizzes.entrySet()) {
+            out.writeLong(entry.getKey());
+            entry.getValue().timeToSubmit.writeTo(out);
+            entry.getValue().submitToGraded.writeTo(out);
+        }
+    }
+
+    @Override
+    public synchronized void restoreSnapshot(DataInput in) throws IOException {
+        expired = in.readLong();
+        evicted = in.readLong();
+        for (int i = in.readInt(); i > 0; i--) {
+            long submissionId = in.readLong();
+            Lifecycle lifecycle = new Lifecycle();
+            long quizId = in.readLong();
+            lifecycle.quizId = quizId >= 0 ? quizId : null;
+            lifecycle.started = in.readLong();
+            lifecycle.submitted = in.readLong();
+            lifecycle.graded = in.readLong();
+            lifecycle.submitRecorded = in.readBoolean();
+            lifecycle.touchedAt = in.readLong();
+            pending.put(submissionId, lifecycle);
+        }
+        overall.timeToSubmit.readFrom(in);
+        overall.submitToGraded.readFrom(in);
+        for (int i = in.readInt(); i > 0; i--) {
+            Histograms histograms = Histograms.perQuiz();
+            quizzes.put(in.readLong(), histograms);
+            histograms.timeToSubmit.readFrom(in);
+            histograms.submitToGraded.readFrom(in);
+        }
+    }
+
+    private void observe(String metric, Long quizId, long latencyMillis, long now) {
+        overall.get(metric).record(latencyMillis, now);
+        if (quizId != null) {
+            quizzes.computeIfAbsent(quizId, id -> Histograms.perQuiz())
+                    .get(metric).record(latencyMillis, now);
+        }
+    }
+
+    private Map<String, Object> percentiles(Histograms histograms, List<String> windows) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String metric : List.of(TIME_TO_SUBMIT, SUBMIT_TO_GRADED)) {
+            Map<String, Object> byWindow = new LinkedHashMap<>();
+            for (String window : windows) {
+                AbstractHistogram histogram = histograms.get(metric).window(WINDOWS.get(window), now);
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("count", histogram.getTotalCount());
+                summary.put("p50", histogram.getValueAtPercentile(50));
+                summary.put("p95", histogram.getValueAtPercentile(95));
+                summary.put("p99", histogram.getValueAtPercentile(99));
+                summary.put("p999", histogram.getValueAtPercentile(99.9));
+                summary.put("max", histogram.getMaxValue());
+                byWindow.put(window, summary);
+            }
+            result.put(metric, byWindow);
+        }
+        return result;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,284 @@
+package org.example.analytics.aggregate;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.RenameCollectionOptions;
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.EventRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains minute/hour/day rollups per event type and per (event type, quiz).
+ *
+ * Ingest only merges deltas into an in-memory map; a scheduled flush turns the accumulated deltas
+ * into one unordered bulk of $inc upserts, so write volume scales with the number of distinct
+ * cells per flush interval, not with the event rate.
+ *
+ * Each flush covers the ingest buffer records from the previous flush position up to its own,
+ * and every upsert is guarded by that position (lastFlush), so applying a flush twice changes
+ * nothing. A failed flush is retried as it was, only its failed cells after a bulk error and all
+ * of them after any other error, before newer deltas are written. The flushed and in-flight
+ * positions are kept in ${analytics.data-dir}/rollups.position; on startup BufferDrainer redoes
+ * the flush in flight and replays the records after it, so unflushed deltas survive a crash.
+ *
+ * A recompute writes the same cells into a staging collection, which swapIn() renames over
+ * event_rollups; flushes are held off during the swap and live deltas are dropped because the
+ * recompute already covers those events.
+ */
+@Component
+public class RollupAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(RollupAggregator.class);
+
+    private record Cell(RollupGranularity granularity, LocalDateTime bucket, String eventType, Long quizId) {
+        String id() {
+            return granularity.name().charAt(0) + "|" + bucket + "|" + eventType + "|" + (quizId != null ? quizId : "*");
+        }
+    }
+
+    private static final String ROLLUPS_HOLDER = "rollups";
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Value("${analytics.data-dir:/data/analytics}")
+    private String dataDir;
+
+    private Path positionFile;
+    private Map<Cell, Long> pending = new HashMap<>();
+    // Buffer position the pending deltas reach
+    private long pendingPosition = -1;
+    // A failed flush, retried with the same position before anything newer (guarded by flushLock)
+    private Map<Cell, Long> retry = Map.of();
+    private long retryPosition;
+    private long flushedPosition = -1;
+    private long inflightPosition = -1;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        positionFile = Path.of(dataDir, "rollups.position");
+        try {
+            if (Files.exists(positionFile)) {
+                String[] positions = Files.readString(positionFile, StandardCharsets.UTF_8).trim().split(" ");
+                flushedPosition = Long.parseLong(positions[0]);
+                inflightPosition = Long.parseLong(positions[1]);
+                buffer.retain(ROLLUPS_HOLDER, flushedPosition);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read the rollup flush position, unflushed rollups are not replayed: {}", e.getMessage());
+        }
+    }
+
+    // The events were drained from the ingest buffer up to position
+    public void record(Iterable<AnalyticsEvent> events, long position) {
+        Map<Cell, Long> deltas = deltas(events);
+        synchronized (this) {
+            deltas.forEach((cell, count) -> pending.merge(cell, count, Long::sum));
+            pendingPosition = Math.max(pendingPosition, position);
+        }
+    }
+
+    // Buffer position every flushed delta covers; -1 before the first flush
+    public long flushedPosition() {
+        return flushedPosition;
+    }
+
+    // Position of a flush that may have been partly applied at shutdown, otherwise -1
+    public long inflightPosition() {
+        return inflightPosition;
+    }
+
+    private static Map<Cell, Long> deltas(Iterable<AnalyticsEvent> events) {
+        Map<Cell, Long> deltas = new HashMap<>();
+        for (AnalyticsEvent event : events) {
+            String type = event.getEventType() != null ? event.getEventType() : EventCounters.UNKNOWN;
+            Long quizId = event.quizId();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                LocalDateTime bucket = granularity.truncate(event.getTimestamp());
+                deltas.merge(new Cell(granularity, bucket, type, null), 1L, Long::sum);
+                if (quizId != null) {
+                    deltas.merge(new Cell(granularity, bucket, type, quizId), 1L, Long::sum);
+                }
+            }
+        }
+        return deltas;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollups.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Adds the events' cells to a staging collection (recompute); failures propagate
+    public void recomputeInto(String collection, Iterable<AnalyticsEvent> events) {
+        Map<Cell, Long> deltas = deltas(events);
+        if (!deltas.isEmpty()) {
+            write(collection, new ArrayList<>(deltas.keySet()), deltas, null);
+        }
+    }
+
+    public void prepareStaging(String collection) {
+        mongoTemplate.dropCollection(collection);
+        mongoTemplate.indexOps(collection).ensureIndex(new Index()
+                .on("granularity", Sort.Direction.ASC).on("eventType", Sort.Direction.ASC)
+                .on("quizId", Sort.Direction.ASC).on("bucket", Sort.Direction.ASC)
+                .named("rollup_series"));
+    }
+
+    // The recompute covers every event drained so far (the drainer is held), so the live deltas
+    // and a failed flush are dropped and count as flushed
+    public void swapIn(String collection) {
+        flushLock.lock();
+        try {
+            long position;
+            synchronized (this) {
+                pending = new HashMap<>();
+                position = pendingPosition;
+            }
+            retry = Map.of();
+            String database = mongoTemplate.getDb().getName();
+            mongoTemplate.getCollection(collection).renameCollection(
+                    new MongoNamespace(database, mongoTemplate.getCollectionName(EventRollup.class)),
+                    new RenameCollectionOptions().dropTarget(true));
+            if (position > flushedPosition) {
+                flushed(position);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        if (!retry.isEmpty() && !flush(retry, retryPosition)) {
+            return;
+        }
+        Map<Cell, Long> deltas;
+        long position;
+        synchronized (this) {
+            if (pendingPosition <= flushedPosition) {
+                return;
+            }
+            deltas = pending;
+            position = pendingPosition;
+            pending = new HashMap<>();
+        }
+        flush(deltas, position);
+    }
+
+    // False when cells failed; they are kept for a retry with the same position
+    private boolean flush(Map<Cell, Long> deltas, long position) {
+        if (!deltas.isEmpty()) {
+            List<Cell> cells = new ArrayList<>(deltas.keySet());
+            try {
+                // Recorded first: after a crash the same records are replayed with the same position
+                writePositions(flushedPosition, position);
+                write(mongoTemplate.getCollectionName(EventRollup.class), cells, deltas, position);
+            } catch (BulkOperationException e) {
+                Map<Cell, Long> failed = new HashMap<>();
+                for (BulkWriteError error : e.getErrors()) {
+                    // A duplicate key means the guard did not match: the cell already has this flush
+                    if (error.getCode() != DUPLICATE_KEY) {
+                        Cell cell = cells.get(error.getIndex());
+                        failed.put(cell, deltas.get(cell));
+                    }
+                }
+                if (!failed.isEmpty()) {
+                    logger.warn("Rollup flush failed for {} of {} cells, retrying next interval", failed.size(), cells.size());
+                    retry(failed, position);
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                // Unknown which upserts were applied; the retry skips cells that already have this flush
+                logger.warn("Rollup flush of {} cells failed, retrying next interval: {}", cells.size(), e.getMessage());
+                retry(deltas, position);
+                return false;
+            }
+        }
+        retry = Map.of();
+        flushed(position);
+        return true;
+    }
+
+    private void retry(Map<Cell, Long> deltas, long position) {
+        retry = deltas;
+        retryPosition = position;
+    }
+
+    private void flushed(long position) {
+        flushedPosition = position;
+        inflightPosition = -1;
+        try {
+            writePositions(position, -1);
+        } catch (UncheckedIOException e) {
+            // Still marks the older flush in flight, which a restart redoes as a no-op
+            logger.warn("Could not persist the rollup flush position: {}", e.getMessage());
+        }
+        buffer.retain(ROLLUPS_HOLDER, position);
+    }
+
+    private void writePositions(long flushed, long inflight) {
+        Path temp = positionFile.resolveSibling("rollups.position.tmp");
+        try {
+            Files.writeString(temp, flushed + " " + inflight, StandardCharsets.UTF_8);
+            Files.move(temp, positionFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // With a flush position, a cell that already carries it (or a later one) is left alone
+    private void write(String collection, List<Cell> cells, Map<Cell, Long> deltas, Long position) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventRollup.class, collection);
+        for (Cell cell : cells) {
+            Criteria criteria = Criteria.where("_id").is(cell.id());
+            Update update = new Update().inc("count", deltas.get(cell))
+                    .setOnInsert("granularity", cell.granularity().name())
+                    .setOnInsert("bucket", cell.bucket())
+                    .setOnInsert("eventType", cell.eventType())
+                    .setOnInsert("quizId", cell.quizId());
+            if (position != null) {
+                criteria = criteria.and("lastFlush").not().gte(position);
+                update.set("lastFlush", position);
+            }
+            bulk.upsert(Query.query(criteria), update);
+        }
+        bulk.execute();
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.analytics.aggregate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime bucket) {
+        return bucket.plus(1, unit);
+    }
+
+    // Upper bound on the buckets of [from, to), i.e. on the points of a series over it
+    public long buckets(LocalDateTime from, LocalDateTime to) {
+        long buckets = unit.between(truncate(from), to);
+        return truncate(from).plus(buckets, unit).isBefore(to) ? buckets + 1 : buckets;
+    }
+
+    // Finest granularity that keeps a range at or under roughly a thousand points
+    public static RollupGranularity forRange(LocalDateTime from, LocalDateTime to) {
+        Duration range = Duration.between(from, to);
+        if (range.compareTo(Duration.ofHours(6)) <= 0) {
+            return MINUTE;
+        }
+        if (range.compareTo(Duration.ofDays(31)) <= 0) {
+            return HOUR;
+        }
+        return DAY;
+    }
+
+    public static RollupGranularity parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported granularity: " + value + " (expected minute, hour or day)");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.analytics.aggregate;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.IntCountsHistogram;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.zip.DataFormatException;
+
+/**
+ * Ring of fixed-length time slots, each an HDR histogram of millisecond values. A window query
+ * merges the slots that started within the window, so windows are accurate to one slot length.
+ * Slots are allocated on first use and reset in place when the ring wraps around.
+ */
+final class SlidingHistogram {
+    // Latencies above a day are clamped (no exam stays open longer)
+    static final long HIGHEST_MILLIS = Duration.ofDays(1).toMillis();
+
+    private final long slotMillis;
+    private final int significantDigits;
+    private final AbstractHistogram[] slots;
+    private final long[] slotStarts;
+
+    SlidingHistogram(int slotCount, Duration slotLength, int significantDigits) {
+        this.slotMillis = slotLength.toMillis();
+        this.significantDigits = significantDigits;
+        this.slots = new AbstractHistogram[slotCount];
+        this.slotStarts = new long[slotCount];
+    }
+
+    synchronized void record(long valueMillis, long nowMillis) {
+        long slotStart = nowMillis - nowMillis % slotMillis;
+        int index = (int) ((nowMillis / slotMillis) % slots.length);
+        if (slots[index] == null) {
+            slots[index] = newHistogram();
+        } else if (slotStarts[index] != slotStart) {
+            slots[index].reset();
+        }
+        slotStarts[index] = slotStart;
+        slots[index].recordValue(Math.max(0, Math.min(valueMillis, HIGHEST_MILLIS)));
+    }
+
+    synchronized AbstractHistogram window(Duration window, long nowMillis) {
+        AbstractHistogram merged = newHistogram();
+        long oldest = nowMillis - window.toMillis();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null && slotStarts[i] + slotMillis > oldest && slotStarts[i] <= nowMillis) {
+                merged.add(slots[i]);
+            }
+        }
+        return merged;
+    }
+
+    synchronized long footprintBytes() {
+        long bytes = 0;
+        for (AbstractHistogram slot : slots) {
+            if (slot != null) {
+                bytes += slot.getEstimatedFootprintInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    // Slot start and compressed HDR encoding per allocated slot
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                out.writeLong(-1);
+                continue;
+            }
+            out.writeLong(slotStarts[i]);
+            ByteBuffer buffer = ByteBuffer.allocate(slots[i].getNeededByteBufferCapacity());
+            int length = slots[i].encodeIntoCompressedByteBuffer(buffer);
+            out.writeInt(length);
+            out.write(buffer.array(), 0, length);
+        }
+    }
+
+    synchronized void readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long start = in.readLong();
+            if (start < 0) {
+                continue;
+            }
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            // A ring of another size (changed configuration) is read but not restored
+            if (count == slots.length) {
+                try {
+                    slots[i] = IntCountsHistogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), HIGHEST_MILLIS);
+                } catch (DataFormatException e) {
+                    throw new IOException(e);
+                }
+                slotStarts[i] = start;
+            }
+        }
+    }
+
+    private AbstractHistogram newHistogram() {
+        return new IntCountsHistogram(HIGHEST_MILLIS, significantDigits);
+    }
+}
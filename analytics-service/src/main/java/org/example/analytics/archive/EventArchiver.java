@@ -0,0 +1,263 @@
+package org.example.analytics.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.example.analytics.model.AnalyticsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Rolls raw events into hourly columnar segments under ${analytics.data-dir}/archive and keeps
+ * Mongo as a hot window only, via a TTL index on the ingest timestamp.
+ *
+ * An hour is archived once it is older than analytics.archive.delay; the archived-through
+ * watermark is a small file next to the segments. Events still waiting in the ingest buffer are
+ * not in Mongo yet, so the watermark never passes the hour of the oldest of them. The hot window
+ * must stay comfortably longer than the archive interval, otherwise events could expire before
+ * they are archived.
+ */
+@Component
+@DependsOn("eventLayoutMigration")
+public class EventArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(EventArchiver.class);
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final String TTL_INDEX = "timestamp_ttl";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Value("${analytics.data-dir:/data/analytics}")
+    private String dataDir;
+
+    @Value("${analytics.archive.hot-window:P7D}")
+    private Duration hotWindow;
+
+    @Value("${analytics.archive.delay:PT10M}")
+    private Duration delay;
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Path.of(dataDir, "archive");
+        Files.createDirectories(directory);
+        ensureTtlIndex();
+    }
+
+    // Replaces a plain timestamp index, a TTL with another window or one on the pre-compact
+    // "timestamp" field with the configured TTL ("timestamp" maps to "ts" in the index below)
+    private void ensureTtlIndex() {
+        IndexOperations indexes = mongoTemplate.indexOps(AnalyticsEvent.class);
+        for (IndexInfo info : indexes.getIndexInfo()) {
+            String field = info.getIndexFields().size() == 1 ? info.getIndexFields().get(0).getKey() : null;
+            boolean onTimestamp = "ts".equals(field) || "timestamp".equals(field);
+            boolean current = TTL_INDEX.equals(info.getName()) && "ts".equals(field)
+                    && info.getExpireAfter().map(hotWindow::equals).orElse(false);
+            if (onTimestamp && !current) {
+                indexes.dropIndex(info.getName());
+            }
+        }
+        indexes.ensureIndex(new Index().on("timestamp", Sort.Direction.ASC).named(TTL_INDEX).expire(hotWindow));
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.archive.interval-ms:300000}", initialDelayString = "${analytics.archive.interval-ms:300000}")
+    public synchronized void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(delay).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime pending = oldestUndrained();
+        if (pending != null && pending.isBefore(cutoff)) {
+            logger.info("Not archiving from {} on while older events wait in the ingest buffer", pending.truncatedTo(ChronoUnit.HOURS));
+            cutoff = pending.truncatedTo(ChronoUnit.HOURS);
+        }
+        LocalDateTime next = archivedThrough();
+        if (next == null) {
+            AnalyticsEvent first = mongoTemplate.findOne(new Query().with(Sort.by("timestamp")).limit(1), AnalyticsEvent.class);
+            if (first == null) {
+                return;
+            }
+            next = first.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+        }
+        if (next.isBefore(LocalDateTime.now().minus(hotWindow).plusHours(1))) {
+            logger.error("Event archive is behind the Mongo hot window (archived through {}); older events may have expired", next);
+        }
+        while (next.isBefore(cutoff)) {
+            archiveHour(next);
+            next = next.plusHours(1);
+            writeWatermark(next);
+        }
+    }
+
+    public synchronized LocalDateTime archivedThrough() {
+        Path watermark = directory.resolve("watermark");
+        try {
+            return Files.exists(watermark)
+                    ? LocalDateTime.parse(Files.readString(watermark, StandardCharsets.UTF_8).trim())
+                    : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<Path> segments(LocalDateTime from, LocalDateTime to) {
+        List<Path> selected = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().forEach(path -> {
+                LocalDateTime hour = segmentHour(path);
+                // File name gives the hour, so most segments are pruned without opening them
+                if ((from == null || hour.plusHours(1).isAfter(from)) && (to == null || hour.isBefore(to))) {
+                    selected.add(path);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return selected;
+    }
+
+    // Rebuilds the events of one segment (without occurredAt, which is not archived)
+    @SuppressWarnings("unchecked")
+    public List<AnalyticsEvent> readSegment(Path path) {
+        Segment segment = Segment.open(path);
+        long[] timestamps = segment.timestamps();
+        Segment.TypeColumn types = segment.types();
+        Map<String, long[]> longs = new LinkedHashMap<>();
+        for (String column : SegmentWriter.LONG_COLUMNS) {
+            longs.put(column, segment.longs(column));
+        }
+        String[] ids = segment.strings("id");
+        String[] extras = segment.strings("extras");
+
+        List<AnalyticsEvent> events = new ArrayList<>(segment.rows);
+        for (int i = 0; i < segment.rows; i++) {
+            Map<String, Object> data = new HashMap<>();
+            if (extras[i] != null) {
+                try {
+                    data.putAll(objectMapper.readValue(extras[i], Map.class));
+                } catch (IOException e) {
+                    logger.warn("Unreadable extras in {} row {}", path.getFileName(), i);
+                }
+            }
+            String type = types.dictionary()[types.ids()[i]];
+            for (Map.Entry<String, long[]> column : longs.entrySet()) {
+                if (column.getValue()[i] != ColumnCodec.NULL) {
+                    data.put(column.getKey(), column.getValue()[i]);
+                }
+            }
+            AnalyticsEvent event = AnalyticsEvent.of(type.isEmpty() ? null : type, data);
+            event.setId(ids[i]);
+            event.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamps[i]), ZoneId.systemDefault()));
+            events.add(event);
+        }
+        return events;
+    }
+
+    public LocalDateTime segmentHour(Path path) {
+        String name = path.getFileName().toString();
+        return LocalDateTime.parse(name.substring("events-".length(), name.length() - ".seg".length()), HOUR);
+    }
+
+    public Map<String, Object> stats() {
+        List<Path> all = segments(null, null);
+        long rows = 0;
+        long compressed = 0;
+        long raw = 0;
+        for (Path path : all) {
+            Segment segment = Segment.open(path);
+            rows += segment.rows;
+            compressed += segment.compressedBytes();
+            raw += segment.rawBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("segments", all.size());
+        stats.put("rows", rows);
+        stats.put("compressedBytes", compressed);
+        stats.put("encodedBytes", raw);
+        stats.put("bytesPerEvent", rows == 0 ? 0 : (double) compressed / rows);
+        stats.put("archivedThrough", archivedThrough());
+        stats.put("hotWindow", hotWindow.toString());
+        return stats;
+    }
+
+    // Timestamp of the oldest event appended to the ingest buffer but not drained into Mongo yet
+    private LocalDateTime oldestUndrained() {
+        LocalDateTime[] oldest = new LocalDateTime[1];
+        buffer.forEach(buffer.drainPosition(), buffer.appendPosition(), record -> {
+            try {
+                LocalDateTime timestamp = objectMapper.readValue(record, AnalyticsEvent.class).getTimestamp();
+                if (timestamp != null && (oldest[0] == null || timestamp.isBefore(oldest[0]))) {
+                    oldest[0] = timestamp;
+                }
+            } catch (IOException e) {
+                // The drainer skips unreadable records too
+            }
+        });
+        return oldest[0];
+    }
+
+    private void archiveHour(LocalDateTime hour) {
+        Query query = Query.query(Criteria.where("timestamp").gte(hour).lt(hour.plusHours(1)))
+                .with(Sort.by("timestamp"))
+                .cursorBatchSize(2000);
+        SegmentWriter writer = new SegmentWriter(objectMapper);
+        try (Stream<AnalyticsEvent> events = mongoTemplate.stream(query, AnalyticsEvent.class)) {
+            events.forEach(writer::append);
+        }
+        if (writer.rows() == 0) {
+            return;
+        }
+        try {
+            long bytes = writer.writeTo(directory.resolve("events-" + HOUR.format(hour) + ".seg"));
+            logger.info("Archived {} events of {} into {} bytes ({} encoded)", writer.rows(), hour, bytes, writer.rawBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeWatermark(LocalDateTime through) {
+        Path watermark = directory.resolve("watermark");
+        Path temp = directory.resolve("watermark.tmp");
+        try {
+            Files.writeString(temp, through.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, watermark, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.analytics.archive;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel filter/group-by/count over archived segments. The segment list is split in halves
+ * on a dedicated fork-join pool until each task holds one segment; each task prunes on the
+ * segment's time bounds, inflates only the columns the query needs, and returns a partial
+ * count map that is merged on the way back up.
+ */
+@Component
+public class ScanEngine {
+
+    private final ForkJoinPool pool;
+
+    public ScanEngine(@Value("${analytics.archive.scan-parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class Partial {
+        final Map<List<Object>, long[]> counts = new HashMap<>();
+        int segmentsScanned;
+        int segmentsPruned;
+        long rowsScanned;
+        long rowsMatched;
+
+        Partial merge(Partial other) {
+            other.counts.forEach((key, count) -> counts.merge(key, count, (a, b) -> {
+                a[0] += b[0];
+                return a;
+            }));
+            segmentsScanned += other.segmentsScanned;
+            segmentsPruned += other.segmentsPruned;
+            rowsScanned += other.rowsScanned;
+            rowsMatched += other.rowsMatched;
+            return this;
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<Partial> {
+        private final List<Path> segments;
+        private final ScanQuery query;
+
+        ScanTask(List<Path> segments, ScanQuery query) {
+            this.segments = segments;
+            this.query = query;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (segments.size() == 1) {
+                return scanSegment(Segment.open(segments.get(0)), query);
+            }
+            int mid = segments.size() / 2;
+            ScanTask left = new ScanTask(segments.subList(0, mid), query);
+            ScanTask right = new ScanTask(segments.subList(mid, segments.size()), query);
+            left.fork();
+            Partial result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+
+    public Map<String, Object> scan(List<Path> segments, ScanQuery query) {
+        long start = System.nanoTime();
+        Partial total = segments.isEmpty() ? new Partial() : pool.invoke(new ScanTask(segments, query));
+
+        List<Map.Entry<List<Object>, long[]>> groups = new ArrayList<>(total.counts.entrySet());
+        groups.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<List<Object>, long[]> group : groups.subList(0, Math.min(groups.size(), query.getLimit()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < query.getGroupBy().size(); i++) {
+                String field = query.getGroupBy().get(i);
+                Object value = group.getKey().get(i);
+                if (("day".equals(field) || "hour".equals(field)) && value instanceof Long millis) {
+                    LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+                    value = "day".equals(field) ? time.toLocalDate() : time;
+                }
+                row.put(field, value);
+            }
+            row.put("count", group.getValue()[0]);
+            rows.add(row);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("groups", rows);
+        result.put("totalGroups", groups.size());
+        result.put("rowsMatched", total.rowsMatched);
+        result.put("rowsScanned", total.rowsScanned);
+        result.put("segmentsScanned", total.segmentsScanned);
+        result.put("segmentsPruned", total.segmentsPruned);
+        result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000.0);
+        return result;
+    }
+
+    private Partial scanSegment(Segment segment, ScanQuery query) {
+        Partial partial = new Partial();
+        long from = query.getFrom() != null ? epochMillis(query.getFrom()) : Long.MIN_VALUE;
+        long to = query.getTo() != null ? epochMillis(query.getTo()) : Long.MAX_VALUE;
+        if (segment.maxTs < from || segment.minTs >= to) {
+            partial.segmentsPruned = 1;
+            return partial;
+        }
+
+        List<String> groupBy = query.getGroupBy();
+        boolean needTs = segment.minTs < from || segment.maxTs >= to || groupBy.contains("day") || groupBy.contains("hour");
+        long[] ts = needTs ? segment.timestamps() : null;
+
+        Segment.TypeColumn types = null;
+        int typeFilter = -1;
+        if (query.getEventType() != null || groupBy.contains("eventType")) {
+            types = segment.types();
+            if (query.getEventType() != null) {
+                for (int i = 0; i < types.dictionary().length; i++) {
+                    if (query.getEventType().equals(types.dictionary()[i])) {
+                        typeFilter = i;
+                    }
+                }
+                if (typeFilter < 0) {
+                    // Dictionary says the type never occurs here
+                    partial.segmentsPruned = 1;
+                    return partial;
+                }
+            }
+        }
+
+        Map<String, long[]> longColumns = new HashMap<>();
+        for (String field : query.getEquals().keySet()) {
+            longColumns.computeIfAbsent(field, segment::longs);
+        }
+        for (String field : groupBy) {
+            if (SegmentWriter.LONG_COLUMNS.contains(field)) {
+                longColumns.computeIfAbsent(field, segment::longs);
+            }
+        }
+        List<Map.Entry<String, Long>> filters = new ArrayList<>(query.getEquals().entrySet());
+        long[][] filterColumns = new long[filters.size()][];
+        long[] filterValues = new long[filters.size()];
+        for (int f = 0; f < filters.size(); f++) {
+            filterColumns[f] = longColumns.get(filters.get(f).getKey());
+            filterValues[f] = filters.get(f).getValue();
+        }
+
+        // Zone offset is fixed within an hourly segment (DST changes fall on hour boundaries)
+        long offsetMillis = ZoneId.systemDefault().getRules()
+                .getOffset(Instant.ofEpochMilli(segment.minTs)).getTotalSeconds() * 1000L;
+
+        partial.segmentsScanned = 1;
+        partial.rowsScanned = segment.rows;
+        rows:
+        for (int row = 0; row < segment.rows; row++) {
+            if (ts != null && (ts[row] < from || ts[row] >= to)) {
+                continue;
+            }
+            if (typeFilter >= 0 && types.ids()[row] != typeFilter) {
+                continue;
+            }
+            for (int f = 0; f < filterColumns.length; f++) {
+                if (filterColumns[f][row] != filterValues[f]) {
+                    continue rows;
+                }
+            }
+            partial.rowsMatched++;
+
+            List<Object> key = new ArrayList<>(groupBy.size());
+            for (String field : groupBy) {
+                switch (field) {
+                    case "eventType" -> key.add(types.dictionary()[types.ids()[row]]);
+                    case "day" -> key.add(truncate(ts[row], offsetMillis, 86_400_000L));
+                    case "hour" -> key.add(truncate(ts[row], offsetMillis, 3_600_000L));
+                    default -> {
+                        long value = longColumns.get(field)[row];
+                        key.add(value == ColumnCodec.NULL ? null : value);
+                    }
+                }
+            }
+            partial.counts.computeIfAbsent(key, k -> new long[1])[0]++;
+        }
+        return partial;
+    }
+
+    private static long truncate(long epochMillis, long offsetMillis, long unit) {
+        long local = epochMillis + offsetMillis;
+        return local - Math.floorMod(local, unit) - offsetMillis;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.analytics.archive;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter/group-by/count over archived events. Time bounds are [from, to); long filters match
+ * quizId, userId, submissionId, score or maxScore exactly.
+ */
+@Data
+@NoArgsConstructor
+public class ScanQuery {
+    public static final List<String> GROUP_FIELDS = List.of("eventType", "quizId", "userId", "submissionId", "score", "day", "hour");
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String eventType;
+    private Map<String, Long> equals = new LinkedHashMap<>();
+    private List<String> groupBy = new ArrayList<>();
+    private int limit = 100;
+
+    public void setGroupBy(List<String> groupBy) {
+        for (String field : groupBy) {
+            if (!GROUP_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Cannot group by " + field + " (expected one of " + GROUP_FIELDS + ")");
+            }
+        }
+        this.groupBy = new ArrayList<>(groupBy);
+    }
+
+    public void addEquals(String field, Long value) {
+        if (value == null) {
+            return;
+        }
+        if (!SegmentWriter.LONG_COLUMNS.contains(field)) {
+            throw new IllegalArgumentException("Cannot filter on " + field);
+        }
+        equals.put(field, value);
+    }
+}
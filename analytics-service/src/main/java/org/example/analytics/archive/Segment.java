@@ -0,0 +1,148 @@
+package org.example.analytics.archive;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for a segment written by SegmentWriter. Opening reads only the header and table of
+ * contents; each column is read and inflated on demand, so a scan touches only the columns
+ * it filters or groups on.
+ */
+final class Segment {
+
+    record Column(long offset, int compressedLength, int rawLength) {
+    }
+
+    record TypeColumn(String[] dictionary, int[] ids) {
+    }
+
+    final Path path;
+    final int rows;
+    final long minTs;
+    final long maxTs;
+    final Map<String, Column> columns;
+
+    private Segment(Path path, int rows, long minTs, long maxTs, Map<String, Column> columns) {
+        this.path = path;
+        this.rows = rows;
+        this.minTs = minTs;
+        this.maxTs = maxTs;
+        this.columns = columns;
+    }
+
+    static Segment open(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 4096))) {
+            if (in.readInt() != SegmentWriter.MAGIC) {
+                throw new IllegalStateException("Not an event segment: " + path);
+            }
+            short format = in.readShort();
+            if (format != SegmentWriter.FORMAT) {
+                throw new IllegalStateException("Unsupported segment format " + format + ": " + path);
+            }
+            int rows = in.readInt();
+            long minTs = in.readLong();
+            long maxTs = in.readLong();
+            int count = in.readShort();
+            Map<String, Column> columns = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                columns.put(in.readUTF(), new Column(in.readLong(), in.readInt(), in.readInt()));
+            }
+            return new Segment(path, rows, minTs, maxTs, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long compressedBytes() {
+        return columns.values().stream().mapToLong(Column::compressedLength).sum();
+    }
+
+    long rawBytes() {
+        return columns.values().stream().mapToLong(Column::rawLength).sum();
+    }
+
+    long[] timestamps() {
+        ByteBuffer in = column("ts");
+        long[] values = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += ColumnCodec.unzigzag(ColumnCodec.readVarint(in));
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    TypeColumn types() {
+        ByteBuffer in = column("type");
+        String[] dictionary = new String[(int) ColumnCodec.readVarint(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = ColumnCodec.readString(in);
+        }
+        int[] ids = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = (int) ColumnCodec.readVarint(in);
+        }
+        return new TypeColumn(dictionary, ids);
+    }
+
+    // Null entries are ColumnCodec.NULL
+    long[] longs(String name) {
+        ByteBuffer in = column(name);
+        long[] values = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = ColumnCodec.readNullableLong(in);
+        }
+        return values;
+    }
+
+    String[] strings(String name) {
+        ByteBuffer in = column(name);
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = ColumnCodec.readString(in);
+        }
+        return values;
+    }
+
+    private ByteBuffer column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column " + name);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer compressed = ByteBuffer.allocate(column.compressedLength());
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, column.offset() + compressed.position()) < 0) {
+                    throw new IllegalStateException("Truncated segment: " + path);
+                }
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                byte[] raw = new byte[column.rawLength()];
+                int read = 0;
+                while (read < raw.length && !inflater.finished()) {
+                    read += inflater.inflate(raw, read, raw.length - read);
+                }
+                return ByteBuffer.wrap(raw);
+            } finally {
+                inflater.end();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column " + name + " in " + path, e);
+        }
+    }
+}
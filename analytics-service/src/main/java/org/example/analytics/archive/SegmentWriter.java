@@ -0,0 +1,167 @@
+package org.example.analytics.archive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.analytics.model.AnalyticsEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Builds one columnar segment from events appended in timestamp order.
+ *
+ * <pre>
+ * header  i32 magic "AEV1" | u16 format | i32 rows | i64 minTs | i64 maxTs | u16 columns
+ * toc     per column: UTF name | i64 offset | i32 compressed length | i32 raw length
+ * blocks  one deflated block per column
+ * </pre>
+ * ts is delta+zigzag varints of epoch millis; type is a dictionary plus varint ids; the id
+ * columns and score/maxScore are nullable zigzag varints; extras holds the remaining event
+ * fields as JSON so nothing is lost when Mongo expires the raw document.
+ */
+final class SegmentWriter {
+    static final int MAGIC = 0x41455631; // "AEV1"
+    static final short FORMAT = 1;
+    static final List<String> LONG_COLUMNS = List.of("quizId", "userId", "submissionId", "score", "maxScore");
+    private static final Set<String> PROMOTED = Set.of("eventType", "quizId", "userId", "submissionId", "score", "maxScore");
+
+    private final ObjectMapper objectMapper;
+    private final ByteArrayOutputStream ts = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream typeIds = new ByteArrayOutputStream();
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+    private final Map<String, ByteArrayOutputStream> longColumns = new LinkedHashMap<>();
+    private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream extras = new ByteArrayOutputStream();
+    private int rows;
+    private long minTs = Long.MAX_VALUE;
+    private long maxTs = Long.MIN_VALUE;
+    private long previousTs;
+
+    SegmentWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        for (String column : LONG_COLUMNS) {
+            longColumns.put(column, new ByteArrayOutputStream());
+        }
+    }
+
+    void append(AnalyticsEvent event) {
+        long timestamp = event.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        ColumnCodec.writeVarint(ts, ColumnCodec.zigzag(timestamp - previousTs));
+        previousTs = timestamp;
+        minTs = Math.min(minTs, timestamp);
+        maxTs = Math.max(maxTs, timestamp);
+
+        String type = event.getEventType() != null ? event.getEventType() : "";
+        ColumnCodec.writeVarint(typeIds, dictionary.computeIfAbsent(type, t -> dictionary.size()));
+
+        Map<String, Object> data = event.payload();
+        for (String column : LONG_COLUMNS) {
+            Object value = data.get(column);
+            ColumnCodec.writeNullableLong(longColumns.get(column), value instanceof Number n ? n.longValue() : null);
+        }
+        ColumnCodec.writeString(ids, event.getId());
+
+        Map<String, Object> rest = new HashMap<>();
+        data.forEach((key, value) -> {
+            if (!PROMOTED.contains(key)) {
+                rest.put(key, value);
+            }
+        });
+        try {
+            ColumnCodec.writeString(extras, rest.isEmpty() ? null : objectMapper.writeValueAsString(rest));
+        } catch (JsonProcessingException e) {
+            ColumnCodec.writeString(extras, null);
+        }
+        rows++;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    // Written to a temp file and moved into place so readers never see a partial segment
+    long writeTo(Path path) throws IOException {
+        ByteArrayOutputStream typeColumn = new ByteArrayOutputStream();
+        ColumnCodec.writeVarint(typeColumn, dictionary.size());
+        for (String type : dictionary.keySet()) {
+            ColumnCodec.writeString(typeColumn, type);
+        }
+        typeIds.writeTo(typeColumn);
+
+        Map<String, byte[]> raw = new LinkedHashMap<>();
+        raw.put("ts", ts.toByteArray());
+        raw.put("type", typeColumn.toByteArray());
+        longColumns.forEach((name, column) -> raw.put(name, column.toByteArray()));
+        raw.put("id", ids.toByteArray());
+        raw.put("extras", extras.toByteArray());
+
+        List<String> names = new ArrayList<>(raw.keySet());
+        List<byte[]> blocks = new ArrayList<>();
+        int headerBytes = 4 + 2 + 4 + 8 + 8 + 2;
+        for (String name : names) {
+            headerBytes += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8 + 4 + 4;
+            blocks.add(deflate(raw.get(name)));
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT);
+            out.writeInt(rows);
+            out.writeLong(minTs);
+            out.writeLong(maxTs);
+            out.writeShort(names.size());
+            long offset = headerBytes;
+            for (int i = 0; i < names.size(); i++) {
+                out.writeUTF(names.get(i));
+                out.writeLong(offset);
+                out.writeInt(blocks.get(i).length);
+                out.writeInt(raw.get(names.get(i)).length);
+                offset += blocks.get(i).length;
+            }
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(path);
+    }
+
+    long rawBytes() {
+        long total = ts.size() + typeIds.size() + ids.size() + extras.size();
+        for (ByteArrayOutputStream column : longColumns.values()) {
+            total += column.size();
+        }
+        return total;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+        byte[] buffer = new byte[1 << 16];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,422 @@
+package org.example.analytics.backfill;
+
+import jakarta.annotation.PreDestroy;
+import org.example.analytics.aggregate.CounterCheckpointer;
+import org.example.analytics.aggregate.EventCounters;
+import org.example.analytics.aggregate.RollupAggregator;
+import org.example.analytics.archive.EventArchiver;
+import org.example.analytics.ingest.BufferDrainer;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.sketch.SketchStore;
+import org.example.analytics.snapshot.StateSnapshotter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes aggregates (counters, rollups, daily sketches) from the full event history.
+ *
+ * History before a cutoff is split into day ranges and scanned on a dedicated fork-join pool,
+ * halving the range list like ScanEngine does with segments. A range reads archived hours from
+ * their segments and the rest through a streaming Mongo cursor, in chunks, so nothing is
+ * materialized beyond a chunk and a partial aggregate. Partials merge on the way back up;
+ * rollup cells go straight into a staging collection with $inc upserts instead.
+ *
+ * Events after the cutoff are then read from Mongo (the hot window), the last ones with the
+ * drainer held between batches, and the result is swapped in under that same hold: counters
+ * reset, staging renamed over event_rollups, day sketches replaced. Live ingest keeps priority
+ * throughout: scanning is rate limited and pauses while the ingest buffer has a backlog.
+ */
+@Component
+public class BackfillJob {
+    private static final Logger logger = LoggerFactory.getLogger(BackfillJob.class);
+
+    public static final Set<String> AGGREGATES = Set.of("counters", "rollups", "sketches");
+    private static final String STAGING = "event_rollups_backfill";
+    private static final int CHUNK = 1000;
+    // Events are timestamped just before they are buffered; older ones are surely in Mongo
+    private static final Duration SETTLE = Duration.ofMinutes(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EventArchiver archiver;
+
+    @Autowired
+    private EventCounters counters;
+
+    @Autowired
+    private CounterCheckpointer counterCheckpointer;
+
+    @Autowired
+    private RollupAggregator rollups;
+
+    @Autowired
+    private SketchStore sketches;
+
+    @Autowired
+    private BufferDrainer drainer;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Autowired
+    private StateSnapshotter snapshotter;
+
+    @Value("${analytics.backfill.max-events-per-second:50000}")
+    private long maxEventsPerSecond;
+
+    @Value("${analytics.backfill.yield-pending-bytes:16777216}")
+    private long yieldPendingBytes;
+
+    private final ForkJoinPool pool;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object throttleLock = new Object();
+    private long nextFreeNanos;
+    private volatile Progress progress;
+    private volatile boolean cancelled;
+
+    public BackfillJob(@Value("${analytics.backfill.parallelism:0}") int parallelism) {
+        // Half the cores by default, leaving the rest to ingest and queries
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelled = true;
+        runner.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private static final class Progress {
+        final Set<String> aggregates;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        final AtomicInteger completedRanges = new AtomicInteger();
+        final LongAdder events = new LongAdder();
+        final LongAdder yieldMillis = new LongAdder();
+        final LongAdder throttledMillis = new LongAdder();
+        volatile String phase = "starting";
+        volatile int totalRanges;
+        volatile LocalDateTime cutoff;
+        volatile LocalDateTime finishedAt;
+        volatile long finishedNanos;
+        volatile String error;
+
+        Progress(Set<String> aggregates) {
+            this.aggregates = aggregates;
+        }
+
+        boolean running() {
+            return finishedAt == null;
+        }
+    }
+
+    private record Range(LocalDateTime from, LocalDateTime to) {
+    }
+
+    private final class Partial {
+        final Map<String, Long> counts = new HashMap<>();
+        final SketchStore.DaySet days;
+        final Set<String> aggregates;
+
+        Partial(Set<String> aggregates) {
+            this.aggregates = aggregates;
+            this.days = aggregates.contains("sketches") ? sketches.newDaySet() : null;
+        }
+
+        void accept(List<AnalyticsEvent> chunk, boolean throttled) {
+            if (throttled) {
+                throttle(chunk.size());
+            }
+            if (aggregates.contains("counters")) {
+                for (AnalyticsEvent event : chunk) {
+                    counts.merge(event.getEventType(), 1L, Long::sum);
+                }
+            }
+            if (aggregates.contains("rollups")) {
+                rollups.recomputeInto(STAGING, chunk);
+            }
+            if (days != null) {
+                days.record(chunk);
+            }
+            progress.events.add(chunk.size());
+        }
+
+        Partial merge(Partial other) {
+            other.counts.forEach((type, count) -> counts.merge(type, count, Long::sum));
+            if (days != null) {
+                days.merge(other.days);
+            }
+            return this;
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<Partial> {
+        private final List<Range> ranges;
+        private final LocalDateTime archivedThrough;
+
+        RangeTask(List<Range> ranges, LocalDateTime archivedThrough) {
+            this.ranges = ranges;
+            this.archivedThrough = archivedThrough;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (ranges.size() == 1) {
+                Partial partial = new Partial(progress.aggregates);
+                scanRange(ranges.get(0), archivedThrough, partial);
+                progress.completedRanges.incrementAndGet();
+                return partial;
+            }
+            int mid = ranges.size() / 2;
+            RangeTask left = new RangeTask(ranges.subList(0, mid), archivedThrough);
+            RangeTask right = new RangeTask(ranges.subList(mid, ranges.size()), archivedThrough);
+            left.fork();
+            Partial result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+
+    public synchronized Map<String, Object> start(Set<String> requested) {
+        if (progress != null && progress.running()) {
+            throw new IllegalStateException("A backfill is already running");
+        }
+        Set<String> aggregates = new LinkedHashSet<>(requested.isEmpty() ? AGGREGATES : requested);
+        for (String aggregate : aggregates) {
+            if (!AGGREGATES.contains(aggregate)) {
+                throw new IllegalArgumentException("Unknown aggregate: " + aggregate + " (expected one of " + AGGREGATES + ")");
+            }
+        }
+        cancelled = false;
+        progress = new Progress(aggregates);
+        runner.execute(this::run);
+        return status();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Map<String, Object> status() {
+        Progress current = progress;
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (current == null) {
+            status.put("phase", "idle");
+            return status;
+        }
+        double seconds = ((current.running() ? System.nanoTime() : current.finishedNanos) - current.startNanos) / 1e9;
+        status.put("phase", current.phase);
+        status.put("aggregates", current.aggregates);
+        status.put("startedAt", current.startedAt);
+        status.put("finishedAt", current.finishedAt);
+        status.put("cutoff", current.cutoff);
+        status.put("totalRanges", current.totalRanges);
+        status.put("completedRanges", current.completedRanges.get());
+        status.put("percent", current.totalRanges == 0 ? 0 : 100.0 * current.completedRanges.get() / current.totalRanges);
+        status.put("events", current.events.sum());
+        status.put("eventsPerSecond", seconds > 0 ? current.events.sum() / seconds : 0);
+        status.put("throttledMillis", current.throttledMillis.sum());
+        status.put("yieldedToIngestMillis", current.yieldMillis.sum());
+        status.put("error", current.error);
+        return status;
+    }
+
+    private void run() {
+        Progress current = progress;
+        boolean staged = current.aggregates.contains("rollups");
+        try {
+            current.phase = "waiting for ingest buffer";
+            drainer.awaitDrained(TimeUnit.MINUTES.toMillis(5));
+            LocalDateTime cutoff = LocalDateTime.now().minus(SETTLE);
+            current.cutoff = cutoff;
+            LocalDateTime archivedThrough = archiver.archivedThrough();
+            List<Range> ranges = dayRanges(earliestEvent(), cutoff);
+            if (staged) {
+                rollups.prepareStaging(STAGING);
+            }
+
+            current.phase = "scanning";
+            current.totalRanges = ranges.size();
+            logger.info("Backfill of {} started over {} day ranges before {}", current.aggregates, ranges.size(), cutoff);
+            Partial result = ranges.isEmpty() ? new Partial(current.aggregates) : pool.invoke(new RangeTask(ranges, archivedThrough));
+
+            // Events since the cutoff, first without holding the drainer, then the last few with it
+            current.phase = "catching up";
+            LocalDateTime settled = LocalDateTime.now().minus(SETTLE);
+            drainer.awaitDrained(TimeUnit.MINUTES.toMillis(5));
+            scanMongo(cutoff, settled, result, true);
+
+            current.phase = "swapping";
+            drainer.quiesced(() -> {
+                scanMongo(settled, null, result, false);
+                if (current.aggregates.contains("counters")) {
+                    counters.reset(result.counts);
+                    counterCheckpointer.checkpoint();
+                }
+                if (staged) {
+                    rollups.swapIn(STAGING);
+                }
+                if (result.days != null) {
+                    sketches.replaceDays(result.days);
+                }
+            });
+            snapshotter.request();
+            current.phase = "done";
+            logger.info("Backfill of {} finished: {} events", current.aggregates, current.events.sum());
+        } catch (CancellationException e) {
+            current.phase = "cancelled";
+            dropStaging(staged);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            current.phase = "cancelled";
+            dropStaging(staged);
+        } catch (RuntimeException e) {
+            current.phase = "failed";
+            current.error = e.getMessage();
+            logger.error("Backfill failed: {}", e.getMessage(), e);
+            dropStaging(staged);
+        } finally {
+            current.finishedNanos = System.nanoTime();
+            current.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private void scanRange(Range range, LocalDateTime archivedThrough, Partial partial) {
+        LocalDateTime mongoFrom = range.from();
+        if (archivedThrough != null && range.from().isBefore(archivedThrough)) {
+            LocalDateTime archiveTo = range.to().isBefore(archivedThrough) ? range.to() : archivedThrough;
+            for (Path segment : archiver.segments(range.from(), archiveTo)) {
+                List<AnalyticsEvent> events = archiver.readSegment(segment);
+                for (int i = 0; i < events.size(); i += CHUNK) {
+                    partial.accept(events.subList(i, Math.min(i + CHUNK, events.size())), true);
+                }
+            }
+            mongoFrom = archiveTo;
+        }
+        if (mongoFrom.isBefore(range.to())) {
+            scanMongo(mongoFrom, range.to(), partial, true);
+        }
+    }
+
+    // Streams [from, to) through a cursor in CHUNK-sized batches; to == null is open-ended
+    private void scanMongo(LocalDateTime from, LocalDateTime to, Partial partial, boolean throttled) {
+        Criteria criteria = Criteria.where("timestamp").gte(from);
+        if (to != null) {
+            criteria = criteria.lt(to);
+        }
+        Query query = Query.query(criteria).cursorBatchSize(CHUNK);
+        List<AnalyticsEvent> chunk = new ArrayList<>(CHUNK);
+        try (Stream<AnalyticsEvent> events = mongoTemplate.stream(query, AnalyticsEvent.class)) {
+            events.forEach(event -> {
+                chunk.add(event);
+                if (chunk.size() == CHUNK) {
+                    partial.accept(chunk, throttled);
+                    chunk.clear();
+                }
+            });
+        }
+        if (!chunk.isEmpty()) {
+            partial.accept(chunk, throttled);
+        }
+    }
+
+    private LocalDateTime earliestEvent() {
+        List<Path> segments = archiver.segments(null, null);
+        if (!segments.isEmpty()) {
+            return archiver.segmentHour(segments.get(0));
+        }
+        AnalyticsEvent first = mongoTemplate.findOne(new Query().with(Sort.by("timestamp")).limit(1), AnalyticsEvent.class);
+        return first != null ? first.getTimestamp() : null;
+    }
+
+    private static List<Range> dayRanges(LocalDateTime earliest, LocalDateTime cutoff) {
+        List<Range> ranges = new ArrayList<>();
+        if (earliest == null) {
+            return ranges;
+        }
+        for (LocalDateTime day = earliest.truncatedTo(ChronoUnit.DAYS); day.isBefore(cutoff); day = day.plusDays(1)) {
+            LocalDateTime end = day.plusDays(1);
+            ranges.add(new Range(day, end.isBefore(cutoff) ? end : cutoff));
+        }
+        return ranges;
+    }
+
+    // Yields while live ingest has a backlog, then paces scanning to max-events-per-second
+    private void throttle(int events) {
+        try {
+            while (buffer.pendingBytes() > yieldPendingBytes) {
+                checkCancelled();
+                Thread.sleep(200);
+                progress.yieldMillis.add(200);
+            }
+            checkCancelled();
+            if (maxEventsPerSecond <= 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (throttleLock) {
+                long now = System.nanoTime();
+                nextFreeNanos = Math.max(nextFreeNanos, now) + events * 1_000_000_000L / maxEventsPerSecond;
+                waitNanos = nextFreeNanos - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                progress.throttledMillis.add(waitNanos / 1_000_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Backfill interrupted");
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Backfill cancelled");
+        }
+    }
+
+    private void dropStaging(boolean staged) {
+        if (staged) {
+            try {
+                mongoTemplate.dropCollection(STAGING);
+            } catch (RuntimeException e) {
+                logger.warn("Could not drop backfill staging collection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.analytics.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+@Configuration
+public class KafkaConsumerConfig {
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerConfig.class);
+
+    // A failed append to the ingest buffer (disk full) retries the whole batch with backoff for up
+    // to max-elapsed-ms; offsets are not committed meanwhile. After that each record of the batch
+    // is logged and skipped so one bad batch cannot stall the partitions forever. Records that
+    // cannot be deserialized never get here: ErrorHandlingDeserializer hands them over as nulls
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(
+            @Value("${analytics.ingest.retry.max-interval-ms:30000}") long maxInterval,
+            @Value("${analytics.ingest.retry.max-elapsed-ms:600000}") long maxElapsed) {
+        ExponentialBackOff backOff = new ExponentialBackOff(500, 2.0);
+        backOff.setMaxInterval(maxInterval);
+        backOff.setMaxElapsedTime(maxElapsed);
+        return new DefaultErrorHandler((record, e) -> logger.error("Skipped {}-{}-{} after retries: {}",
+                record.topic(), record.partition(), record.offset(), e.getMessage()), backOff);
+    }
+}
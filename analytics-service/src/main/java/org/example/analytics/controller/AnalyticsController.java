@@ -1,11 +1,26 @@
 package org.example.analytics.controller;
 
+import org.example.analytics.archive.ScanQuery;
+import org.example.analytics.backfill.BackfillJob;
+import org.example.analytics.ingest.IngestMetrics;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.push.DashboardPublisher;
+import org.example.analytics.snapshot.StateSnapshotter;
 import org.example.analytics.service.AnalyticsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/analytics")
@@ -15,11 +30,36 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    @Autowired
+    private DashboardPublisher dashboardPublisher;
+
+    @Autowired
+    private StateSnapshotter snapshotter;
+
+    @Autowired
+    private BackfillJob backfillJob;
+
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         return ResponseEntity.ok(analyticsService.getDashboardStats());
     }
 
+    // Server-sent events: a "snapshot" first, then "delta" events with only the changed values
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard() {
+        try {
+            return ResponseEntity.ok()
+                    // Tells nginx not to buffer the stream
+                    .header("X-Accel-Buffering", "no")
+                    .body(dashboardPublisher.subscribe());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @GetMapping("/quiz-stats")
     public ResponseEntity<Map<String, Object>> getQuizStats() {
         return ResponseEntity.ok(analyticsService.getQuizStats());
@@ -29,5 +69,189 @@ public class AnalyticsController {
     public ResponseEntity<Map<String, Object>> getUserStats() {
         return ResponseEntity.ok(analyticsService.getUserStats());
     }
-}
 
+    @GetMapping("/timeseries")
+    public ResponseEntity<Map<String, Object>> getTimeseries(
+            @RequestParam String type,
+            @RequestParam(required = false) Long quizId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String granularity) {
+        try {
+            return ResponseEntity.ok(analyticsService.getTimeseries(type, quizId, from, to, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Raw events of one type from the Mongo hot window, newest first
+    @GetMapping("/events")
+    public ResponseEntity<List<AnalyticsEvent>> getEvents(
+            @RequestParam String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(analyticsService.getEvents(type, from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/events/stats")
+    public ResponseEntity<Map<String, Object>> getEventStorageStats() {
+        return ResponseEntity.ok(analyticsService.getEventStorageStats());
+    }
+
+    @GetMapping("/quizzes/{quizId}/events")
+    public ResponseEntity<List<AnalyticsEvent>> getQuizEvents(
+            @PathVariable Long quizId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(analyticsService.getQuizEvents(quizId, from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/quizzes/{quizId}/items")
+    public ResponseEntity<Map<String, Object>> getItemAnalysis(@PathVariable Long quizId) {
+        return ResponseEntity.ok(analyticsService.getItemAnalysis(quizId));
+    }
+
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatency() {
+        return ResponseEntity.ok(analyticsService.getLatency());
+    }
+
+    @GetMapping("/latency/quizzes/{quizId}")
+    public ResponseEntity<Map<String, Object>> getQuizLatency(@PathVariable Long quizId) {
+        return ResponseEntity.ok(analyticsService.getQuizLatency(quizId));
+    }
+
+    @GetMapping("/sketches/active-users")
+    public ResponseEntity<Map<String, Object>> getDistinctActiveUsers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(analyticsService.getDistinctActiveUsers(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/sketches/quizzes/{quizId}/distinct-users")
+    public ResponseEntity<Map<String, Object>> getDistinctQuizUsers(@PathVariable Long quizId) {
+        return ResponseEntity.ok(analyticsService.getDistinctQuizUsers(quizId));
+    }
+
+    @GetMapping("/sketches/top-quizzes")
+    public ResponseEntity<Map<String, Object>> getTopQuizzes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int k) {
+        try {
+            return ResponseEntity.ok(analyticsService.getTopQuizzes(from, to, Math.max(1, Math.min(k, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/sketches/failing-questions")
+    public ResponseEntity<Map<String, Object>> getTopFailedQuestions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int k) {
+        try {
+            return ResponseEntity.ok(analyticsService.getTopFailedQuestions(from, to, Math.max(1, Math.min(k, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/sketches/stats")
+    public ResponseEntity<Map<String, Object>> getSketchStats() {
+        return ResponseEntity.ok(analyticsService.getSketchStats());
+    }
+
+    // Ad-hoc count over the columnar archive (events older than the Mongo hot window live only there)
+    @GetMapping("/archive/scan")
+    public ResponseEntity<Map<String, Object>> scanArchive(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) Long quizId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long submissionId,
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            ScanQuery query = new ScanQuery();
+            query.setFrom(from);
+            query.setTo(to);
+            query.setEventType(eventType);
+            query.addEquals("quizId", quizId);
+            query.addEquals("userId", userId);
+            query.addEquals("submissionId", submissionId);
+            query.setGroupBy(groupBy != null ? groupBy : List.of());
+            query.setLimit(Math.max(1, Math.min(limit, 10_000)));
+            return ResponseEntity.ok(analyticsService.scanArchive(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/archive/stats")
+    public ResponseEntity<Map<String, Object>> getArchiveStats() {
+        return ResponseEntity.ok(analyticsService.getArchiveStats());
+    }
+
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        return ResponseEntity.ok(ingestMetrics.snapshot());
+    }
+
+    @GetMapping("/snapshot/stats")
+    public ResponseEntity<Map<String, Object>> getSnapshotStats() {
+        return ResponseEntity.ok(snapshotter.stats());
+    }
+
+    // Recount the dashboard counters from raw events (recovery only; gateway restricts to ADMIN)
+    @PostMapping("/admin/rebuild-counters")
+    public ResponseEntity<Map<String, Long>> rebuildCounters() {
+        return ResponseEntity.ok(analyticsService.rebuildCounters());
+    }
+
+    // The drainer writes the snapshot between batches, within a second
+    @PostMapping("/admin/snapshot")
+    public ResponseEntity<Void> requestSnapshot() {
+        snapshotter.request();
+        return ResponseEntity.accepted().build();
+    }
+
+    // Recomputes the given aggregates (all by default) from the full history in the background
+    @PostMapping("/admin/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill(@RequestParam(required = false) List<String> aggregates) {
+        try {
+            Set<String> requested = aggregates != null ? new LinkedHashSet<>(aggregates) : Set.of();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(backfillJob.start(requested));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(backfillJob.status());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/admin/backfill")
+    public ResponseEntity<Map<String, Object>> getBackfillStatus() {
+        return ResponseEntity.ok(backfillJob.status());
+    }
+
+    @DeleteMapping("/admin/backfill")
+    public ResponseEntity<Void> cancelBackfill() {
+        backfillJob.cancel();
+        return ResponseEntity.accepted().build();
+    }
+}
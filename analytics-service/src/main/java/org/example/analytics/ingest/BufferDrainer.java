@@ -0,0 +1,315 @@
+package org.example.analytics.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.analytics.aggregate.CounterCheckpointer;
+import org.example.analytics.aggregate.EventCounters;
+import org.example.analytics.aggregate.ItemAnalysis;
+import org.example.analytics.aggregate.LifecycleLatency;
+import org.example.analytics.aggregate.RollupAggregator;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.sketch.SketchStore;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.example.analytics.snapshot.StateSnapshotter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Moves events from the local ingest buffer into Mongo and the in-memory aggregates.
+ *
+ * A single thread reads a batch after the drain cursor, bulk-inserts it and only then advances
+ * the cursor, so a crash or a Mongo outage replays the batch; event ids make the replay
+ * idempotent and only newly inserted events reach the aggregates. While Mongo fails the same
+ * batch is retried with backoff. When the buffer holds more than max-pending-bytes the Kafka
+ * listener is paused, and resumed once the drainer gets below resume-pending-bytes.
+ *
+ * State snapshots are taken on this thread between batches. On startup, the records drained
+ * after the snapshot position (already in Mongo, but not in the restored state) are replayed
+ * into the aggregates before anything else. The counters are replayed from the position they
+ * were restored at (snapshot or counter checkpoint), so CounterCheckpointer has to be initialized
+ * first, and rollups from their last flush position.
+ */
+@Component
+@DependsOn("counterCheckpointer")
+public class BufferDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(BufferDrainer.class);
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Autowired
+    private EventBatchWriter eventWriter;
+
+    @Autowired
+    private EventCounters counters;
+
+    @Autowired
+    private CounterCheckpointer counterCheckpointer;
+
+    @Autowired
+    private RollupAggregator rollups;
+
+    @Autowired
+    private SketchStore sketches;
+
+    @Autowired
+    private ItemAnalysis itemAnalysis;
+
+    @Autowired
+    private LifecycleLatency lifecycleLatency;
+
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    @Autowired
+    private StateSnapshotter snapshotter;
+
+    @Value("${analytics.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${analytics.ingest.buffer.max-pending-bytes:1073741824}")
+    private long maxPendingBytes;
+
+    @Value("${analytics.ingest.buffer.resume-pending-bytes:268435456}")
+    private long resumePendingBytes;
+
+    private volatile boolean running = true;
+    private Thread thread;
+    // Held while a batch is applied; quiesced() takes it to hold the drainer between batches
+    private final ReentrantLock applyLock = new ReentrantLock();
+
+    @PostConstruct
+    public void replay() {
+        long start = System.nanoTime();
+        long replayed = 0;
+        long until = buffer.drainPosition();
+        long countersFrom = counterCheckpointer.restoredPosition();
+        if (snapshotFile.isLoaded()) {
+            // Counters restored from the same snapshot are replayed in the same pass
+            boolean withCounters = countersFrom == snapshotFile.position();
+            replayed = replay(snapshotFile.position(), until, events -> {
+                if (withCounters) {
+                    count(events);
+                }
+                sketches.record(events);
+                itemAnalysis.record(events);
+                lifecycleLatency.record(events);
+                snapshotter.track(events);
+            });
+            snapshotFile.release();
+            if (withCounters) {
+                countersFrom = until;
+            }
+        }
+        if (countersFrom < until) {
+            // All ranges end at until, so the longest one is every record replayed
+            replayed = Math.max(replayed, replay(countersFrom, until, this::count));
+        }
+        replayed = Math.max(replayed, replayRollups(until));
+        snapshotter.recordStartup(replayed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Applies the already drained records in [from, until); returns how many were applied
+    private long replay(long from, long until, Consumer<List<AnalyticsEvent>> apply) {
+        long replayed = 0;
+        long position = from;
+        // A record appended twice (Kafka redelivery) was only aggregated once
+        Set<String> seen = new HashSet<>();
+        while (position < until) {
+            WriteAheadLog.Batch batch = buffer.read(position, until, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<AnalyticsEvent> events = decode(batch);
+            events.removeIf(event -> !seen.add(event.getId()));
+            apply.accept(events);
+            replayed += events.size();
+            position = batch.end();
+        }
+        return replayed;
+    }
+
+    // The flush in flight at shutdown is redone with its own position, which skips the cells it
+    // already applied; the records after it become pending deltas
+    private long replayRollups(long until) {
+        long from = rollups.flushedPosition();
+        if (from < 0 || from >= until) {
+            return 0;
+        }
+        if (!buffer.covers(from)) {
+            logger.warn("Ingest buffer no longer holds the records after the last rollup flush, not replaying them");
+            return 0;
+        }
+        long replayed = 0;
+        long inflight = rollups.inflightPosition();
+        if (inflight > from) {
+            long end = Math.min(inflight, until);
+            replayed += replay(from, end, events -> rollups.record(events, inflight));
+            rollups.flush();
+            from = end;
+        }
+        return replayed + replay(from, until, events -> rollups.record(events, until));
+    }
+
+    private void count(List<AnalyticsEvent> events) {
+        for (AnalyticsEvent event : events) {
+            counters.increment(event.getEventType());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread = new Thread(this::drainLoop, "ingest-drainer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // A final snapshot on shutdown makes the next start replay nothing
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(10_000);
+        }
+        snapshotter.request();
+        snapshotter.maybeSnapshot();
+    }
+
+    public byte[] encode(AnalyticsEvent event) throws IOException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    // Runs the action while no batch is being applied, e.g. to swap recomputed aggregates in
+    public void quiesced(Runnable action) {
+        applyLock.lock();
+        try {
+            action.run();
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    // Waits until everything appended so far has been drained into Mongo
+    public void awaitDrained(long timeoutMillis) throws InterruptedException {
+        long target = buffer.appendPosition();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (buffer.drainPosition() < target) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Ingest buffer did not drain within " + timeoutMillis + " ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    // Called by the listener after each append
+    public void checkBackpressure() {
+        MessageListenerContainer container = registry.getListenerContainer(IngestMetrics.LISTENER_ID);
+        if (container != null && !container.isPauseRequested() && buffer.pendingBytes() > maxPendingBytes) {
+            logger.warn("Ingest buffer holds {} bytes, pausing Kafka consumption", buffer.pendingBytes());
+            container.pause();
+            ingestMetrics.recordBackpressure(true);
+        }
+    }
+
+    private void drainLoop() {
+        long backoff = 0;
+        while (running) {
+            try {
+                if (!buffer.awaitRecords(1000)) {
+                    quiesced(snapshotter::maybeSnapshot);
+                    continue;
+                }
+                applyLock.lockInterruptibly();
+                try {
+                    backoff = applyBatch() ? 0 : (backoff == 0 ? 500 : Math.min(backoff * 2, 30_000));
+                } finally {
+                    applyLock.unlock();
+                }
+                if (backoff > 0) {
+                    Thread.sleep(backoff);
+                    continue;
+                }
+                resumeIfDrained();
+                quiesced(snapshotter::maybeSnapshot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Ingest drainer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // False when Mongo rejected the batch; it stays in the buffer and is retried
+    private boolean applyBatch() {
+        WriteAheadLog.Batch batch = buffer.read(batchSize);
+        List<AnalyticsEvent> events = decode(batch);
+        long start = System.nanoTime();
+        List<AnalyticsEvent> inserted;
+        try {
+            inserted = eventWriter.insertAll(events);
+        } catch (RuntimeException e) {
+            ingestMetrics.recordDrainFailure();
+            logger.warn("Draining ingest buffer failed, retrying with backoff: {}", e.getMessage());
+            return false;
+        }
+
+        count(inserted);
+        rollups.record(inserted, batch.end());
+        sketches.record(inserted);
+        itemAnalysis.record(inserted);
+        lifecycleLatency.record(inserted);
+        buffer.commit(batch);
+        snapshotter.track(events);
+        ingestMetrics.recordDrain(batch.records().size(), inserted.size(), System.nanoTime() - start);
+        return true;
+    }
+
+    private List<AnalyticsEvent> decode(WriteAheadLog.Batch batch) {
+        List<AnalyticsEvent> events = new ArrayList<>(batch.records().size());
+        for (byte[] record : batch.records()) {
+            try {
+                events.add(objectMapper.readValue(record, AnalyticsEvent.class));
+            } catch (IOException e) {
+                logger.error("Skipped unreadable buffered event: {}", e.getMessage());
+            }
+        }
+        return events;
+    }
+
+    private void resumeIfDrained() {
+        MessageListenerContainer container = registry.getListenerContainer(IngestMetrics.LISTENER_ID);
+        if (container != null && container.isPauseRequested() && buffer.pendingBytes() < resumePendingBytes) {
+            logger.info("Ingest buffer down to {} bytes, resuming Kafka consumption", buffer.pendingBytes());
+            container.resume();
+            ingestMetrics.recordBackpressure(false);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.analytics.ingest;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.example.analytics.model.AnalyticsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Unordered bulk insert of a batch of events.
+ *
+ * Event ids are derived from the Kafka position, so a batch redelivered after a failed offset
+ * commit re-inserts nothing: duplicate-key errors are expected and the rest of the batch is
+ * applied. Other per-document errors are logged and the document dropped; anything else
+ * (connection, write concern) propagates so the batch is retried and offsets stay put.
+ */
+@Component
+public class EventBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(EventBatchWriter.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Returns the events that were newly written
+    public List<AnalyticsEvent> insertAll(List<AnalyticsEvent> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnalyticsEvent.class)
+                    .insert(events)
+                    .execute();
+            return events;
+        } catch (BulkOperationException e) {
+            BitSet failed = new BitSet(events.size());
+            for (BulkWriteError error : e.getErrors()) {
+                failed.set(error.getIndex());
+                if (error.getCode() != DUPLICATE_KEY) {
+                    logger.error("Dropped analytics event {}: {}", events.get(error.getIndex()).getId(), error.getMessage());
+                }
+            }
+            List<AnalyticsEvent> inserted = new ArrayList<>(events.size() - failed.cardinality());
+            for (int i = 0; i < events.size(); i++) {
+                if (!failed.get(i)) {
+                    inserted.add(events.get(i));
+                }
+            }
+            return inserted;
+        }
+    }
+}
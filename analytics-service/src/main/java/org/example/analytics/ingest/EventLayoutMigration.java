@@ -0,0 +1,99 @@
+package org.example.analytics.ingest;
+
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.example.analytics.model.AnalyticsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites events stored before the typed model ({eventType, timestamp, data: {...}}) into the
+ * compact typed layout, once, before anything reads the events collection (EventArchiver
+ * depends on this bean). Documents already in the new layout have a "ts" field and are skipped,
+ * so an interrupted migration just continues on the next start.
+ */
+@Component
+public class EventLayoutMigration {
+    private static final Logger logger = LoggerFactory.getLogger(EventLayoutMigration.class);
+    private static final int BATCH = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private long migrated;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void migrate() {
+        String collection = mongoTemplate.getCollectionName(AnalyticsEvent.class);
+        Query legacy = Query.query(Criteria.where("ts").exists(false)).cursorBatchSize(BATCH);
+        List<AnalyticsEvent> batch = new ArrayList<>(BATCH);
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, collection)) {
+            documents.forEach(document -> {
+                Object data = document.get("data");
+                AnalyticsEvent event = AnalyticsEvent.of(document.getString("eventType"),
+                        data instanceof Map ? (Map<String, Object>) data : null);
+                event.setId(document.get("_id").toString());
+                if (document.getDate("timestamp") != null) {
+                    event.setTimestamp(toLocalDateTime(document.getDate("timestamp")));
+                }
+                event.setOccurredAt(toLocalDateTime(document.getDate("occurredAt")));
+                batch.add(event);
+                if (batch.size() == BATCH) {
+                    replace(batch);
+                }
+            });
+        }
+        replace(batch);
+        if (migrated > 0) {
+            logger.info("Migrated {} analytics events to the compact typed layout", migrated);
+        }
+    }
+
+    // Document count, average size and index sizes of the events collection
+    public Map<String, Object> stats() {
+        Document collStats = mongoTemplate.executeCommand(
+                new Document("collStats", mongoTemplate.getCollectionName(AnalyticsEvent.class)));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documents", collStats.get("count"));
+        stats.put("averageDocumentBytes", collStats.get("avgObjSize"));
+        stats.put("dataBytes", collStats.get("size"));
+        stats.put("storageBytes", collStats.get("storageSize"));
+        stats.put("indexBytes", collStats.get("totalIndexSize"));
+        stats.put("indexes", collStats.get("indexSizes"));
+        stats.put("migratedOnStartup", migrated);
+        return stats;
+    }
+
+    private void replace(List<AnalyticsEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnalyticsEvent.class);
+        for (AnalyticsEvent event : batch) {
+            operations.replaceOne(Query.query(Criteria.where("_id").is(event.getId())), event);
+        }
+        operations.execute();
+        migrated += batch.size();
+        batch.clear();
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+}
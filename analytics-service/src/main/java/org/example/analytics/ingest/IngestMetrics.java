@@ -0,0 +1,153 @@
+package org.example.analytics.ingest;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch sizes, buffer append and drain times, drain rate, buffer depth and consumer lag for
+ * the analytics ingest path.
+ */
+@Component
+public class IngestMetrics {
+    public static final String LISTENER_ID = "analytics-events";
+
+    // Batch size histogram buckets: <=1, <=10, <=100, <=1000, larger
+    private static final int[] SIZE_BOUNDS = {1, 10, 100, 1000};
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder appendNanos = new LongAdder();
+    private final LongAdder drainBatches = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder drainNanos = new LongAdder();
+    private final LongAdder drainFailures = new LongAdder();
+    private volatile boolean paused;
+    // Drained records per second over the last RATE_SECONDS, one slot per epoch second
+    private static final int RATE_SECONDS = 10;
+    private final AtomicLongArray rateSeconds = new AtomicLongArray(RATE_SECONDS);
+    private final AtomicLongArray rateCounts = new AtomicLongArray(RATE_SECONDS);
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLongArray sizeBuckets = new AtomicLongArray(SIZE_BOUNDS.length + 1);
+
+    public void recordBatch(int size, long nanos) {
+        batches.increment();
+        records.add(size);
+        appendNanos.add(nanos);
+        lastBatchSize.set(size);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+        int bucket = 0;
+        while (bucket < SIZE_BOUNDS.length && size > SIZE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        sizeBuckets.incrementAndGet(bucket);
+    }
+
+    public void recordDrain(int size, int insertedCount, long nanos) {
+        drainBatches.increment();
+        drained.add(size);
+        inserted.add(insertedCount);
+        drainNanos.add(nanos);
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % RATE_SECONDS);
+        if (rateSeconds.getAndSet(slot, second) != second) {
+            rateCounts.set(slot, 0);
+        }
+        rateCounts.addAndGet(slot, size);
+    }
+
+    public void recordDrainFailure() {
+        drainFailures.increment();
+    }
+
+    public void recordBackpressure(boolean paused) {
+        this.paused = paused;
+    }
+
+    public Map<String, Object> snapshot() {
+        long batchCount = batches.sum();
+        long recordCount = records.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batchCount);
+        stats.put("records", recordCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0 : (double) recordCount / batchCount);
+        stats.put("lastBatchSize", lastBatchSize.get());
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("averageAppendMillis", batchCount == 0 ? 0 : appendNanos.sum() / 1_000_000.0 / batchCount);
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < SIZE_BOUNDS.length; i++) {
+            histogram.put("<=" + SIZE_BOUNDS[i], sizeBuckets.get(i));
+        }
+        histogram.put(">" + SIZE_BOUNDS[SIZE_BOUNDS.length - 1], sizeBuckets.get(SIZE_BOUNDS.length));
+        stats.put("batchSizeHistogram", histogram);
+        stats.put("consumerLag", consumerLag());
+
+        long drainBatchCount = drainBatches.sum();
+        Map<String, Object> drain = new LinkedHashMap<>();
+        drain.put("batches", drainBatchCount);
+        drain.put("records", drained.sum());
+        drain.put("inserted", inserted.sum());
+        drain.put("duplicatesOrDropped", drained.sum() - inserted.sum());
+        drain.put("averageWriteMillis", drainBatchCount == 0 ? 0 : drainNanos.sum() / 1_000_000.0 / drainBatchCount);
+        drain.put("recordsPerSecond", drainRate());
+        drain.put("failures", drainFailures.sum());
+        stats.put("drain", drain);
+
+        Map<String, Object> bufferStats = buffer.stats();
+        bufferStats.put("consumerPaused", paused);
+        stats.put("buffer", bufferStats);
+        return stats;
+    }
+
+    // Average over the completed seconds of the rate window
+    private double drainRate() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < RATE_SECONDS; i++) {
+            long second = rateSeconds.get(i);
+            if (second < now && second >= now - RATE_SECONDS + 1) {
+                total += rateCounts.get(i);
+            }
+        }
+        return (double) total / (RATE_SECONDS - 1);
+    }
+
+    // Max records-lag reported by the consumer clients of the listener container
+    private double consumerLag() {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container == null) {
+            return 0;
+        }
+        double lag = 0;
+        for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : clientMetrics.entrySet()) {
+                MetricName name = entry.getKey();
+                if ("records-lag-max".equals(name.name()) && !name.tags().containsKey("partition")) {
+                    Object value = entry.getValue().metricValue();
+                    if (value instanceof Double d && !d.isNaN()) {
+                        lag = Math.max(lag, d);
+                    }
+                }
+            }
+        }
+        return lag;
+    }
+}
@@ -0,0 +1,367 @@
+package org.example.analytics.ingest;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local log of ingested events, in fixed-size memory-mapped segment files under
+ * ${analytics.data-dir}/ingest-buffer.
+ *
+ * Records are [length][crc32][payload]. A position is segment * segmentBytes + offset, so the
+ * drain cursor is a single long persisted in a small file. Segments behind both the cursor and
+ * every retained position (the latest state snapshot, the counter checkpoint) are deleted. On startup the log is scanned
+ * from the cursor; the first torn or zero record marks
+ * the end of the last segment, and the rest of that segment is zeroed before appending again.
+ * One writer (the Kafka listener) and one reader (the drainer) are expected.
+ */
+@Component
+public class WriteAheadLog {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final int HEADER = 8;
+    private static final String SUFFIX = ".wal";
+
+    @Value("${analytics.data-dir:/data/analytics}")
+    private String dataDir;
+
+    @Value("${analytics.ingest.buffer.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    // false leaves flushing to the OS: survives a process crash, not a machine crash
+    @Value("${analytics.ingest.buffer.fsync:true}")
+    private boolean fsync;
+
+    public record Batch(List<byte[]> records, long end) {
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    private Path directory;
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment = -1;
+    private volatile long writeEnd;
+
+    private MappedByteBuffer readBuffer;
+    private long readSegment = -1;
+    private volatile long readPosition;
+    private volatile long pendingRecords;
+    // holder -> first position it may still replay from
+    private final Map<String, Long> retained = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Path.of(dataDir, "ingest-buffer");
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+
+        Path cursor = directory.resolve("cursor");
+        readPosition = Files.exists(cursor)
+                ? Long.parseLong(Files.readString(cursor, StandardCharsets.UTF_8).trim())
+                : (segments.isEmpty() ? 0 : segments.first() * segmentBytes);
+        // Older segments are kept until the snapshot position is known
+        if (segments.isEmpty() || segments.last() < readPosition / segmentBytes) {
+            segments.add(readPosition / segmentBytes);
+        }
+
+        // Find the end of the log and count what is still to be drained
+        long records = 0;
+        long position = readPosition;
+        for (long segment : segments.tailSet(readPosition / segmentBytes)) {
+            MappedByteBuffer buffer = map(segment, FileChannel.MapMode.READ_WRITE);
+            int offset = segment == position / segmentBytes ? (int) (position % segmentBytes) : 0;
+            byte[] record;
+            while ((record = readRecord(buffer, offset)) != null) {
+                offset += HEADER + record.length;
+                records++;
+            }
+            position = segment * segmentBytes + offset;
+            if (segment == segments.last()) {
+                for (int i = offset; i < segmentBytes; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                writeBuffer = buffer;
+                writeSegment = segment;
+            }
+        }
+        writeEnd = position;
+        pendingRecords = records;
+        if (records > 0) {
+            logger.info("Ingest buffer recovered {} undrained events in {} segment(s)", records, segments.size());
+        }
+    }
+
+    // Appends and (with fsync) forces the records to disk before returning
+    public void append(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            int offset = (int) (writeEnd - writeSegment * segmentBytes);
+            int flushedFrom = offset;
+            CRC32 crc = new CRC32();
+            for (byte[] record : records) {
+                if (record.length + HEADER > segmentBytes) {
+                    logger.error("Dropped {}-byte event larger than an ingest buffer segment", record.length);
+                    continue;
+                }
+                if (offset + HEADER + record.length > segmentBytes) {
+                    force(flushedFrom, offset);
+                    roll();
+                    offset = 0;
+                    flushedFrom = 0;
+                }
+                crc.reset();
+                crc.update(record);
+                writeBuffer.put(offset + HEADER, record);
+                writeBuffer.putInt(offset + 4, (int) crc.getValue());
+                // Length last: a reader never sees a header whose payload is not written yet
+                writeBuffer.putInt(offset, record.length);
+                offset += HEADER + record.length;
+                pendingRecords++;
+            }
+            force(flushedFrom, offset);
+            writeEnd = writeSegment * segmentBytes + offset;
+            appended.signalAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not extend ingest buffer", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Next records after the drain cursor; nothing is consumed until commit(batch)
+    public Batch read(int maxRecords) {
+        return read(readPosition, writeEnd, maxRecords);
+    }
+
+    // Already drained records in [from, until), for replay on top of a snapshot
+    public Batch read(long from, long until, int maxRecords) {
+        List<byte[]> records = new ArrayList<>();
+        long position = from;
+        long end = Math.min(until, writeEnd);
+        while (records.size() < maxRecords && position < end) {
+            long segment = position / segmentBytes;
+            int offset = (int) (position % segmentBytes);
+            MappedByteBuffer buffer = readBuffer(segment);
+            byte[] record = readRecord(buffer, offset);
+            if (record == null) {
+                // End of a full segment: continue in the next one
+                position = (segment + 1) * segmentBytes;
+                continue;
+            }
+            records.add(record);
+            position += HEADER + record.length;
+        }
+        return new Batch(records, position);
+    }
+
+    // Passes every record in [from, until) to action; unlike read() safe beside the drainer
+    public void forEach(long from, long until, Consumer<byte[]> action) {
+        long position = from;
+        long end = Math.min(until, writeEnd);
+        MappedByteBuffer buffer = null;
+        long mapped = -1;
+        while (position < end) {
+            long segment = position / segmentBytes;
+            if (segment != mapped) {
+                try {
+                    buffer = map(segment, FileChannel.MapMode.READ_ONLY);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not map ingest buffer segment " + segment, e);
+                }
+                mapped = segment;
+            }
+            byte[] record = readRecord(buffer, (int) (position % segmentBytes));
+            if (record == null) {
+                position = (segment + 1) * segmentBytes;
+                continue;
+            }
+            action.accept(record);
+            position += HEADER + record.length;
+        }
+    }
+
+    public void commit(Batch batch) {
+        readPosition = batch.end();
+        lock.lock();
+        try {
+            pendingRecords -= batch.records().size();
+        } finally {
+            lock.unlock();
+        }
+        Path cursor = directory.resolve("cursor");
+        Path temp = directory.resolve("cursor.tmp");
+        try {
+            Files.writeString(temp, Long.toString(batch.end()), StandardCharsets.UTF_8);
+            Files.move(temp, cursor, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Only costs a re-drain of already inserted (duplicate) events after a restart
+            logger.warn("Could not persist ingest buffer cursor: {}", e.getMessage());
+        }
+        deleteSegmentsBefore(Math.min(batch.end(), retainFrom()) / segmentBytes);
+    }
+
+    // Keeps segments from position on for the holder, so records after its state can be replayed.
+    // Nothing is deleted here: during startup not every holder has registered yet
+    public void retain(String holder, long position) {
+        retained.put(holder, position);
+    }
+
+    private long retainFrom() {
+        long from = Long.MAX_VALUE;
+        for (long position : retained.values()) {
+            from = Math.min(from, position);
+        }
+        return from;
+    }
+
+    public boolean covers(long position) {
+        lock.lock();
+        try {
+            return !segments.isEmpty() && position >= segments.first() * segmentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long drainPosition() {
+        return readPosition;
+    }
+
+    public long appendPosition() {
+        return writeEnd;
+    }
+
+    public boolean awaitRecords(long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (writeEnd == readPosition) {
+                appended.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return writeEnd != readPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pendingBytes() {
+        return writeEnd - readPosition;
+    }
+
+    public Map<String, Object> stats() {
+        int segmentCount;
+        lock.lock();
+        try {
+            segmentCount = segments.size();
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingRecords", pendingRecords);
+        stats.put("pendingBytes", pendingBytes());
+        stats.put("segments", segmentCount);
+        stats.put("diskBytes", (long) segmentCount * segmentBytes);
+        stats.put("fsync", fsync);
+        return stats;
+    }
+
+    private void roll() throws IOException {
+        writeSegment++;
+        writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+        segments.add(writeSegment);
+    }
+
+    private void force(int from, int to) {
+        if (fsync && to > from) {
+            writeBuffer.force(from, to - from);
+        }
+    }
+
+    private MappedByteBuffer readBuffer(long segment) {
+        if (segment != readSegment) {
+            try {
+                readBuffer = map(segment, FileChannel.MapMode.READ_ONLY);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map ingest buffer segment " + segment, e);
+            }
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    // Payload of a complete, checksummed record at offset, or null
+    private byte[] readRecord(MappedByteBuffer buffer, int offset) {
+        if (offset + HEADER > segmentBytes) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER + length > segmentBytes) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    private MappedByteBuffer map(long segment, FileChannel.MapMode mode) throws IOException {
+        Path file = directory.resolve(String.format("%016d%s", segment, SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw")) {
+            if (mode != FileChannel.MapMode.READ_ONLY && raf.length() < segmentBytes) {
+                raf.setLength(segmentBytes);
+            }
+            return raf.getChannel().map(mode, 0, segmentBytes);
+        }
+    }
+
+    // Mappings are released by the GC; deleting the file while mapped is fine on Linux
+    private void deleteSegmentsBefore(long segment) {
+        lock.lock();
+        try {
+            while (!segments.isEmpty() && segments.first() < segment && segments.first() != writeSegment) {
+                long old = segments.pollFirst();
+                Files.deleteIfExists(directory.resolve(String.format("%016d%s", old, SUFFIX)));
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete drained ingest buffer segment: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,30 +1,69 @@
 package org.example.analytics.listener;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.analytics.ingest.BufferDrainer;
+import org.example.analytics.ingest.IngestMetrics;
+import org.example.analytics.ingest.WriteAheadLog;
 import org.example.analytics.model.AnalyticsEvent;
-import org.example.analytics.repository.AnalyticsEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Component
 public class EventStreamListener {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamListener.class);
 
     @Autowired
-    private AnalyticsEventRepository eventRepository;
+    private WriteAheadLog buffer;
 
-    @KafkaListener(topics = {"user-events", "quiz-events", "submission-events"}, groupId = "analytics-group")
-    public void consumeEvent(Map<String, Object> eventData) {
-        String eventType = (String) eventData.get("eventType");
+    @Autowired
+    private BufferDrainer drainer;
+
+    @Autowired
+    private IngestMetrics ingestMetrics;
 
-        AnalyticsEvent event = new AnalyticsEvent();
-        event.setEventType(eventType);
-        event.setData(eventData);
+    // Batch listener: offsets of a poll are committed after this method returns, i.e. once the
+    // records are durable in the local ingest buffer; BufferDrainer loads them into Mongo
+    @KafkaListener(id = IngestMetrics.LISTENER_ID, topics = {"user-events", "quiz-events", "submission-events"}, groupId = "analytics-group")
+    @SuppressWarnings("unchecked")
+    public void consumeEvents(List<ConsumerRecord<String, Object>> records) {
+        long start = System.nanoTime();
+        List<byte[]> encoded = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, Object> record : records) {
+            if (!(record.value() instanceof Map)) {
+                if (record.value() == null) {
+                    logger.warn("Skipped undeserializable record {}-{}-{}", record.topic(), record.partition(), record.offset());
+                }
+                continue;
+            }
+            Map<String, Object> eventData = (Map<String, Object>) record.value();
 
-        eventRepository.save(event);
+            AnalyticsEvent event = AnalyticsEvent.of((String) eventData.get("eventType"), eventData);
+            // Kafka position as id makes redelivered batches idempotent
+            event.setId(record.topic() + "-" + record.partition() + "-" + record.offset());
+            if (record.timestamp() >= 0) {
+                event.setOccurredAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()));
+            }
+            try {
+                encoded.add(drainer.encode(event));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-        System.out.println("Stored analytics event: " + eventType);
+        buffer.append(encoded);
+        ingestMetrics.recordBatch(records.size(), System.nanoTime() - start);
+        drainer.checkBackpressure();
     }
 }
-
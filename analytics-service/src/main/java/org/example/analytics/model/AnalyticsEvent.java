@@ -1,27 +1,129 @@
 package org.example.analytics.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonTypeIdResolver;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Raw analytics event. The event type prefix selects the subclass (UserEvent, QuizEvent,
+ * SubmissionEvent); other types stay plain AnalyticsEvents. In Mongo the short _class alias is
+ * the discriminator and fields use short names; JSON (buffer records, API responses) keeps the
+ * Java names, with eventType selecting the subclass.
+ */
 @Document(collection = "events")
+@TypeAlias("event")
+@CompoundIndexes({
+        @CompoundIndex(name = "type_ts", def = "{'t': 1, 'ts': 1}"),
+        @CompoundIndex(name = "quiz_ts", def = "{'q': 1, 'ts': 1}", partialFilter = "{'q': {'$exists': true}}")
+})
+@JsonTypeInfo(use = JsonTypeInfo.Id.CUSTOM, include = JsonTypeInfo.As.EXISTING_PROPERTY, property = "eventType",
+        visible = true, defaultImpl = AnalyticsEvent.class)
+@JsonTypeIdResolver(EventTypeIdResolver.class)
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class AnalyticsEvent {
 
     @Id
     private String id;
 
+    @Field("t")
     private String eventType;
 
+    // TTL-indexed by EventArchiver: Mongo keeps only the hot window
+    @Field("ts")
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    private Map<String, Object> data;
-}
+    // Producer-side Kafka record timestamp; timestamp above is ingest time
+    @Field("oa")
+    private LocalDateTime occurredAt;
+
+    public static Class<? extends AnalyticsEvent> typeOf(String eventType) {
+        if (eventType == null) {
+            return AnalyticsEvent.class;
+        }
+        if (eventType.startsWith("USER_")) {
+            return UserEvent.class;
+        }
+        if (eventType.startsWith("QUIZ_")) {
+            return QuizEvent.class;
+        }
+        if (eventType.startsWith("SUBMISSION_")) {
+            return SubmissionEvent.class;
+        }
+        return AnalyticsEvent.class;
+    }
+
+    // Builds the typed event from a producer's flat payload; unknown keys are dropped
+    public static AnalyticsEvent of(String eventType, Map<String, Object> payload) {
+        AnalyticsEvent event;
+        Class<? extends AnalyticsEvent> type = typeOf(eventType);
+        if (type == UserEvent.class) {
+            event = new UserEvent();
+        } else if (type == QuizEvent.class) {
+            event = new QuizEvent();
+        } else if (type == SubmissionEvent.class) {
+            event = new SubmissionEvent();
+        } else {
+            event = new AnalyticsEvent();
+        }
+        event.setEventType(eventType);
+        if (payload != null) {
+            event.readPayload(payload);
+        }
+        return event;
+    }
+
+    public Long userId() {
+        return null;
+    }
+
+    public Long quizId() {
+        return null;
+    }
+
+    // The typed fields as a flat map (the shape producers send and the archive stores)
+    public Map<String, Object> payload() {
+        return new HashMap<>();
+    }
 
+    protected void readPayload(Map<String, Object> payload) {
+    }
+
+    // Buffer records written before typed events carried the producer payload as "data"
+    @JsonSetter("data")
+    private void readLegacyData(Map<String, Object> data) {
+        if (data != null) {
+            readPayload(data);
+        }
+    }
+
+    protected static Long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    protected static Integer asInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    protected static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    protected static void putIfPresent(Map<String, Object> payload, String key, Object value) {
+        if (value != null) {
+            payload.put(key, value);
+        }
+    }
+}
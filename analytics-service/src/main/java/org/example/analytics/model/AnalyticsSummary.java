@@ -0,0 +1,31 @@
+package org.example.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Checkpoint of the in-memory event counters. Counts cover every event drained from the ingest
+ * buffer up to bufferPosition; checkpoints written before it was recorded only have checkpointAt.
+ */
+@Document(collection = "analytics_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsSummary {
+    public static final String COUNTERS_ID = "event-counters";
+
+    @Id
+    private String id;
+
+    private Map<String, Long> counts;
+
+    private LocalDateTime checkpointAt;
+
+    private Long bufferPosition;
+}
@@ -0,0 +1,38 @@
+package org.example.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated event count for one (granularity, bucket, eventType, quizId) cell.
+ * quizId is null for the all-quizzes rollup of an event type.
+ */
+@Document(collection = "event_rollups")
+@CompoundIndex(name = "rollup_series", def = "{'granularity': 1, 'eventType': 1, 'quizId': 1, 'bucket': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventRollup {
+
+    @Id
+    private String id;
+
+    private String granularity;
+
+    private LocalDateTime bucket;
+
+    private String eventType;
+
+    private Long quizId;
+
+    private long count;
+
+    // Ingest buffer position of the last live flush that changed this cell
+    private Long lastFlush;
+}
@@ -0,0 +1,33 @@
+package org.example.analytics.model;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
+
+/**
+ * Maps an eventType to its AnalyticsEvent subclass by prefix, the same way AnalyticsEvent.of()
+ * does, so new event types of a known family decode into the right class.
+ */
+public class EventTypeIdResolver extends TypeIdResolverBase {
+
+    @Override
+    public String idFromValue(Object value) {
+        return ((AnalyticsEvent) value).getEventType();
+    }
+
+    @Override
+    public String idFromValueAndType(Object value, Class<?> suggestedType) {
+        return value != null ? idFromValue(value) : null;
+    }
+
+    @Override
+    public JavaType typeFromId(DatabindContext context, String id) {
+        return context.constructType(AnalyticsEvent.typeOf(id));
+    }
+
+    @Override
+    public JsonTypeInfo.Id getMechanism() {
+        return JsonTypeInfo.Id.CUSTOM;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.analytics.aggregate.ItemStatistics;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Item statistics of one quiz, keyed by questionId.
+ */
+@Document(collection = "item_analysis")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemAnalysisDocument {
+
+    @Id
+    private Long quizId;
+
+    private Map<String, ItemStatistics> questions;
+
+    // Submissions already counted, so a regraded one is not counted again
+    private Set<Long> submissions;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,53 @@
+package org.example.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-question outcome carried by SUBMISSION_GRADED events.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionResult {
+
+    @Field("i")
+    private Long questionId;
+
+    @Field("a")
+    private boolean answered;
+
+    @Field("c")
+    private boolean correct;
+
+    @Field("p")
+    private Integer points;
+
+    // Chosen option in authored order, null when the answer is not one of the options
+    @Field("o")
+    private Integer optionIndex;
+
+    static QuestionResult fromPayload(Map<?, ?> payload) {
+        return new QuestionResult(
+                payload.get("questionId") instanceof Number n ? n.longValue() : null,
+                Boolean.TRUE.equals(payload.get("answered")),
+                Boolean.TRUE.equals(payload.get("correct")),
+                payload.get("points") instanceof Number n ? n.intValue() : null,
+                payload.get("optionIndex") instanceof Number n ? n.intValue() : null);
+    }
+
+    Map<String, Object> toPayload() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("questionId", questionId);
+        payload.put("answered", answered);
+        payload.put("correct", correct);
+        payload.put("points", points);
+        payload.put("optionIndex", optionIndex);
+        return payload;
+    }
+}
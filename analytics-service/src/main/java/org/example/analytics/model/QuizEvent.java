@@ -0,0 +1,58 @@
+package org.example.analytics.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Map;
+
+/**
+ * QUIZ_CREATED / QUIZ_UPDATED / QUIZ_DELETED.
+ */
+@Document(collection = "events")
+@TypeAlias("q")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class QuizEvent extends AnalyticsEvent {
+
+    @Field("q")
+    private Long quizId;
+
+    @Field("ti")
+    private String title;
+
+    @Field("cb")
+    private Long createdBy;
+
+    @Field("v")
+    private Long version;
+
+    @Override
+    public Long quizId() {
+        return quizId;
+    }
+
+    @Override
+    public Map<String, Object> payload() {
+        Map<String, Object> payload = super.payload();
+        putIfPresent(payload, "quizId", quizId);
+        putIfPresent(payload, "title", title);
+        putIfPresent(payload, "createdBy", createdBy);
+        putIfPresent(payload, "version", version);
+        return payload;
+    }
+
+    @Override
+    protected void readPayload(Map<String, Object> payload) {
+        quizId = asLong(payload.get("quizId"));
+        title = asString(payload.get("title"));
+        createdBy = asLong(payload.get("createdBy"));
+        version = asLong(payload.get("version"));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized sketch (HyperLogLog or Space-Saving). Daily sketches carry the day, per-quiz ones the quizId.
+ */
+@Document(collection = "analytics_sketches")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchDocument {
+
+    @Id
+    private String id;
+
+    private String kind;
+
+    @Indexed
+    private LocalDate day;
+
+    private Long quizId;
+
+    private byte[] data;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,89 @@
+package org.example.analytics.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SUBMISSION_STARTED / SUBMISSION_SUBMITTED / SUBMISSION_GRADED. Scores and question results
+ * are only set on SUBMISSION_GRADED.
+ */
+@Document(collection = "events")
+@TypeAlias("s")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class SubmissionEvent extends AnalyticsEvent {
+
+    @Field("s")
+    private Long submissionId;
+
+    @Field("q")
+    private Long quizId;
+
+    @Field("u")
+    private Long userId;
+
+    @Field("sc")
+    private Integer score;
+
+    @Field("ms")
+    private Integer maxScore;
+
+    @Field("qr")
+    private List<QuestionResult> questionResults;
+
+    @Override
+    public Long userId() {
+        return userId;
+    }
+
+    @Override
+    public Long quizId() {
+        return quizId;
+    }
+
+    @Override
+    public Map<String, Object> payload() {
+        Map<String, Object> payload = super.payload();
+        putIfPresent(payload, "submissionId", submissionId);
+        putIfPresent(payload, "quizId", quizId);
+        putIfPresent(payload, "userId", userId);
+        putIfPresent(payload, "score", score);
+        putIfPresent(payload, "maxScore", maxScore);
+        if (questionResults != null) {
+            List<Map<String, Object>> results = new ArrayList<>(questionResults.size());
+            for (QuestionResult result : questionResults) {
+                results.add(result.toPayload());
+            }
+            payload.put("questionResults", results);
+        }
+        return payload;
+    }
+
+    @Override
+    protected void readPayload(Map<String, Object> payload) {
+        submissionId = asLong(payload.get("submissionId"));
+        quizId = asLong(payload.get("quizId"));
+        userId = asLong(payload.get("userId"));
+        score = asInteger(payload.get("score"));
+        maxScore = asInteger(payload.get("maxScore"));
+        if (payload.get("questionResults") instanceof List<?> results) {
+            questionResults = new ArrayList<>(results.size());
+            for (Object result : results) {
+                if (result instanceof Map<?, ?> map) {
+                    questionResults.add(QuestionResult.fromPayload(map));
+                }
+            }
+        }
+    }
+}
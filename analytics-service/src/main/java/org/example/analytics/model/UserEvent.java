@@ -0,0 +1,53 @@
+package org.example.analytics.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Map;
+
+/**
+ * USER_REGISTERED / USER_LOGGED_IN. The producer's email is not kept.
+ */
+@Document(collection = "events")
+@TypeAlias("u")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class UserEvent extends AnalyticsEvent {
+
+    @Field("u")
+    private Long userId;
+
+    @Field("n")
+    private String username;
+
+    @Field("r")
+    private String role;
+
+    @Override
+    public Long userId() {
+        return userId;
+    }
+
+    @Override
+    public Map<String, Object> payload() {
+        Map<String, Object> payload = super.payload();
+        putIfPresent(payload, "userId", userId);
+        putIfPresent(payload, "username", username);
+        putIfPresent(payload, "role", role);
+        return payload;
+    }
+
+    @Override
+    protected void readPayload(Map<String, Object> payload) {
+        userId = asLong(payload.get("userId"));
+        username = asString(payload.get("username"));
+        role = asString(payload.get("role"));
+    }
+}
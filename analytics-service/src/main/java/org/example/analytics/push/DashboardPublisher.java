@@ -0,0 +1,187 @@
+package org.example.analytics.push;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.example.analytics.aggregate.EventCounters;
+import org.example.analytics.aggregate.LifecycleLatency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes dashboard changes to SSE subscribers at a fixed tick instead of having each viewer poll.
+ *
+ * Once per tick the dashboard state is read and diffed against the previous tick; only changed
+ * values (absolute, not increments) go into a "delta" event, serialized once and written to every
+ * subscriber. However many events arrive, each viewer gets at most one small message per tick.
+ * A subscriber whose previous write has not finished is skipped and gets a full "snapshot" on
+ * its next turn, so a slow connection never holds up the tick or the other viewers.
+ */
+@Component
+public class DashboardPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardPublisher.class);
+    private static final int HEARTBEAT_TICKS = 15;
+
+    @Autowired
+    private EventCounters counters;
+
+    @Autowired
+    private LifecycleLatency lifecycleLatency;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${analytics.push.max-subscribers:500}")
+    private int maxSubscribers;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean busy = new AtomicBoolean();
+        volatile boolean needsSnapshot = true;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Map<String, Object> previous = new LinkedHashMap<>();
+    private long sequence;
+    private int quietTicks;
+
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many dashboard subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedRateString = "${analytics.push.tick-ms:1000}")
+    public synchronized void tick() {
+        Map<String, Object> current = state();
+        Map<String, Object> changed = new LinkedHashMap<>();
+        current.forEach((key, value) -> {
+            if (!Objects.equals(previous.get(key), value)) {
+                changed.put(key, value);
+            }
+        });
+        previous = current;
+        if (!changed.isEmpty()) {
+            sequence++;
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String delta = changed.isEmpty() ? null : message(changed);
+        String snapshot = null;
+        boolean heartbeat = changed.isEmpty() && ++quietTicks >= HEARTBEAT_TICKS;
+        if (heartbeat || !changed.isEmpty()) {
+            quietTicks = 0;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.busy.compareAndSet(false, true)) {
+                subscriber.needsSnapshot = true;
+                continue;
+            }
+            SseEmitter.SseEventBuilder event;
+            if (subscriber.needsSnapshot) {
+                snapshot = snapshot != null ? snapshot : message(current);
+                event = SseEmitter.event().id(String.valueOf(sequence)).name("snapshot").data(snapshot, MediaType.APPLICATION_JSON);
+                subscriber.needsSnapshot = false;
+            } else if (delta != null) {
+                event = SseEmitter.event().id(String.valueOf(sequence)).name("delta").data(delta, MediaType.APPLICATION_JSON);
+            } else if (heartbeat) {
+                event = SseEmitter.event().comment("keep-alive");
+            } else {
+                subscriber.busy.set(false);
+                continue;
+            }
+            senders.execute(() -> send(subscriber, event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.busy.set(false);
+        }
+    }
+
+    // Flat key -> value view of everything the dashboard shows
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : counters.snapshot().entrySet()) {
+            state.put("eventCounts." + entry.getKey(), entry.getValue());
+            total += entry.getValue();
+        }
+        state.put("totalEvents", total);
+
+        Map<String, Object> latency = lifecycleLatency.overall();
+        for (String metric : List.of(LifecycleLatency.TIME_TO_SUBMIT, LifecycleLatency.SUBMIT_TO_GRADED)) {
+            Map<String, Object> lastMinute = ((Map<String, Map<String, Object>>) latency.get(metric)).get("1m");
+            for (String field : List.of("count", "p50", "p95", "p99")) {
+                state.put("latency." + metric + ".1m." + field, lastMinute.get(field));
+            }
+        }
+        return state;
+    }
+
+    private String message(Map<String, Object> values) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("seq", sequence);
+        message.put("values", values);
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize dashboard update: {}", e.getMessage());
+            return "{}";
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package org.example.analytics.repository;
 
 import org.example.analytics.model.AnalyticsEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+// Results are UserEvent/QuizEvent/SubmissionEvent instances per the stored discriminator
 @Repository
 public interface AnalyticsEventRepository extends MongoRepository<AnalyticsEvent, String> {
-    List<AnalyticsEvent> findByEventType(String eventType);
-    List<AnalyticsEvent> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
-}
+    // Served by the (t, ts) index
+    List<AnalyticsEvent> findByEventTypeAndTimestampBetweenOrderByTimestampDesc(String eventType, LocalDateTime from, LocalDateTime to, Pageable page);
 
+    // Served by the partial (q, ts) index; quizId only exists on quiz and submission events
+    @Query(value = "{ 'q': ?0, 'ts': { '$gte': ?1, '$lt': ?2 } }", sort = "{ 'ts': -1 }")
+    List<AnalyticsEvent> findByQuizInRange(Long quizId, LocalDateTime from, LocalDateTime to, Pageable page);
+}
@@ -0,0 +1,9 @@
+package org.example.analytics.repository;
+
+import org.example.analytics.model.AnalyticsSummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsSummaryRepository extends MongoRepository<AnalyticsSummary, String> {
+}
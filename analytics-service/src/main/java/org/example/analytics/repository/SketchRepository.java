@@ -0,0 +1,13 @@
+package org.example.analytics.repository;
+
+import org.example.analytics.model.SketchDocument;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SketchRepository extends MongoRepository<SketchDocument, String> {
+    List<SketchDocument> findByDayBetween(LocalDate from, LocalDate to);
+}
@@ -1,35 +1,80 @@
 package org.example.analytics.service;
 
+import org.example.analytics.aggregate.CounterCheckpointer;
+import org.example.analytics.aggregate.EventCounters;
+import org.example.analytics.aggregate.ItemAnalysis;
+import org.example.analytics.aggregate.ItemStatistics;
+import org.example.analytics.aggregate.LifecycleLatency;
+import org.example.analytics.archive.EventArchiver;
+import org.example.analytics.archive.ScanEngine;
+import org.example.analytics.archive.ScanQuery;
+import org.example.analytics.aggregate.RollupGranularity;
+import org.example.analytics.ingest.EventLayoutMigration;
 import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.EventRollup;
 import org.example.analytics.repository.AnalyticsEventRepository;
+import org.example.analytics.sketch.SketchStore;
+import org.example.analytics.sketch.SpaceSaving;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
 
+    @Autowired
+    private EventCounters counters;
+
+    @Autowired
+    private CounterCheckpointer counterCheckpointer;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SketchStore sketchStore;
+
+    @Autowired
+    private ItemAnalysis itemAnalysis;
+
+    @Autowired
+    private LifecycleLatency lifecycleLatency;
+
+    @Autowired
+    private EventArchiver archiver;
+
+    @Autowired
+    private ScanEngine scanEngine;
+
     @Autowired
     private AnalyticsEventRepository eventRepository;
 
+    @Autowired
+    private EventLayoutMigration eventLayoutMigration;
+
+    @Value("${analytics.timeseries.max-points:1500}")
+    private int maxTimeseriesPoints;
+
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        List<AnalyticsEvent> allEvents = eventRepository.findAll();
-
-        // Count events by type
-        Map<String, Long> eventCounts = allEvents.stream()
-            .collect(Collectors.groupingBy(
-                AnalyticsEvent::getEventType,
-                Collectors.counting()
-            ));
+        // Served from counters maintained at ingest, never from the raw events
+        Map<String, Long> eventCounts = counters.snapshot();
 
-        stats.put("totalEvents", allEvents.size());
+        stats.put("totalEvents", eventCounts.values().stream().mapToLong(Long::longValue).sum());
         stats.put("eventCounts", eventCounts);
         stats.put("lastUpdated", LocalDateTime.now());
 
@@ -37,25 +82,204 @@ public class AnalyticsService {
     }
 
     public Map<String, Object> getQuizStats() {
-        List<AnalyticsEvent> quizEvents = eventRepository.findByEventType("QUIZ_CREATED");
-        List<AnalyticsEvent> submissionEvents = eventRepository.findByEventType("SUBMISSION_SUBMITTED");
-
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalQuizzes", quizEvents.size());
-        stats.put("totalSubmissions", submissionEvents.size());
+        stats.put("totalQuizzes", counters.get("QUIZ_CREATED"));
+        stats.put("totalSubmissions", counters.get("SUBMISSION_SUBMITTED"));
 
         return stats;
     }
 
     public Map<String, Object> getUserStats() {
-        List<AnalyticsEvent> userRegistrations = eventRepository.findByEventType("USER_REGISTERED");
-        List<AnalyticsEvent> userLogins = eventRepository.findByEventType("USER_LOGGED_IN");
-
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalUsers", userRegistrations.size());
-        stats.put("totalLogins", userLogins.size());
+        stats.put("totalUsers", counters.get("USER_REGISTERED"));
+        stats.put("totalLogins", counters.get("USER_LOGGED_IN"));
 
         return stats;
     }
-}
 
+    public Map<String, Long> rebuildCounters() {
+        return counterCheckpointer.rebuild();
+    }
+
+    // Reads pre-aggregated rollup documents only; points are sparse (empty buckets are omitted)
+    public Map<String, Object> getTimeseries(String type, Long quizId, LocalDateTime from, LocalDateTime to, String granularity) {
+        if (type == null || type.isBlank()) {
+            throw new IllegalArgumentException("type is required");
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        RollupGranularity resolved = granularity == null || granularity.isBlank()
+                ? RollupGranularity.forRange(start, end)
+                : RollupGranularity.parse(granularity);
+        long buckets = resolved.buckets(start, end);
+        if (buckets > maxTimeseriesPoints) {
+            throw new IllegalArgumentException("Range has " + buckets + " " + resolved.name().toLowerCase()
+                    + " buckets, more than " + maxTimeseriesPoints + "; use a coarser granularity or a shorter range");
+        }
+
+        Query query = Query.query(Criteria.where("granularity").is(resolved.name())
+                        .and("eventType").is(type)
+                        .and("quizId").is(quizId)
+                        .and("bucket").gte(resolved.truncate(start)).lt(end))
+                .with(Sort.by("bucket"));
+        query.fields().include("bucket", "count");
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        long total = 0;
+        for (EventRollup rollup : mongoTemplate.find(query, EventRollup.class)) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("bucket", rollup.getBucket());
+            point.put("count", rollup.getCount());
+            points.add(point);
+            total += rollup.getCount();
+        }
+
+        Map<String, Object> series = new LinkedHashMap<>();
+        series.put("type", type);
+        series.put("quizId", quizId);
+        series.put("granularity", resolved.name().toLowerCase());
+        series.put("from", start);
+        series.put("to", end);
+        series.put("total", total);
+        series.put("points", points);
+        return series;
+    }
+
+    public Map<String, Object> getDistinctActiveUsers(LocalDate from, LocalDate to) {
+        LocalDate[] range = sketchRange(from, to);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", range[0]);
+        result.put("to", range[1]);
+        result.put("distinctUsers", sketchStore.distinctActiveUsers(range[0], range[1]));
+        return result;
+    }
+
+    public Map<String, Object> getDistinctQuizUsers(Long quizId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("quizId", quizId);
+        result.put("distinctUsers", sketchStore.distinctQuizUsers(quizId));
+        return result;
+    }
+
+    public Map<String, Object> getTopQuizzes(LocalDate from, LocalDate to, int k) {
+        LocalDate[] range = sketchRange(from, to);
+        return topK("quizId", range, sketchStore.topQuizzes(range[0], range[1], k));
+    }
+
+    public Map<String, Object> getTopFailedQuestions(LocalDate from, LocalDate to, int k) {
+        LocalDate[] range = sketchRange(from, to);
+        return topK("questionId", range, sketchStore.topFailedQuestions(range[0], range[1], k));
+    }
+
+    public Map<String, Object> getSketchStats() {
+        return sketchStore.memoryStats();
+    }
+
+    // Difficulty/discrimination flags use common item-analysis rules of thumb, once 30 responses are in
+    public Map<String, Object> getItemAnalysis(Long quizId) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        itemAnalysis.snapshot(quizId).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey((a, b) -> Long.compare(Long.parseLong(a), Long.parseLong(b))))
+                .forEach(entry -> {
+                    ItemStatistics stats = entry.getValue();
+                    double discrimination = stats.discrimination();
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("questionId", Long.parseLong(entry.getKey()));
+                    item.put("responses", stats.getResponses());
+                    item.put("difficulty", stats.difficulty());
+                    item.put("discrimination", Double.isNaN(discrimination) ? null : discrimination);
+                    item.put("unanswered", stats.getUnanswered());
+                    item.put("otherAnswers", stats.getOtherAnswers());
+                    item.put("optionCounts", stats.getOptionCounts());
+
+                    List<String> flags = new ArrayList<>();
+                    if (stats.getResponses() >= 30) {
+                        if (stats.difficulty() < 0.2) {
+                            flags.add("TOO_HARD");
+                        } else if (stats.difficulty() > 0.9) {
+                            flags.add("TOO_EASY");
+                        }
+                        if (!Double.isNaN(discrimination) && discrimination < 0.2) {
+                            flags.add(discrimination < 0 ? "NEGATIVE_DISCRIMINATION" : "LOW_DISCRIMINATION");
+                        }
+                    }
+                    item.put("flags", flags);
+                    items.add(item);
+                });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("quizId", quizId);
+        result.put("items", items);
+        return result;
+    }
+
+    public Map<String, Object> getLatency() {
+        return lifecycleLatency.overall();
+    }
+
+    public Map<String, Object> getQuizLatency(Long quizId) {
+        return lifecycleLatency.forQuiz(quizId);
+    }
+
+    public Map<String, Object> scanArchive(ScanQuery query) {
+        return scanEngine.scan(archiver.segments(query.getFrom(), query.getTo()), query);
+    }
+
+    public Map<String, Object> getArchiveStats() {
+        return archiver.stats();
+    }
+
+    public List<AnalyticsEvent> getEvents(String type, LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime[] range = eventRange(from, to, limit);
+        return eventRepository.findByEventTypeAndTimestampBetweenOrderByTimestampDesc(type, range[0], range[1], PageRequest.of(0, limit));
+    }
+
+    public List<AnalyticsEvent> getQuizEvents(Long quizId, LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime[] range = eventRange(from, to, limit);
+        return eventRepository.findByQuizInRange(quizId, range[0], range[1], PageRequest.of(0, limit));
+    }
+
+    public Map<String, Object> getEventStorageStats() {
+        return eventLayoutMigration.stats();
+    }
+
+    // Raw events only live in the Mongo hot window; defaults to the last hour
+    private LocalDateTime[] eventRange(LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(1);
+        if (start.isAfter(end) || limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("Invalid event query");
+        }
+        return new LocalDateTime[]{start, end};
+    }
+
+    // Defaults to today; windows are capped at a year of daily sketches
+    private LocalDate[] sketchRange(LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        if (start.isAfter(end) || start.plusDays(366).isBefore(end)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        return new LocalDate[]{start, end};
+    }
+
+    private Map<String, Object> topK(String keyName, LocalDate[] range, List<SpaceSaving.Entry> entries) {
+        List<Map<String, Object>> items = new ArrayList<>(entries.size());
+        for (SpaceSaving.Entry entry : entries) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put(keyName, entry.key());
+            item.put("count", entry.count());
+            // True count lies in [count - maxOverestimate, count]
+            item.put("maxOverestimate", entry.error());
+            items.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", range[0]);
+        result.put("to", range[1]);
+        result.put("items", items);
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.analytics.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Distinct-count sketch over long ids.
+ *
+ * Memory is 2^p one-byte registers regardless of cardinality; the relative standard error is
+ * 1.04 / sqrt(2^p) (p=12: 4 KB, ~1.6%; p=14: 16 KB, ~0.8%). Sketches with the same p merge by
+ * register-wise max, so daily or per-instance sketches can be combined into any window.
+ * Offering the same id twice is a no-op, which makes redelivered events harmless.
+ */
+public final class HyperLogLog {
+
+    private final int p;
+    private final byte[] registers;
+
+    public HyperLogLog(int p) {
+        if (p < 4 || p > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.p = p;
+        this.registers = new byte[1 << p];
+    }
+
+    public int precision() {
+        return p;
+    }
+
+    public synchronized boolean offer(long value) {
+        long hash = mix64(value);
+        int index = (int) (hash >>> (64 - p));
+        // Sentinel bit caps the rank at 64 - p + 1
+        int rank = Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        if (other.p != p) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precision");
+        }
+        byte[] theirs = other.snapshotRegisters();
+        for (int i = 0; i < registers.length; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    // [p][deflated registers]; sparse sketches compress to a few hundred bytes
+    public byte[] toBytes() {
+        byte[] raw = snapshotRegisters();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(p);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes, 1, bytes.length - 1);
+        try {
+            int read = 0;
+            while (read < sketch.registers.length && !inflater.finished()) {
+                read += inflater.inflate(sketch.registers, read, sketch.registers.length - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt HyperLogLog sketch", e);
+        } finally {
+            inflater.end();
+        }
+        return sketch;
+    }
+
+    private synchronized byte[] snapshotRegisters() {
+        return Arrays.copyOf(registers, registers.length);
+    }
+
+    // MurmurHash3 finalizer: spreads sequential ids over the whole 64-bit space
+    static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
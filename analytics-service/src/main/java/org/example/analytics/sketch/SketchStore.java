@@ -0,0 +1,432 @@
+package org.example.analytics.sketch;
+
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.QuestionResult;
+import org.example.analytics.model.SketchDocument;
+import org.example.analytics.model.SubmissionEvent;
+import org.example.analytics.repository.SketchRepository;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.example.analytics.snapshot.SnapshotParticipant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Daily and per-quiz sketches fed from ingested events:
+ * - daily HyperLogLog of active userIds (any event carrying a userId)
+ * - daily Space-Saving of quiz attempts (SUBMISSION_STARTED) and failed questions (SUBMISSION_GRADED questionResults)
+ * - per-quiz HyperLogLog of distinct attempting users
+ *
+ * Recent days stay in memory; older days and per-quiz sketches beyond the LRU bound are read
+ * back from analytics_sketches on demand. Dirty sketches are checkpointed on a fixed delay.
+ * In-memory sketches are part of the state snapshot, which is preferred over Mongo on startup.
+ */
+@Component
+public class SketchStore implements SnapshotParticipant {
+    private static final Logger logger = LoggerFactory.getLogger(SketchStore.class);
+
+    static final String ACTIVE_USERS = "users";
+    static final String QUIZ_ATTEMPTS = "quizzes";
+    static final String FAILED_QUESTIONS = "failing";
+    static final String QUIZ_USERS = "quiz-users";
+
+    @Autowired
+    private SketchRepository sketchRepository;
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    @Value("${analytics.sketches.day-precision:14}")
+    private int dayPrecision;
+
+    @Value("${analytics.sketches.quiz-precision:12}")
+    private int quizPrecision;
+
+    @Value("${analytics.sketches.top-k-capacity:256}")
+    private int topKCapacity;
+
+    @Value("${analytics.sketches.retention-days:35}")
+    private int retentionDays;
+
+    @Value("${analytics.sketches.max-quiz-sketches:4096}")
+    private int maxQuizSketches;
+
+    private final class DaySketches {
+        final LocalDate day;
+        final HyperLogLog users;
+        final SpaceSaving quizAttempts;
+        final SpaceSaving failedQuestions;
+
+        DaySketches(LocalDate day, HyperLogLog users, SpaceSaving quizAttempts, SpaceSaving failedQuestions) {
+            this.day = day;
+            this.users = users;
+            this.quizAttempts = quizAttempts;
+            this.failedQuestions = failedQuestions;
+        }
+    }
+
+    private final Map<LocalDate, DaySketches> days = new ConcurrentHashMap<>();
+    private Map<Long, HyperLogLog> quizUsers;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void restore() {
+        quizUsers = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, HyperLogLog> eldest) {
+                if (size() <= maxQuizSketches) {
+                    return false;
+                }
+                // Evicted sketches must be on disk before they leave memory
+                if (dirty.remove(quizUsersId(eldest.getKey()))) {
+                    sketchRepository.save(toDocument(quizUsersId(eldest.getKey()), QUIZ_USERS, null, eldest.getKey(),
+                            eldest.getValue().toBytes()));
+                }
+                return true;
+            }
+        };
+        if (snapshotFile.restore(this)) {
+            logger.info("Restored {} days and {} quiz sketches from the state snapshot", days.size(), quizUsers.size());
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (DaySketches loaded : loadDays(today.minusDays(retentionDays - 1L), today).values()) {
+            days.put(loaded.day, loaded);
+        }
+        logger.info("Restored {} days of analytics sketches", days.size());
+    }
+
+    public void record(Iterable<AnalyticsEvent> events) {
+        for (AnalyticsEvent event : events) {
+            DaySketches day = day(event.getTimestamp().toLocalDate());
+            recordDay(day, event, dirty);
+            Long userId = event.userId();
+            Long quizId = event.quizId();
+            if ("SUBMISSION_STARTED".equals(event.getEventType()) && quizId != null
+                    && userId != null && quizUsers(quizId).offer(userId)) {
+                dirty.add(quizUsersId(quizId));
+            }
+        }
+    }
+
+    /**
+     * Daily sketches recomputed from history by the backfill job, independent of the live ones.
+     * Leaves are built in parallel and merged; replaceDays() swaps the result in.
+     */
+    public final class DaySet {
+        private final Map<LocalDate, DaySketches> days = new HashMap<>();
+
+        public void record(Iterable<AnalyticsEvent> events) {
+            for (AnalyticsEvent event : events) {
+                LocalDate date = event.getTimestamp().toLocalDate();
+                recordDay(days.computeIfAbsent(date, SketchStore.this::newDay), event, null);
+            }
+        }
+
+        public DaySet merge(DaySet other) {
+            other.days.forEach((date, theirs) -> {
+                DaySketches ours = days.get(date);
+                if (ours == null) {
+                    days.put(date, theirs);
+                } else {
+                    ours.users.merge(theirs.users);
+                    ours.quizAttempts.merge(theirs.quizAttempts);
+                    ours.failedQuestions.merge(theirs.failedQuestions);
+                }
+            });
+            return this;
+        }
+
+        public int size() {
+            return days.size();
+        }
+    }
+
+    public DaySet newDaySet() {
+        return new DaySet();
+    }
+
+    // Replaces every recomputed day, in memory (within retention) and in Mongo
+    public void replaceDays(DaySet recomputed) {
+        LocalDate oldest = LocalDate.now().minusDays(retentionDays - 1L);
+        List<SketchDocument> documents = new ArrayList<>();
+        for (DaySketches day : recomputed.days.values()) {
+            documents.add(toDocument(dayId(day.day, ACTIVE_USERS), ACTIVE_USERS, day.day, null, day.users.toBytes()));
+            documents.add(toDocument(dayId(day.day, QUIZ_ATTEMPTS), QUIZ_ATTEMPTS, day.day, null, day.quizAttempts.toBytes()));
+            documents.add(toDocument(dayId(day.day, FAILED_QUESTIONS), FAILED_QUESTIONS, day.day, null, day.failedQuestions.toBytes()));
+        }
+        sketchRepository.saveAll(documents);
+        days.keySet().removeIf(date -> !recomputed.days.containsKey(date));
+        recomputed.days.forEach((date, day) -> {
+            if (!date.isBefore(oldest)) {
+                days.put(date, day);
+            }
+        });
+    }
+
+    private void recordDay(DaySketches day, AnalyticsEvent event, Set<String> dirtyIds) {
+        Long userId = event.userId();
+        Long quizId = event.quizId();
+
+        if (userId != null && day.users.offer(userId) && dirtyIds != null) {
+            dirtyIds.add(dayId(day.day, ACTIVE_USERS));
+        }
+        if ("SUBMISSION_STARTED".equals(event.getEventType()) && quizId != null) {
+            day.quizAttempts.offer(quizId, 1);
+            if (dirtyIds != null) {
+                dirtyIds.add(dayId(day.day, QUIZ_ATTEMPTS));
+            }
+        }
+        if ("SUBMISSION_GRADED".equals(event.getEventType()) && event instanceof SubmissionEvent graded
+                && graded.getQuestionResults() != null) {
+            for (QuestionResult result : graded.getQuestionResults()) {
+                if (!result.isCorrect() && result.getQuestionId() != null) {
+                    day.failedQuestions.offer(result.getQuestionId(), 1);
+                    if (dirtyIds != null) {
+                        dirtyIds.add(dayId(day.day, FAILED_QUESTIONS));
+                    }
+                }
+            }
+        }
+    }
+
+    public long distinctActiveUsers(LocalDate from, LocalDate to) {
+        HyperLogLog merged = new HyperLogLog(dayPrecision);
+        for (DaySketches day : window(from, to)) {
+            merged.merge(day.users);
+        }
+        return merged.estimate();
+    }
+
+    public long distinctQuizUsers(Long quizId) {
+        return quizUsers(quizId).estimate();
+    }
+
+    public List<SpaceSaving.Entry> topQuizzes(LocalDate from, LocalDate to, int k) {
+        SpaceSaving merged = new SpaceSaving(topKCapacity);
+        for (DaySketches day : window(from, to)) {
+            merged.merge(day.quizAttempts);
+        }
+        return merged.top(k);
+    }
+
+    public List<SpaceSaving.Entry> topFailedQuestions(LocalDate from, LocalDate to, int k) {
+        SpaceSaving merged = new SpaceSaving(topKCapacity);
+        for (DaySketches day : window(from, to)) {
+            merged.merge(day.failedQuestions);
+        }
+        return merged.top(k);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sketches.checkpoint-interval-ms:30000}")
+    public void checkpoint() {
+        List<SketchDocument> documents = new ArrayList<>();
+        for (String id : new ArrayList<>(dirty)) {
+            // Removed before serializing so concurrent updates mark it dirty again
+            dirty.remove(id);
+            SketchDocument document = serialize(id);
+            if (document != null) {
+                documents.add(document);
+            }
+        }
+        if (!documents.isEmpty()) {
+            sketchRepository.saveAll(documents);
+        }
+        LocalDate oldest = LocalDate.now().minusDays(retentionDays - 1L);
+        days.keySet().removeIf(day -> day.isBefore(oldest) && !isDirty(day));
+    }
+
+    public Map<String, Object> memoryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int quizSketches;
+        synchronized (this) {
+            quizSketches = quizUsers.size();
+        }
+        stats.put("daysInMemory", days.size());
+        stats.put("quizSketchesInMemory", quizSketches);
+        stats.put("dayHllBytes", 1 << dayPrecision);
+        stats.put("dayHllStandardError", 1.04 / Math.sqrt(1 << dayPrecision));
+        stats.put("quizHllBytes", 1 << quizPrecision);
+        stats.put("quizHllStandardError", 1.04 / Math.sqrt(1 << quizPrecision));
+        stats.put("topKCapacity", topKCapacity);
+        stats.put("estimatedBytes", (long) days.size() * ((1 << dayPrecision) + 2L * topKCapacity * 100)
+                + (long) quizSketches * (1 << quizPrecision));
+        return stats;
+    }
+
+    @Override
+    public String snapshotSection() {
+        return "sketches";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        List<DaySketches> inMemory = new ArrayList<>(days.values());
+        out.writeInt(inMemory.size());
+        for (DaySketches day : inMemory) {
+            out.writeUTF(day.day.toString());
+            writeBytes(out, day.users.toBytes());
+            writeBytes(out, day.quizAttempts.toBytes());
+            writeBytes(out, day.failedQuestions.toBytes());
+        }
+        Map<Long, HyperLogLog> quizSketches;
+        synchronized (this) {
+            quizSketches = new LinkedHashMap<>(quizUsers);
+        }
+        out.writeInt(quizSketches.size());
+        for (Map.Entry<Long, HyperLogLog> entry : quizSketches.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeBytes(out, entry.getValue().toBytes());
+        }
+    }
+
+    // Everything restored is marked dirty: the Mongo checkpoint may be older than the snapshot
+    @Override
+    public void restoreSnapshot(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            LocalDate day = LocalDate.parse(in.readUTF());
+            days.put(day, new DaySketches(day, HyperLogLog.fromBytes(readBytes(in)),
+                    SpaceSaving.fromBytes(readBytes(in)), SpaceSaving.fromBytes(readBytes(in))));
+            dirty.add(dayId(day, ACTIVE_USERS));
+            dirty.add(dayId(day, QUIZ_ATTEMPTS));
+            dirty.add(dayId(day, FAILED_QUESTIONS));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            long quizId = in.readLong();
+            HyperLogLog sketch = HyperLogLog.fromBytes(readBytes(in));
+            synchronized (this) {
+                quizUsers.put(quizId, sketch);
+            }
+            dirty.add(quizUsersId(quizId));
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private DaySketches day(LocalDate day) {
+        return days.computeIfAbsent(day, this::newDay);
+    }
+
+    private DaySketches newDay(LocalDate day) {
+        return new DaySketches(day, new HyperLogLog(dayPrecision), new SpaceSaving(topKCapacity), new SpaceSaving(topKCapacity));
+    }
+
+    private synchronized HyperLogLog quizUsers(Long quizId) {
+        HyperLogLog sketch = quizUsers.get(quizId);
+        if (sketch == null) {
+            sketch = sketchRepository.findById(quizUsersId(quizId))
+                    .map(document -> HyperLogLog.fromBytes(document.getData()))
+                    .orElseGet(() -> new HyperLogLog(quizPrecision));
+            quizUsers.put(quizId, sketch);
+        }
+        return sketch;
+    }
+
+    // In-memory days where present, the rest read from Mongo without being cached
+    private List<DaySketches> window(LocalDate from, LocalDate to) {
+        List<DaySketches> window = new ArrayList<>();
+        LocalDate missingFrom = null;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            DaySketches sketches = days.get(day);
+            if (sketches != null) {
+                window.add(sketches);
+            } else if (missingFrom == null) {
+                missingFrom = day;
+            }
+        }
+        if (missingFrom != null) {
+            loadDays(missingFrom, to).forEach((day, sketches) -> {
+                if (!days.containsKey(day)) {
+                    window.add(sketches);
+                }
+            });
+        }
+        return window;
+    }
+
+    private Map<LocalDate, DaySketches> loadDays(LocalDate from, LocalDate to) {
+        Map<LocalDate, DaySketches> loaded = new LinkedHashMap<>();
+        // Derived Between is exclusive, so widen by a day and filter
+        for (SketchDocument document : sketchRepository.findByDayBetween(from.minusDays(1), to.plusDays(1))) {
+            LocalDate day = document.getDay();
+            if (day.isBefore(from) || day.isAfter(to)) {
+                continue;
+            }
+            DaySketches current = loaded.computeIfAbsent(day, d -> new DaySketches(d, new HyperLogLog(dayPrecision),
+                    new SpaceSaving(topKCapacity), new SpaceSaving(topKCapacity)));
+            switch (document.getKind()) {
+                case ACTIVE_USERS -> current.users.merge(HyperLogLog.fromBytes(document.getData()));
+                case QUIZ_ATTEMPTS -> current.quizAttempts.merge(SpaceSaving.fromBytes(document.getData()));
+                case FAILED_QUESTIONS -> current.failedQuestions.merge(SpaceSaving.fromBytes(document.getData()));
+                default -> { }
+            }
+        }
+        return loaded;
+    }
+
+    private SketchDocument serialize(String id) {
+        String[] parts = id.split(":");
+        if (QUIZ_USERS.equals(parts[0])) {
+            Long quizId = Long.parseLong(parts[1]);
+            HyperLogLog sketch;
+            synchronized (this) {
+                sketch = quizUsers.get(quizId);
+            }
+            return sketch != null ? toDocument(id, QUIZ_USERS, null, quizId, sketch.toBytes()) : null;
+        }
+        LocalDate day = LocalDate.parse(parts[1]);
+        DaySketches sketches = days.get(day);
+        if (sketches == null) {
+            return null;
+        }
+        byte[] data = switch (parts[2]) {
+            case ACTIVE_USERS -> sketches.users.toBytes();
+            case QUIZ_ATTEMPTS -> sketches.quizAttempts.toBytes();
+            default -> sketches.failedQuestions.toBytes();
+        };
+        return toDocument(id, parts[2], day, null, data);
+    }
+
+    private boolean isDirty(LocalDate day) {
+        return dirty.contains(dayId(day, ACTIVE_USERS)) || dirty.contains(dayId(day, QUIZ_ATTEMPTS))
+                || dirty.contains(dayId(day, FAILED_QUESTIONS));
+    }
+
+    private static SketchDocument toDocument(String id, String kind, LocalDate day, Long quizId, byte[] data) {
+        return new SketchDocument(id, kind, day, quizId, data, LocalDateTime.now());
+    }
+
+    private static String dayId(LocalDate day, String kind) {
+        return "day:" + day + ":" + kind;
+    }
+
+    private static String quizUsersId(Long quizId) {
+        return QUIZ_USERS + ":" + quizId;
+    }
+}
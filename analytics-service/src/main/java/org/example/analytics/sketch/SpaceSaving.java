@@ -0,0 +1,163 @@
+package org.example.analytics.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy hitters over long keys with a fixed number of counters.
+ *
+ * Memory is bounded by capacity (about 100 bytes per counter). Each reported count overestimates
+ * the true count by at most its error field, and error <= total / capacity, so any key with more
+ * than total / capacity occurrences is guaranteed to be tracked. Summaries merge by adding counts,
+ * charging a key missing from a full summary that summary's minimum, and keeping the top capacity.
+ */
+public final class SpaceSaving {
+
+    public record Entry(long key, long count, long error) {
+    }
+
+    private static final class Counter {
+        final long key;
+        long count;
+        long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.comparingLong((Counter c) -> c.count).thenComparingLong(c -> c.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public synchronized void offer(long key, long weight) {
+        total += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+            counters.put(key, counter);
+        } else {
+            // Replace the smallest counter; its count becomes the newcomer's error bound
+            Counter min = byCount.pollFirst();
+            counters.remove(min.key);
+            counter = new Counter(key, min.count + weight, min.count);
+            counters.put(key, counter);
+        }
+        byCount.add(counter);
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized List<Entry> top(int k) {
+        List<Entry> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Counter counter : byCount.descendingSet()) {
+            if (top.size() == k) {
+                break;
+            }
+            top.add(new Entry(counter.key, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    public void merge(SpaceSaving other) {
+        List<Entry> theirs = other.top(Integer.MAX_VALUE);
+        long theirMin = other.minimumIfFull();
+        long theirTotal = other.total();
+        synchronized (this) {
+            long ourMin = minimumIfFull();
+            Map<Long, Entry> theirByKey = new HashMap<>();
+            for (Entry entry : theirs) {
+                theirByKey.put(entry.key(), entry);
+            }
+            Set<Long> keys = new HashSet<>(counters.keySet());
+            keys.addAll(theirByKey.keySet());
+
+            List<Counter> merged = new ArrayList<>(keys.size());
+            for (Long key : keys) {
+                Counter ours = counters.get(key);
+                Entry theirEntry = theirByKey.get(key);
+                long count = (ours != null ? ours.count : ourMin) + (theirEntry != null ? theirEntry.count() : theirMin);
+                long error = (ours != null ? ours.error : ourMin) + (theirEntry != null ? theirEntry.error() : theirMin);
+                merged.add(new Counter(key, count, error));
+            }
+            merged.sort(BY_COUNT.reversed());
+
+            counters.clear();
+            byCount.clear();
+            for (int i = 0; i < merged.size() && i < capacity; i++) {
+                Counter counter = merged.get(i);
+                counters.put(counter.key, counter);
+                byCount.add(counter);
+            }
+            total += theirTotal;
+        }
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + counters.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(capacity);
+            out.writeLong(total);
+            out.writeInt(counters.size());
+            for (Counter counter : byCount) {
+                out.writeLong(counter.key);
+                out.writeLong(counter.count);
+                out.writeLong(counter.error);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            SpaceSaving summary = new SpaceSaving(in.readInt());
+            summary.total = in.readLong();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Counter counter = new Counter(in.readLong(), in.readLong(), in.readLong());
+                summary.counters.put(counter.key, counter);
+                summary.byCount.add(counter);
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt Space-Saving summary", e);
+        }
+    }
+
+    // A key absent from a full summary may have occurred up to the smallest tracked count
+    private synchronized long minimumIfFull() {
+        return counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.analytics.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary snapshot of the in-memory analytics state at ${analytics.data-dir}/state.snapshot.
+ *
+ * Layout: "ASN1", version, crc32 of the body, then the deflated body: creation time, the ingest
+ * buffer position it covers, the Kafka offsets drained up to that position, and one
+ * length-prefixed section per participant. Unknown sections are skipped, missing ones leave
+ * the participant to its Mongo-based restore. A new snapshot is written to a temp file, forced
+ * and renamed over the old one, so a crash never leaves a half-written snapshot behind.
+ */
+@Component
+public class SnapshotFile {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotFile.class);
+    private static final byte[] MAGIC = {'A', 'S', 'N', '1'};
+    private static final int VERSION = 1;
+    public static final String SNAPSHOT_HOLDER = "snapshot";
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Value("${analytics.data-dir:/data/analytics}")
+    private String dataDir;
+
+    private Path file;
+    private Map<String, byte[]> sections;
+    private long position = -1;
+    private long createdAt;
+    private Map<String, Long> kafkaOffsets = new HashMap<>();
+    private long loadMillis;
+
+    @PostConstruct
+    public void load() {
+        file = Path.of(dataDir, "state.snapshot");
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION) {
+                logger.warn("Ignoring state snapshot with unknown format");
+                return;
+            }
+            int crc = in.readInt();
+            byte[] body = inflate(in);
+            CRC32 check = new CRC32();
+            check.update(body);
+            if ((int) check.getValue() != crc) {
+                logger.warn("Ignoring corrupt state snapshot");
+                return;
+            }
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+            long snapshotAt = data.readLong();
+            long snapshotPosition = data.readLong();
+            Map<String, Long> offsets = new HashMap<>();
+            for (int i = data.readInt(); i > 0; i--) {
+                offsets.put(data.readUTF(), data.readLong());
+            }
+            Map<String, byte[]> loaded = new HashMap<>();
+            for (int i = data.readInt(); i > 0; i--) {
+                String name = data.readUTF();
+                byte[] section = new byte[data.readInt()];
+                data.readFully(section);
+                loaded.put(name, section);
+            }
+
+            // Without the buffer records after the snapshot, restoring it would lose events
+            if (!buffer.covers(snapshotPosition)) {
+                logger.warn("Ingest buffer no longer holds the records after the state snapshot, ignoring it");
+                return;
+            }
+            sections = loaded;
+            position = snapshotPosition;
+            createdAt = snapshotAt;
+            kafkaOffsets = offsets;
+            buffer.retain(SNAPSHOT_HOLDER, position);
+            loadMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Loaded state snapshot ({} bytes, {} sections) in {} ms", Files.size(file), sections.size(), loadMillis);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read state snapshot: {}", e.getMessage());
+        }
+    }
+
+    // Restores the participant's section; false when there is none and it must restore otherwise
+    public boolean restore(SnapshotParticipant participant) {
+        byte[] section = sections != null ? sections.get(participant.snapshotSection()) : null;
+        if (section == null) {
+            return false;
+        }
+        try {
+            participant.restoreSnapshot(new DataInputStream(new ByteArrayInputStream(section)));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restore {} from state snapshot: {}", participant.snapshotSection(), e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean isLoaded() {
+        return sections != null;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public Map<String, Long> kafkaOffsets() {
+        return kafkaOffsets;
+    }
+
+    // Sections are only needed during startup
+    public void release() {
+        if (sections != null) {
+            sections = Map.of();
+        }
+    }
+
+    // Returns the size of the written file
+    public long write(List<SnapshotParticipant> participants, long bufferPosition, Map<String, Long> offsets) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeLong(System.currentTimeMillis());
+        body.writeLong(bufferPosition);
+        body.writeInt(offsets.size());
+        for (Map.Entry<String, Long> offset : offsets.entrySet()) {
+            body.writeUTF(offset.getKey());
+            body.writeLong(offset.getValue());
+        }
+        body.writeInt(participants.size());
+        ByteArrayOutputStream sectionBytes = new ByteArrayOutputStream(1 << 16);
+        for (SnapshotParticipant participant : participants) {
+            sectionBytes.reset();
+            participant.writeSnapshot(new DataOutputStream(sectionBytes));
+            body.writeUTF(participant.snapshotSection());
+            body.writeInt(sectionBytes.size());
+            sectionBytes.writeTo(body);
+        }
+        body.flush();
+        byte[] payload = bodyBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        Path temp = file.resolveSibling("state.snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt((int) crc.getValue());
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out);
+            deflated.write(payload);
+            deflated.finish();
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(file);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("restoredFromSnapshot", position >= 0);
+        stats.put("snapshotPosition", position);
+        stats.put("snapshotCreatedAt", createdAt);
+        stats.put("loadMillis", loadMillis);
+        return stats;
+    }
+
+    private static byte[] inflate(InputStream in) throws IOException {
+        try (InflaterInputStream inflater = new InflaterInputStream(in)) {
+            return inflater.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.analytics.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * In-memory analytics state that is saved in state snapshots. Writes happen on the drainer
+ * thread between batches; restores happen once, during startup, before any event is applied.
+ */
+public interface SnapshotParticipant {
+
+    String snapshotSection();
+
+    void writeSnapshot(DataOutput out) throws IOException;
+
+    void restoreSnapshot(DataInput in) throws IOException;
+}
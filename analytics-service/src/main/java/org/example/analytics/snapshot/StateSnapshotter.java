@@ -0,0 +1,129 @@
+package org.example.analytics.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import org.example.analytics.ingest.WriteAheadLog;
+import org.example.analytics.model.AnalyticsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes state snapshots on the drainer thread, between batches, so the saved state matches
+ * the ingest buffer position exactly. Also tracks the highest Kafka offset drained per
+ * topic-partition (from event ids) so each snapshot records the offsets it covers, and keeps
+ * the startup restore timings.
+ */
+@Component
+public class StateSnapshotter {
+    private static final Logger logger = LoggerFactory.getLogger(StateSnapshotter.class);
+
+    @Autowired
+    private List<SnapshotParticipant> participants;
+
+    @Autowired
+    private SnapshotFile snapshotFile;
+
+    @Autowired
+    private WriteAheadLog buffer;
+
+    @Value("${analytics.snapshot.interval-ms:30000}")
+    private long intervalMillis;
+
+    private final Map<String, Long> kafkaOffsets = new TreeMap<>();
+    private long lastPosition = -1;
+    private long lastSnapshotAt;
+    private volatile Map<String, Object> lastSnapshot = Map.of();
+    private volatile Map<String, Object> startup = Map.of();
+    private volatile boolean requested;
+    private long failures;
+
+    @PostConstruct
+    public void init() {
+        kafkaOffsets.putAll(snapshotFile.kafkaOffsets());
+        lastPosition = snapshotFile.position();
+        lastSnapshotAt = System.currentTimeMillis();
+    }
+
+    // Event ids are topic-partition-offset; topics may contain dashes
+    public synchronized void track(List<AnalyticsEvent> events) {
+        for (AnalyticsEvent event : events) {
+            String id = event.getId();
+            int offsetDash = id != null ? id.lastIndexOf('-') : -1;
+            if (offsetDash <= 0) {
+                continue;
+            }
+            try {
+                long offset = Long.parseLong(id.substring(offsetDash + 1));
+                kafkaOffsets.merge(id.substring(0, offsetDash), offset, Math::max);
+            } catch (NumberFormatException e) {
+                // Not a Kafka-derived id
+            }
+        }
+    }
+
+    public void request() {
+        requested = true;
+    }
+
+    // Called by the drainer after committing a batch (and when idle)
+    public void maybeSnapshot() {
+        long position = buffer.drainPosition();
+        long now = System.currentTimeMillis();
+        if (!requested && (position == lastPosition || now - lastSnapshotAt < intervalMillis)) {
+            return;
+        }
+        requested = false;
+        long start = System.nanoTime();
+        try {
+            Map<String, Long> offsets;
+            synchronized (this) {
+                offsets = new TreeMap<>(kafkaOffsets);
+            }
+            long bytes = snapshotFile.write(participants, position, offsets);
+            buffer.retain(SnapshotFile.SNAPSHOT_HOLDER, position);
+            lastPosition = position;
+            lastSnapshotAt = now;
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("at", now);
+            snapshot.put("bufferPosition", position);
+            snapshot.put("bytes", bytes);
+            snapshot.put("writeMillis", (System.nanoTime() - start) / 1_000_000);
+            snapshot.put("kafkaOffsets", offsets);
+            lastSnapshot = snapshot;
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            lastSnapshotAt = now;
+            logger.error("Could not write state snapshot: {}", e.getMessage());
+        }
+    }
+
+    public void recordStartup(long replayedRecords, long replayMillis) {
+        Map<String, Object> timings = new LinkedHashMap<>(snapshotFile.stats());
+        timings.put("replayedRecords", replayedRecords);
+        timings.put("replayMillis", replayMillis);
+        // JVM start to state being current, including Spring context startup
+        long ready = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        timings.put("startToReadyMillis", ready);
+        startup = timings;
+        logger.info("Analytics state ready {} ms after start ({} records replayed in {} ms)", ready, replayedRecords, replayMillis);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("intervalMillis", intervalMillis);
+        stats.put("lastSnapshot", lastSnapshot);
+        stats.put("failures", failures);
+        stats.put("startup", startup);
+        return stats;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.analytics.aggregate;
+
+import org.example.analytics.model.AnalyticsEvent;
+import org.example.analytics.model.ItemAnalysisDocument;
+import org.example.analytics.model.QuestionResult;
+import org.example.analytics.model.SubmissionEvent;
+import org.example.analytics.repository.ItemAnalysisRepository;
+import org.example.analytics.snapshot.SnapshotFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemAnalysisTest {
+    private static final long QUIZ = 3L;
+
+    private final ItemAnalysisRepository repository = mock(ItemAnalysisRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(anyLong())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void countsASubmissionGradedTwiceOnce() {
+        ItemAnalysis items = itemAnalysis();
+        items.record(List.of(graded(1L, true), graded(2L, false)));
+        // The same submission graded again by another path
+        items.record(List.of(graded(1L, true)));
+
+        ItemStatistics stats = items.snapshot(QUIZ).get("10");
+        assertThat(stats.getResponses()).isEqualTo(2);
+        assertThat(stats.difficulty()).isEqualTo(0.5);
+    }
+
+    @Test
+    void remembersCountedSubmissionsAcrossASnapshot() throws IOException {
+        ItemAnalysis items = itemAnalysis();
+        items.record(List.of(graded(1L, true)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        items.writeSnapshot(new DataOutputStream(bytes));
+
+        ItemAnalysis restored = itemAnalysis();
+        restored.restoreSnapshot(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        restored.record(List.of(graded(1L, true), graded(2L, false)));
+
+        assertThat(restored.snapshot(QUIZ).get("10").getResponses()).isEqualTo(2);
+    }
+
+    @Test
+    void remembersCountedSubmissionsAcrossACheckpoint() {
+        ItemStatistics stats = new ItemStatistics();
+        stats.record(true, true, 0, null);
+        when(repository.findById(QUIZ)).thenReturn(Optional.of(
+                new ItemAnalysisDocument(QUIZ, Map.of("10", stats), Set.of(1L), LocalDateTime.now())));
+
+        ItemAnalysis items = itemAnalysis();
+        items.record(List.of(graded(1L, true), graded(2L, true)));
+
+        assertThat(items.snapshot(QUIZ).get("10").getResponses()).isEqualTo(2);
+    }
+
+    private ItemAnalysis itemAnalysis() {
+        ItemAnalysis items = new ItemAnalysis();
+        ReflectionTestUtils.setField(items, "repository", repository);
+        ReflectionTestUtils.setField(items, "snapshotFile", mock(SnapshotFile.class));
+        return items;
+    }
+
+    private static AnalyticsEvent graded(long submissionId, boolean correct) {
+        SubmissionEvent event = new SubmissionEvent();
+        event.setEventType("SUBMISSION_GRADED");
+        event.setSubmissionId(submissionId);
+        event.setQuizId(QUIZ);
+        event.setScore(correct ? 2 : 0);
+        event.setMaxScore(4);
+        event.setQuestionResults(List.of(new QuestionResult(10L, true, correct, 2, correct ? 0 : 1)));
+        return event;
+    }
+}
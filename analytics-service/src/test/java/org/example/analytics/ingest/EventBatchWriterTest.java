@@ -0,0 +1,100 @@
+package org.example.analytics.ingest;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.example.analytics.model.AnalyticsEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class EventBatchWriterTest {
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int VALIDATION_FAILED = 121;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulkOps = mock(BulkOperations.class);
+    private final EventBatchWriter writer = new EventBatchWriter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "mongoTemplate", mongoTemplate);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(AnalyticsEvent.class))).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+    }
+
+    @Test
+    void returnsTheWholeBatchWhenEverythingIsInserted() {
+        List<AnalyticsEvent> events = events(3);
+
+        assertThat(writer.insertAll(events)).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void treatsDuplicateKeysAsAlreadyApplied() {
+        List<AnalyticsEvent> events = events(4);
+        failWith(error(1, DUPLICATE_KEY), error(3, DUPLICATE_KEY));
+
+        // A redelivered batch: the events already in Mongo are not reported as newly written
+        assertThat(writer.insertAll(events)).extracting(AnalyticsEvent::getId).containsExactly("events-0-0", "events-0-2");
+    }
+
+    @Test
+    void dropsDocumentsThatFailForOtherReasonsAndKeepsTheRest() {
+        List<AnalyticsEvent> events = events(5);
+        failWith(error(0, VALIDATION_FAILED), error(2, DUPLICATE_KEY), error(4, VALIDATION_FAILED));
+
+        assertThat(writer.insertAll(events)).extracting(AnalyticsEvent::getId).containsExactly("events-0-1", "events-0-3");
+    }
+
+    @Test
+    void propagatesErrorsThatAreNotPerDocument() {
+        when(bulkOps.execute()).thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        // The batch is retried and the offsets stay put
+        assertThatThrownBy(() -> writer.insertAll(events(2))).isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    void skipsMongoForAnEmptyBatch() {
+        assertThat(writer.insertAll(List.of())).isEmpty();
+        verifyNoInteractions(bulkOps);
+    }
+
+    private void failWith(BulkWriteError... errors) {
+        BulkOperationException exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(errors));
+        when(bulkOps.execute()).thenThrow(exception);
+    }
+
+    private static BulkWriteError error(int index, int code) {
+        return new BulkWriteError(code, "write error " + code, new BsonDocument(), index);
+    }
+
+    // Ids as the listener derives them from the Kafka topic, partition and offset
+    private static List<AnalyticsEvent> events(int count) {
+        List<AnalyticsEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AnalyticsEvent event = new AnalyticsEvent();
+            event.setId("events-0-" + i);
+            event.setEventType("QUIZ_CREATED");
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.analytics.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+    // Two 20-byte records (plus 8-byte headers) fit in a segment
+    private static final int SEGMENT_BYTES = 64;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void recoversUpToATornWrite() throws IOException {
+        WriteAheadLog log = open();
+        log.append(records("a", 3));
+        long end = log.appendPosition();
+
+        // A record whose payload was not fully written: the length is there, the checksum does not match
+        try (RandomAccessFile segment = new RandomAccessFile(segmentFile(0).toFile(), "rw")) {
+            segment.seek(end);
+            segment.writeInt(20);
+            segment.writeInt(12345);
+            segment.write("torn".getBytes(StandardCharsets.UTF_8));
+        }
+
+        WriteAheadLog recovered = open();
+        assertThat(recovered.appendPosition()).isEqualTo(end);
+        assertThat(recovered.stats()).containsEntry("pendingRecords", 3L);
+        assertThat(payloads(recovered.read(10))).containsExactly("a-000000000000000000", "a-000000000000000001", "a-000000000000000002");
+
+        // The torn bytes were zeroed, so a new record after them is read back intact
+        recovered.append(records("b", 1));
+        WriteAheadLog reopened = open();
+        assertThat(payloads(reopened.read(10))).hasSize(4).last().isEqualTo("b-000000000000000000");
+    }
+
+    @Test
+    void rollsToTheNextSegmentWhenOneIsFull() throws IOException {
+        WriteAheadLog log = open();
+        log.append(records("a", 5));
+
+        assertThat(segmentFiles()).hasSize(3);
+        assertThat(log.appendPosition()).isEqualTo(2L * SEGMENT_BYTES + 28);
+        WriteAheadLog.Batch batch = log.read(10);
+        assertThat(payloads(batch)).hasSize(5).first().isEqualTo("a-000000000000000000");
+        assertThat(batch.end()).isEqualTo(log.appendPosition());
+
+        List<String> scanned = new ArrayList<>();
+        log.forEach(SEGMENT_BYTES, log.appendPosition(), record -> scanned.add(new String(record, StandardCharsets.UTF_8)));
+        assertThat(scanned).containsExactly("a-000000000000000002", "a-000000000000000003", "a-000000000000000004");
+    }
+
+    @Test
+    void keepsSegmentsFromTheEarliestRetainedPosition() throws IOException {
+        WriteAheadLog log = open();
+        log.append(records("a", 6));
+        log.retain("snapshot", 0);
+        log.retain("counters", SEGMENT_BYTES);
+
+        log.commit(log.read(6));
+        assertThat(log.drainPosition()).isEqualTo(log.appendPosition());
+        assertThat(log.covers(0)).isTrue();
+        assertThat(segmentFiles()).hasSize(3);
+
+        // Only the first segment is behind every holder once the snapshot moves on
+        log.retain("snapshot", 2L * SEGMENT_BYTES);
+        log.append(records("b", 1));
+        log.commit(log.read(1));
+        assertThat(log.covers(0)).isFalse();
+        assertThat(log.covers(SEGMENT_BYTES)).isTrue();
+        assertThat(segmentFiles()).hasSize(3);
+
+        // Replaying records the holders still need works after the deletion
+        assertThat(payloads(log.read(SEGMENT_BYTES, log.drainPosition(), 10))).hasSize(5);
+    }
+
+    @Test
+    void resumesFromThePersistedCursor() throws IOException {
+        WriteAheadLog log = open();
+        log.append(records("a", 3));
+        log.commit(log.read(2));
+
+        WriteAheadLog reopened = open();
+        assertThat(reopened.drainPosition()).isEqualTo(log.drainPosition());
+        assertThat(payloads(reopened.read(10))).containsExactly("a-000000000000000002");
+    }
+
+    private WriteAheadLog open() throws IOException {
+        WriteAheadLog log = new WriteAheadLog();
+        ReflectionTestUtils.setField(log, "dataDir", dataDir.toString());
+        ReflectionTestUtils.setField(log, "segmentBytes", SEGMENT_BYTES);
+        ReflectionTestUtils.setField(log, "fsync", false);
+        log.open();
+        return log;
+    }
+
+    // 20-byte payloads
+    private static List<byte[]> records(String prefix, int count) {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(String.format("%s-%018d", prefix, i).getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private static List<String> payloads(WriteAheadLog.Batch batch) {
+        return batch.records().stream().map(record -> new String(record, StandardCharsets.UTF_8)).toList();
+    }
+
+    private Path segmentFile(long segment) {
+        return dataDir.resolve("ingest-buffer").resolve(String.format("%016d.wal", segment));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir.resolve("ingest-buffer"))) {
+            return files.filter(path -> path.toString().endsWith(".wal")).toList();
+        }
+    }
+}
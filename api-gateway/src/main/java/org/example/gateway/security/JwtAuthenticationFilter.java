@@ -2,6 +2,7 @@ package org.example.gateway.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,13 +17,19 @@ import java.util.ArrayList;
 
 @Component
 public class JwtAuthenticationFilter implements WebFilter {
+    // Identity of the authenticated caller, set from the token for downstream services
+    public static final String USER_ID_HEADER = "X-User-Id";
 
     @Autowired
     private JwtUtil jwtUtil;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
+        // A client-supplied identity header is never passed on
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> headers.remove(USER_ID_HEADER))
+                .build();
+        exchange = exchange.mutate().request(request).build();
         String path = request.getPath().value();
 
         // Skip authentication for public endpoints
@@ -40,7 +47,7 @@ public class JwtAuthenticationFilter implements WebFilter {
                 String role = jwtUtil.extractRole(token);
 
                 // Role-based path protection
-                if (!isAuthorized(path, role)) {
+                if (!isAuthorized(request.getMethod(), path, role)) {
                     exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
                     return exchange.getResponse().setComplete();
                 }
@@ -48,6 +55,13 @@ public class JwtAuthenticationFilter implements WebFilter {
                 UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(username, null, new ArrayList<>());
 
+                Long userId = jwtUtil.extractUserId(token);
+                if (userId != null) {
+                    exchange = exchange.mutate()
+                        .request(request.mutate().header(USER_ID_HEADER, userId.toString()).build())
+                        .build();
+                }
+
                 return chain.filter(exchange)
                     .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
             } else {
@@ -62,14 +76,14 @@ public class JwtAuthenticationFilter implements WebFilter {
         return exchange.getResponse().setComplete();
     }
 
-    private boolean isAuthorized(String path, String role) {
+    private boolean isAuthorized(HttpMethod method, String path, String role) {
         if (role == null) {
             return false;
         }
 
-        // Analytics endpoints - only ADMIN and TEACHER
-        if (path.contains("/analytics-service") || path.contains("/analytics")) {
-            return role.equals("ADMIN") || role.equals("TEACHER");
+        // Service-to-service endpoints are never exposed through the gateway
+        if (path.contains("/internal/")) {
+            return false;
         }
 
         // Admin-specific endpoints - only ADMIN
@@ -77,8 +91,14 @@ public class JwtAuthenticationFilter implements WebFilter {
             return role.equals("ADMIN");
         }
 
-        // Quiz management endpoints - ADMIN and TEACHER
-        if ((path.contains("/quiz-service") && (path.contains("/create") || path.contains("/update") || path.contains("/delete")))) {
+        // Analytics endpoints - only ADMIN and TEACHER
+        if (path.contains("/analytics-service") || path.contains("/analytics")) {
+            return role.equals("ADMIN") || role.equals("TEACHER");
+        }
+
+        // Quiz management endpoints - ADMIN and TEACHER. Students only read from quiz-service,
+        // so every write is management whatever its path
+        if (path.contains("/quiz-service") && (!isRead(method) || path.contains("/authoring"))) {
             return role.equals("ADMIN") || role.equals("TEACHER");
         }
 
@@ -90,5 +110,8 @@ public class JwtAuthenticationFilter implements WebFilter {
         // All other endpoints are accessible by all authenticated users
         return true;
     }
-}
 
+    private boolean isRead(HttpMethod method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method);
+    }
+}
@@ -46,6 +46,12 @@ public class JwtUtil {
         return extractClaim(token, claims -> claims.get("role", String.class));
     }
 
+    // Null for tokens issued before the claim existed
+    public Long extractUserId(String token) {
+        Number userId = extractClaim(token, claims -> claims.get("userId", Number.class));
+        return userId != null ? userId.longValue() : null;
+    }
+
     public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
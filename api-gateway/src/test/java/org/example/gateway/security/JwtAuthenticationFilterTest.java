@@ -0,0 +1,101 @@
+package org.example.gateway.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationFilterTest {
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hmac-sha-256";
+
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+    }
+
+    @Test
+    void studentCannotBulkDeleteQuestions() {
+        assertThat(status(HttpMethod.POST, "/api/quiz-service/quizzes/questions/bulk-delete", "STUDENT"))
+                .isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void studentCannotWriteToQuizServiceWhateverThePath() {
+        assertThat(status(HttpMethod.POST, "/api/quiz-service/quizzes", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(status(HttpMethod.PUT, "/api/quiz-service/quizzes/5", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(status(HttpMethod.DELETE, "/api/quiz-service/quizzes/5", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(status(HttpMethod.DELETE, "/api/quiz-service/quizzes/questions/9", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(status(HttpMethod.POST, "/api/quiz-service/quizzes/5/questions/import", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(status(HttpMethod.GET, "/api/quiz-service/quizzes/5/authoring", "STUDENT")).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void studentCanReadQuizzes() {
+        assertThat(status(HttpMethod.GET, "/api/quiz-service/quizzes/5", "STUDENT")).isNull();
+        assertThat(status(HttpMethod.GET, "/api/quiz-service/quizzes/5/variant", "STUDENT")).isNull();
+    }
+
+    @Test
+    void teacherCanManageQuizzes() {
+        assertThat(status(HttpMethod.POST, "/api/quiz-service/quizzes/questions/bulk-delete", "TEACHER")).isNull();
+        assertThat(status(HttpMethod.POST, "/api/quiz-service/quizzes", "ADMIN")).isNull();
+    }
+
+    @Test
+    void rejectsMissingAndInvalidTokens() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/quiz-service/quizzes"));
+        filter.filter(exchange, passed -> Mono.empty()).block();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/quiz-service/quizzes")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token"));
+        filter.filter(exchange, passed -> Mono.empty()).block();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    // The status the filter set, or null when it passed the request on
+    private HttpStatusCode status(HttpMethod method, String path, String role) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token(role)));
+        AtomicReference<String> forwardedUser = new AtomicReference<>();
+        filter.filter(exchange, passed -> {
+            forwardedUser.set(passed.getRequest().getHeaders().getFirst(JwtAuthenticationFilter.USER_ID_HEADER));
+            return Mono.empty();
+        }).block();
+        if (forwardedUser.get() != null) {
+            assertThat(forwardedUser.get()).isEqualTo("42");
+            return null;
+        }
+        return exchange.getResponse().getStatusCode();
+    }
+
+    private static String token(String role) {
+        return Jwts.builder()
+                .claim("role", role)
+                .claim("userId", 42)
+                .subject("user")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -174,7 +174,7 @@ export default function QuizManager({ user }) {
                     <p>{quiz.description}</p>
                     <div className="quiz-meta">
                       <span>⏱ {quiz.timeLimit || 'Unlimited'} min</span>
-                      <span>❓ {quiz.questions?.length || 0} questions</span>
+                      <span>❓ {quiz.questionCount || 0} questions</span>
                     </div>
                     <div style={{ display: 'flex', gap: '10px' }}>
                       <button 
@@ -215,7 +215,7 @@ export default function QuizManager({ user }) {
                     <p>{quiz.description}</p>
                     <div className="quiz-meta">
                       <span>⏱ {quiz.timeLimit || 'Unlimited'} min</span>
-                      <span>❓ {quiz.questions?.length || 0} questions</span>
+                      <span>❓ {quiz.questionCount || 0} questions</span>
                     </div>
                     <div style={{ display: 'flex', gap: '10px' }}>
                       <button 
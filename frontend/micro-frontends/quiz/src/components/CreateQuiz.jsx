@@ -34,7 +34,7 @@ function CreateQuiz({ onQuizCreated }) {
   const fetchQuestions = useCallback(async () => {
     if (quizId) {
       try {
-        const response = await api.get(`/quiz-service/quizzes/${quizId}`);
+        const response = await api.get(`/quiz-service/quizzes/${quizId}/authoring`);
         setQuestions(response.data.questions || []);
       } catch (err) {
         console.error('Error fetching questions:', err);
@@ -17,7 +17,10 @@ api.interceptors.request.use((config) => {
 });
 
 const quizAPI = {
-  getById: (id) => api.get(`/quiz-service/quizzes/${id}`),
+  // Only teachers and admins may read the answers; everyone else gets the student view
+  getById: (id, role) => (role === 'TEACHER' || role === 'ADMIN'
+    ? api.get(`/quiz-service/quizzes/${id}/authoring`)
+    : api.get(`/quiz-service/quizzes/${id}`)),
 };
 
 function QuizDetail({ user }) {
@@ -35,12 +38,12 @@ function QuizDetail({ user }) {
 
   useEffect(() => {
     fetchQuiz();
-  }, [quizId]);
+  }, [quizId, user?.role]);
 
   const fetchQuiz = async () => {
     try {
       setLoading(true);
-      const response = await quizAPI.getById(quizId);
+      const response = await quizAPI.getById(quizId, user?.role);
       setQuiz(response.data);
       setError('');
     } catch (err) {
@@ -18,11 +18,15 @@ api.interceptors.request.use((config) => {
 
 const quizAPI = {
   getById: (id) => api.get(`/quiz-service/quizzes/${id}`),
+  // Per-student draw/shuffle for pooled quizzes; identical to getById otherwise.
+  // The student is the one in the token, never a parameter
+  getVariant: (id) => api.get(`/quiz-service/quizzes/${id}/variant`),
 };
 
 const submissionAPI = {
-  start: (quizId, userId) =>
-    api.post(`/submissions/start?quizId=${quizId}&userId=${userId}`),
+  // quizVersion fixes the variant this student was shown for grading
+  start: (quizId, userId, quizVersion) =>
+    api.post('/submissions/start', null, { params: { quizId, userId, quizVersion } }),
 
   submit: (submissionId, answers) =>
     api.post(`/submissions/${submissionId}/submit`, answers),
@@ -35,7 +39,6 @@ export default function TakeQuiz({ quizId, user }) {
   const [error, setError] = useState('');
   const [answers, setAnswers] = useState({});
   const [submitted, setSubmitted] = useState(false);
-  const [submissionScore, setSubmissionScore] = useState(0);
   const [submissionId, setSubmissionId] = useState(null);
   const [currentQuestionIndex, setCurrentQuestionIndex] = useState(0);
 
@@ -48,7 +51,9 @@ export default function TakeQuiz({ quizId, user }) {
   const fetchQuiz = async () => {
     try {
       setLoading(true);
-      const response = await quizAPI.getById(quizId);
+      const response = user?.id
+        ? await quizAPI.getVariant(quizId)
+        : await quizAPI.getById(quizId);
       setQuiz(response.data);
       setError('');
 
@@ -95,20 +100,11 @@ export default function TakeQuiz({ quizId, user }) {
       console.log('Submitting quiz with userId:', user.id, 'quizId:', quiz.id);
 
       // First, start a submission to get a submission ID
-      const startResponse = await submissionAPI.start(quiz.id, user.id);
+      const startResponse = await submissionAPI.start(quiz.id, user.id, quiz.version);
       const submissionId = startResponse.data.id;
       setSubmissionId(submissionId);
 
-      // Calculate score
-      let correctCount = 0;
-      quiz.questions.forEach((question) => {
-        if (answers[question.id] === question.correctOptionIndex) {
-          correctCount++;
-        }
-      });
-
-      const score = Math.round((correctCount / quiz.questions.length) * 100);
-
+      // The student view carries no answers; the score comes back from grading-function
       // Convert answers to the format expected by the backend (questionId -> answer string/text)
       const answersPayload = {};
       console.log('📝 Converting answers to text format...');
@@ -130,11 +126,14 @@ export default function TakeQuiz({ quizId, user }) {
       const submitResponse = await submissionAPI.submit(submissionId, answersPayload);
 
       console.log('Quiz submitted successfully:', submitResponse.data);
-      setSubmissionScore(score);
       setSubmitted(true);
       setError('');
     } catch (err) {
       console.error('Error submitting quiz:', err);
+      if (err.response?.status === 409) {
+        setError('This quiz was changed while you were taking it. Please reload it and answer again.');
+        return;
+      }
       setError('Failed to submit quiz. Please try again.');
     }
   };
@@ -166,10 +165,10 @@ export default function TakeQuiz({ quizId, user }) {
             color: '#155724',
             marginBottom: '20px'
           }}>
-            Your Score: {submissionScore}%
+            Grading in progress...
           </div>
           <p style={{ color: '#155724', fontSize: '1.1em', marginBottom: '20px' }}>
-            Thank you for taking the quiz.
+            Thank you for taking the quiz. Your score will appear on the dashboard once grading completes.
           </p>
           <button
             onClick={handleBackToDashboard}
@@ -9,7 +9,7 @@ class NotificationService {
     this.subscriptions = [];
   }
 
-  connect(username, onMessageReceived) {
+  connect(userId, onMessageReceived) {
     try {
       if (onMessageReceived && !this.messageCallbacks.includes(onMessageReceived)) {
         this.messageCallbacks.push(onMessageReceived);
@@ -32,6 +32,8 @@ class NotificationService {
 
       this.client = new Client({
         webSocketFactory: () => socket,
+        // Lets the server replay this user's missed notifications
+        connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
         reconnectDelay: 5000,
         heartbeatIncoming: 4000,
         heartbeatOutgoing: 4000,
@@ -40,7 +42,7 @@ class NotificationService {
       this.client.onConnect = () => {
         console.log(' Connected to WebSocket');
         this.connected = true;
-        this._subscribeToTopics(username);
+        this._subscribeToTopics(userId);
       };
 
       this.client.onStompError = (frame) => {
@@ -55,10 +57,10 @@ class NotificationService {
     }
   }
 
-  _subscribeToTopics(username) {
+  _subscribeToTopics(userId) {
     if (!this.client) return;
 
-    const userSub = this.client.subscribe(`/queue/user-${username}`, (message) => {
+    const userSub = this.client.subscribe(`/queue/user-${userId}`, (message) => {
       const notification = JSON.parse(message.body);
       this.messageCallbacks.forEach(cb => {
         try {
@@ -94,7 +96,7 @@ class NotificationService {
     });
     this.subscriptions.push(quizSub);
 
-    console.log(' All subscriptions active for user: ' + username);
+    console.log(' All subscriptions active for user: ' + userId);
   }
 
   disconnect() {
@@ -44,7 +44,7 @@ function App() {
       setUser(userData);
       
       // Connect to notification service
-      NotificationService.connect(username, handleNotification);
+      NotificationService.connect(userData.id, handleNotification);
     }
     setLoading(false);
   }, [handleNotification]);
@@ -95,7 +95,7 @@ function App() {
     localStorage.setItem('lastName', userData.lastName || '');
     
     // Connect WebSocket
-    NotificationService.connect(userData.username, handleNotification);
+    NotificationService.connect(userData.id, handleNotification);
   };
 
   const handleLogout = () => {
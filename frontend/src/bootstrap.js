@@ -22,7 +22,8 @@ function App() {
   // Unified notification handler - this is the SINGLE callback for ALL notifications
   const handleNotification = useCallback((notification) => {
     console.log('🔔 [App] Notification received:', notification);
-    const notifWithId = { ...notification, id: Date.now() };
+    // Batched frames deliver several notifications within the same millisecond
+    const notifWithId = { ...notification, id: `${Date.now()}-${Math.random()}` };
     setNotifications(prev => [...prev, notifWithId]);
     
     // Auto-dismiss after 5 seconds
@@ -46,7 +47,7 @@ function App() {
 
       // Connect to WebSocket with the unified handler (non-blocking)
       console.log('🔌 [App] Connecting to WebSocket for user:', username);
-      NotificationService.connect(username, handleNotification).catch(err => {
+      NotificationService.connect(userId, handleNotification).catch(err => {
         console.warn('WebSocket connection failed, continuing without notifications:', err);
       });
     }
@@ -68,7 +69,7 @@ function App() {
 
     // Connect to WebSocket with the unified handler (non-blocking)
     console.log('🔌 [App] Connecting to WebSocket for user:', userData.username);
-    NotificationService.connect(userData.username, handleNotification).catch(err => {
+    NotificationService.connect(userData.id, handleNotification).catch(err => {
       console.warn('WebSocket connection failed, continuing without notifications:', err);
     });
   }, [handleNotification]);
@@ -9,9 +9,15 @@ class NotificationService {
     this.messageCallbacks = [];
     this.subscriptions = [];
     this.connectionPromise = null;  // Track pending connection
+    // Per-user seqs of the current stream: everything up to lastSeq was received (sent on
+    // resubscribe to replay what was missed), pendingSeqs holds the ones received beyond a gap
+    this.lastSeq = null;
+    this.stream = null;
+    this.pendingSeqs = new Set();
   }
 
-  connect(username, onMessageReceived) {
+  // userId: per-user notifications are addressed to /queue/user-{userId}
+  connect(userId, onMessageReceived) {
     // Add callback to the list
     if (onMessageReceived && !this.messageCallbacks.includes(onMessageReceived)) {
       this.messageCallbacks.push(onMessageReceived);
@@ -42,6 +48,8 @@ class NotificationService {
 
         this.client = new Client({
           webSocketFactory: () => socket,
+          // Lets the server replay this user's missed notifications
+          connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
           reconnectDelay: 5000,
           heartbeatIncoming: 4000,
           heartbeatOutgoing: 4000,
@@ -49,7 +57,7 @@ class NotificationService {
             console.log(' Connected to WebSocket');
             this.connected = true;
             this.connecting = false;
-            this._subscribeToTopics(username);
+            this._subscribeToTopics(userId);
             resolve();
           },
           onStompError: (frame) => {
@@ -93,36 +101,80 @@ class NotificationService {
     return this.connectionPromise;
   }
 
-  _subscribeToTopics(username) {
-    if (!this.client) return;
-
-    // Subscribe to user-specific notifications (student submissions)
-    const userSub = this.client.subscribe(`/queue/user-${username}`, (message) => {
-      const notification = JSON.parse(message.body);
-      console.log(' Received user-specific notification:', notification);
+  // Bursts arrive as one BATCH frame holding the individual notifications; admin topics get
+  // a SUMMARY frame instead, which is delivered as is
+  _deliver(notification) {
+    const notifications = notification.type === 'BATCH' ? notification.notifications : [notification];
+    notifications.forEach(item => {
       // Call ALL registered callbacks
       this.messageCallbacks.forEach(cb => {
         try {
-          cb(notification);
+          cb(item);
         } catch (e) {
           console.error('Error in notification callback:', e);
         }
       });
     });
+  }
+
+  // Per-user notifications carry seq/stream. After a reconnect the replay and live frames can
+  // arrive in either order and overlap, so each seq is delivered once and lastSeq only moves
+  // past seqs that were actually received. A replay holds everything still retained up to its
+  // last seq, so anything missing below that is gone and no longer holds lastSeq back.
+  _deliverUser(notification) {
+    if (notification.replay && notification.truncated) {
+      console.warn('Some notifications sent while disconnected are no longer available');
+    }
+    const items = notification.type === 'BATCH' ? notification.notifications : [notification];
+    const fresh = items.filter(item => {
+      if (item.seq == null) return true;
+      if (item.stream !== this.stream) {
+        // Resuming on a new stream (ring reused or another node): its replay brings all it holds.
+        // On a first subscription nothing is replayed, so earlier seqs are not waited for
+        const resuming = this.stream != null;
+        this.stream = item.stream;
+        this.lastSeq = resuming || notification.replay ? 0 : item.seq - 1;
+        this.pendingSeqs = new Set();
+      }
+      if (item.seq <= this.lastSeq || this.pendingSeqs.has(item.seq)) return false;
+      this.pendingSeqs.add(item.seq);
+      return true;
+    });
+    if (notification.replay) {
+      items.forEach(item => {
+        if (item.seq != null && item.stream === this.stream && item.seq > this.lastSeq) {
+          this.lastSeq = item.seq;
+        }
+      });
+    }
+    while (this.pendingSeqs.has(this.lastSeq + 1)) {
+      this.lastSeq += 1;
+    }
+    this.pendingSeqs.forEach(seq => {
+      if (seq <= this.lastSeq) this.pendingSeqs.delete(seq);
+    });
+    if (fresh.length > 0) {
+      this._deliver({ type: 'BATCH', notifications: fresh });
+    }
+  }
+
+  _subscribeToTopics(userId) {
+    if (!this.client) return;
+
+    // Subscribe to user-specific notifications (student submissions), resuming after the last one seen
+    const resume = this.lastSeq != null ? { since: String(this.lastSeq), stream: String(this.stream) } : {};
+    const userSub = this.client.subscribe(`/queue/user-${userId}`, (message) => {
+      const notification = JSON.parse(message.body);
+      console.log(' Received user-specific notification:', notification);
+      this._deliverUser(notification);
+    }, resume);
     this.subscriptions.push(userSub);
 
     // Subscribe to general notifications
     const generalSub = this.client.subscribe('/topic/notifications', (message) => {
       const notification = JSON.parse(message.body);
       console.log(' Received general notification:', notification);
-      // Call ALL registered callbacks
-      this.messageCallbacks.forEach(cb => {
-        try {
-          cb(notification);
-        } catch (e) {
-          console.error('Error in notification callback:', e);
-        }
-      });
+      this._deliver(notification);
     });
     this.subscriptions.push(generalSub);
 
@@ -130,14 +182,7 @@ class NotificationService {
     const quizSub = this.client.subscribe('/topic/quizzes', (message) => {
       const notification = JSON.parse(message.body);
       console.log(' Received quiz notification:', notification);
-      // Call ALL registered callbacks
-      this.messageCallbacks.forEach(cb => {
-        try {
-          cb(notification);
-        } catch (e) {
-          console.error('Error in notification callback:', e);
-        }
-      });
+      this._deliver(notification);
     });
     this.subscriptions.push(quizSub);
 
@@ -145,18 +190,11 @@ class NotificationService {
     const adminSub = this.client.subscribe('/topic/admin-notifications', (message) => {
       const notification = JSON.parse(message.body);
       console.log(' Received admin notification:', notification);
-      // Call ALL registered callbacks
-      this.messageCallbacks.forEach(cb => {
-        try {
-          cb(notification);
-        } catch (e) {
-          console.error('Error in notification callback:', e);
-        }
-      });
+      this._deliver(notification);
     });
     this.subscriptions.push(adminSub);
 
-    console.log('All subscriptions active for user: ' + username);
+    console.log('All subscriptions active for user: ' + userId);
   }
 
   disconnect() {
@@ -176,6 +214,9 @@ class NotificationService {
     
     // Clear callbacks for clean slate
     this.messageCallbacks = [];
+    this.lastSeq = null;
+    this.stream = null;
+    this.pendingSeqs = new Set();
     
     // Deactivate client
     if (this.client) {
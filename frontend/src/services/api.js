@@ -50,6 +50,8 @@ export const analyticsAPI = {
   getDashboard: () => api.get('/analytics/dashboard'),
   getQuizStats: () => api.get('/analytics/quiz-stats'),
   getUserStats: () => api.get('/analytics/user-stats'),
+  // SSE stream of dashboard snapshot/delta events (needs a fetch-based reader to send the token)
+  streamUrl: `${API_BASE_URL}/analytics/stream`,
 };
 
 export default api;
@@ -0,0 +1,155 @@
+package org.example.grading.answerkey;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view over the binary answer key produced by quiz-service's AnswerKeyCodec.
+ * Construction walks the buffer once to record where each question starts; every accessor then
+ * reads straight from the buffer, so no per-question objects or strings are created.
+ *
+ * <pre>
+ * header   magic "QAK1" | u16 format | i64 quizId | i64 quizVersion | u8 flags | i32 questionCount
+ * question i64 id | u8 type | i32 points | u16 answerCount | u16 optionCount | u64 correctOptionMask
+ *          | answerCount x u64 answer hash | optionCount x u64 option hash
+ * </pre>
+ */
+public final class AnswerKey {
+
+    public static final int MAGIC = 0x51414B31; // "QAK1"
+    public static final short FORMAT = 1;
+    public static final int FLAG_VARIANTS = 1;
+    // Ordinal of Question.QuestionType.MULTIPLE_CHOICE in quiz-service
+    public static final int TYPE_MULTIPLE_CHOICE = 0;
+
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8 + 1 + 4;
+    private static final int OFF_TYPE = 8;
+    private static final int OFF_POINTS = 9;
+    private static final int OFF_ANSWER_COUNT = 13;
+    private static final int OFF_OPTION_COUNT = 15;
+    private static final int OFF_MASK = 17;
+    private static final int OFF_HASHES = 25;
+
+    private final ByteBuffer buffer;
+    private final long quizId;
+    private final long version;
+    private final int flags;
+    private final int[] offsets;
+
+    public AnswerKey(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        int base = this.buffer.position();
+        if (this.buffer.getInt(base) != MAGIC) {
+            throw new IllegalArgumentException("Not an answer key");
+        }
+        short format = this.buffer.getShort(base + 4);
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unsupported answer key format " + format);
+        }
+        this.quizId = this.buffer.getLong(base + 6);
+        this.version = this.buffer.getLong(base + 14);
+        this.flags = this.buffer.get(base + 22);
+        int count = this.buffer.getInt(base + 23);
+
+        this.offsets = new int[count];
+        int offset = base + HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            int hashes = (this.buffer.getShort(offset + OFF_ANSWER_COUNT) & 0xffff)
+                    + (this.buffer.getShort(offset + OFF_OPTION_COUNT) & 0xffff);
+            offset += OFF_HASHES + 8 * hashes;
+        }
+        if (offset > this.buffer.limit()) {
+            throw new IllegalArgumentException("Truncated answer key");
+        }
+    }
+
+    public long quizId() {
+        return quizId;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean usesVariants() {
+        return (flags & FLAG_VARIANTS) != 0;
+    }
+
+    public int questionCount() {
+        return offsets.length;
+    }
+
+    public long questionId(int i) {
+        return buffer.getLong(offsets[i]);
+    }
+
+    public int type(int i) {
+        return buffer.get(offsets[i] + OFF_TYPE);
+    }
+
+    public int points(int i) {
+        return buffer.getInt(offsets[i] + OFF_POINTS);
+    }
+
+    public int optionCount(int i) {
+        return buffer.getShort(offsets[i] + OFF_OPTION_COUNT) & 0xffff;
+    }
+
+    public boolean hasCorrectAnswers(int i) {
+        return answerCount(i) > 0;
+    }
+
+    public boolean isCorrectAnswer(int i, long answerHash) {
+        int start = offsets[i] + OFF_HASHES;
+        return containsHash(start, answerCount(i), answerHash);
+    }
+
+    public boolean isOptionText(int i, long answerHash) {
+        return optionIndexOf(i, answerHash) >= 0;
+    }
+
+    // Authored index of the option with this text hash, -1 if none
+    public int optionIndexOf(int i, long answerHash) {
+        int start = offsets[i] + OFF_HASHES + 8 * answerCount(i);
+        int count = optionCount(i);
+        for (int j = 0; j < count; j++) {
+            if (buffer.getLong(start + 8 * j) == answerHash) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    // originalIndex is in authored option order
+    public boolean isCorrectOption(int i, int originalIndex) {
+        if (originalIndex < 0 || originalIndex >= Math.min(optionCount(i), 64)) {
+            return false;
+        }
+        long mask = buffer.getLong(offsets[i] + OFF_MASK);
+        return (mask & (1L << originalIndex)) != 0;
+    }
+
+    private int answerCount(int i) {
+        return buffer.getShort(offsets[i] + OFF_ANSWER_COUNT) & 0xffff;
+    }
+
+    private boolean containsHash(int start, int count, long hash) {
+        for (int j = 0; j < count; j++) {
+            if (buffer.getLong(start + 8 * j) == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Must match AnswerKeyCodec.hash in quiz-service: 64-bit FNV-1a over UTF-8
+    public static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.grading.answerkey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetches answer keys from quiz-service and keeps the last one per quiz. Every lookup revalidates
+ * with If-None-Match, so an unchanged quiz costs a bodyless 304 instead of a download.
+ */
+@Component
+public class AnswerKeyClient {
+    private static final Logger logger = LoggerFactory.getLogger(AnswerKeyClient.class);
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Value("${quiz.service.url}")
+    private String quizServiceUrl;
+
+    private final Map<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    private record Cached(String etag, AnswerKey key) {
+    }
+
+    public AnswerKey get(Long quizId) {
+        Cached cached = cache.get(quizId);
+        Cached fresh = webClientBuilder.build()
+            .get()
+            .uri(quizServiceUrl + "/internal/quizzes/" + quizId + "/answer-key")
+            .headers(headers -> {
+                if (cached != null) {
+                    headers.setIfNoneMatch(cached.etag());
+                }
+            })
+            .exchangeToMono(response -> {
+                if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                    return response.releaseBody().thenReturn(cached);
+                }
+                if (response.statusCode().isError()) {
+                    return response.createError();
+                }
+                String etag = response.headers().asHttpHeaders().getFirst(HttpHeaders.ETAG);
+                return response.bodyToMono(byte[].class)
+                    .map(bytes -> new Cached(etag, new AnswerKey(ByteBuffer.wrap(bytes))));
+            })
+            .block();
+
+        if (fresh == null) {
+            throw new RuntimeException("Quiz not found");
+        }
+        if (fresh != cached) {
+            cache.put(quizId, fresh);
+            logger.info(" Loaded answer key for quiz {} v{} ({} questions)", quizId, fresh.key().version(),
+                fresh.key().questionCount());
+        }
+        return fresh.key();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.grading.controller;
 
+import org.example.grading.answerkey.AnswerKeyClient;
 import org.example.grading.dto.GradingRequest;
 import org.example.grading.dto.GradingResponse;
 import org.example.grading.function.GradingFunction;
@@ -16,11 +17,20 @@ public class GradingController {
     @Autowired
     private GradingFunction gradingFunction;
 
+    @Autowired
+    private AnswerKeyClient answerKeyClient;
+
     @PostMapping("/grade")
     public ResponseEntity<GradingResponse> grade(@RequestBody GradingRequest request) {
         Function<GradingRequest, GradingResponse> function = gradingFunction.gradeSubmission();
         GradingResponse response = function.apply(request);
         return ResponseEntity.ok(response);
     }
-}
 
+    // Called by quiz-service shortly before a scheduled quiz starts
+    @PostMapping("/answer-keys/{quizId}/warm")
+    public ResponseEntity<Void> warmAnswerKey(@PathVariable Long quizId) {
+        answerKeyClient.get(quizId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,6 +3,7 @@ package org.example.grading.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.grading.model.VariantKey;
 
 import java.util.Map;
 
@@ -13,5 +14,10 @@ public class GradingRequest {
     private Long submissionId;
     private Long quizId;
     private Map<Long, String> answers;
+    // Needed to recompute the student's question-pool variant
+    private Long userId;
+    // The variant the student received, fixed when the submission started; null for
+    // submissions started without a quiz version
+    private VariantKey variant;
 }
 
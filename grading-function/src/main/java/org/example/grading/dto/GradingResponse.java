@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,5 +13,7 @@ public class GradingResponse {
     private Long submissionId;
     private Integer score;
     private Integer maxScore;
+    // Per-question outcome of the questions this student was graded on
+    private List<QuestionResult> questionResults;
 }
 
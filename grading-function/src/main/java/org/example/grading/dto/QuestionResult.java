@@ -0,0 +1,17 @@
+package org.example.grading.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionResult {
+    private Long questionId;
+    private boolean answered;
+    private boolean correct;
+    private Integer points;
+    // Chosen option in authored order, null when the answer is not one of the options
+    private Integer optionIndex;
+}
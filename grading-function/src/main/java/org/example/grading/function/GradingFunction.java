@@ -1,9 +1,11 @@
 package org.example.grading.function;
 
+import org.example.grading.answerkey.AnswerKey;
+import org.example.grading.answerkey.AnswerKeyClient;
 import org.example.grading.dto.GradingRequest;
 import org.example.grading.dto.GradingResponse;
-import org.example.grading.model.Question;
-import org.example.grading.model.Quiz;
+import org.example.grading.dto.QuestionResult;
+import org.example.grading.model.VariantKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 
 @Component
@@ -21,6 +28,9 @@ public class GradingFunction {
     @Autowired
     private WebClient.Builder webClientBuilder;
 
+    @Autowired
+    private AnswerKeyClient answerKeyClient;
+
     @Value("${quiz.service.url}")
     private String quizServiceUrl;
 
@@ -30,56 +40,113 @@ public class GradingFunction {
             logger.info("GRADING: Submission ID {}, Quiz ID {}", request.getSubmissionId(), request.getQuizId());
             logger.info("Student answers: {}", request.getAnswers());
             
-            // Fetch quiz details from quiz service
-            Quiz quiz = webClientBuilder.build()
-                .get()
-                .uri(quizServiceUrl + "/quizzes/" + request.getQuizId())
-                .retrieve()
-                .bodyToMono(Quiz.class)
-                .block();
-
-            if (quiz == null) {
-                logger.error(" Quiz not found with ID {}", request.getQuizId());
-                throw new RuntimeException("Quiz not found");
+            // Pooled/shuffled quizzes: only the questions this student was shown count. The variant
+            // fixed at start is graded with the answer key of its own version, so edits since then
+            // (reordered or rewritten options, a changed pool) do not change the grade
+            VariantKey variant = request.getVariant();
+            AnswerKey key = variant != null ? variantAnswerKey(request, variant) : answerKeyClient.get(request.getQuizId());
+            Set<Long> drawn = null;
+            if (variant == null && key.usesVariants() && request.getUserId() != null) {
+                variant = webClientBuilder.build()
+                    .get()
+                    .uri(quizServiceUrl + "/internal/quizzes/" + request.getQuizId() + "/variant-key?userId=" + request.getUserId())
+                    .retrieve()
+                    .bodyToMono(VariantKey.class)
+                    .block();
+                if (variant != null && variant.getAnswerKey() != null) {
+                    key = new AnswerKey(ByteBuffer.wrap(variant.getAnswerKey()));
+                }
+            }
+            if (variant != null && variant.getQuestionIds() != null) {
+                drawn = new HashSet<>(variant.getQuestionIds());
+                logger.info(" Grading variant v{} of user {}: {} of {} questions", variant.getVersion(),
+                    request.getUserId(), drawn.size(), key.questionCount());
             }
-
-            logger.info(" Fetched quiz: {} with {} questions", quiz.getTitle(), quiz.getQuestions().size());
 
             int score = 0;
             int maxScore = 0;
+            List<QuestionResult> results = new ArrayList<>();
 
             // Grade each question
-            for (Question question : quiz.getQuestions()) {
-                maxScore += question.getPoints();
-
-                String studentAnswer = request.getAnswers().get(question.getId());
-                boolean isCorrect = studentAnswer != null && isCorrect(question, studentAnswer);
-                
-                logger.info("   Q{}: {} points | Student: '{}' | Correct answers: {} | Match: {}", 
-                    question.getId(), question.getPoints(), studentAnswer, question.getCorrectAnswers(), isCorrect);
-                
+            for (int i = 0; i < key.questionCount(); i++) {
+                long questionId = key.questionId(i);
+                if (drawn != null && !drawn.contains(questionId)) {
+                    continue;
+                }
+                int points = key.points(i);
+                maxScore += points;
+
+                String studentAnswer = request.getAnswers().get(questionId);
+                long answerHash = studentAnswer != null ? AnswerKey.hash(studentAnswer) : 0;
+                Integer optionIndex = studentAnswer != null ? chosenOption(key, i, studentAnswer, answerHash, variant) : null;
+                boolean isCorrect = studentAnswer != null && isCorrect(key, i, answerHash, optionIndex);
+                results.add(new QuestionResult(questionId, studentAnswer != null, isCorrect, points, optionIndex));
+
+                logger.info("   Q{}: {} points | Student: '{}' | Match: {}", questionId, points, studentAnswer, isCorrect);
+
                 if (isCorrect) {
-                    score += question.getPoints();
+                    score += points;
                 }
             }
 
             logger.info(" Final score: {}/{} ({} %)", score, maxScore, 
                 maxScore > 0 ? (score * 100 / maxScore) : 0);
 
-            return new GradingResponse(request.getSubmissionId(), score, maxScore);
+            return new GradingResponse(request.getSubmissionId(), score, maxScore, results);
         };
     }
 
-    private boolean isCorrect(Question question, String answer) {
-        if (question.getCorrectAnswers() == null || question.getCorrectAnswers().isEmpty()) {
+    // Compact binary answer key of the variant's quiz version. A variant stored before keys were
+    // carried along can only be graded while the current key is still that version
+    private AnswerKey variantAnswerKey(GradingRequest request, VariantKey variant) {
+        if (variant.getAnswerKey() != null) {
+            return new AnswerKey(ByteBuffer.wrap(variant.getAnswerKey()));
+        }
+        // Current key, revalidated via ETag
+        AnswerKey key = answerKeyClient.get(request.getQuizId());
+        if (variant.getVersion() != null && variant.getVersion() != key.version()) {
+            throw new IllegalStateException("Submission " + request.getSubmissionId() + " was started on quiz version "
+                + variant.getVersion() + " but the answer key is at version " + key.version());
+        }
+        return key;
+    }
+
+    private boolean isCorrect(AnswerKey key, int i, long answerHash, Integer optionIndex) {
+        if (!key.hasCorrectAnswers(i)) {
             return false;
         }
 
-        if ("MULTIPLE_CHOICE".equals(question.getType())) {
-            return question.getCorrectAnswers().contains(answer);
+        if (key.type(i) == AnswerKey.TYPE_MULTIPLE_CHOICE) {
+            if (key.isCorrectAnswer(i, answerHash)) {
+                return true;
+            }
+            // An option index as displayed to a student whose options were reordered (never when the
+            // answer is itself an option text)
+            return optionIndex != null && !key.isOptionText(i, answerHash) && key.isCorrectOption(i, optionIndex);
         }
 
         return false;
     }
-}
 
+    // Option the student picked, in authored order: by option text, else by displayed index. Answers
+    // are option texts, as before variants; a number is only read as the index shown when the
+    // student's options were reordered, so a numeric answer to an unshuffled question is still text
+    private Integer chosenOption(AnswerKey key, int i, String answer, long answerHash, VariantKey variant) {
+        if (key.type(i) != AnswerKey.TYPE_MULTIPLE_CHOICE) {
+            return null;
+        }
+        int byText = key.optionIndexOf(i, answerHash);
+        if (byText >= 0) {
+            return byText;
+        }
+        if (variant == null || !variant.isReordered(key.questionId(i))) {
+            return null;
+        }
+        try {
+            int original = variant.toOriginalIndex(key.questionId(i), Integer.parseInt(answer.trim()));
+            return original >= 0 && original < key.optionCount(i) ? original : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,19 +0,0 @@
-package org.example.grading.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.util.ArrayList;
-import java.util.List;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class Quiz {
-    private Long id;
-    private String title;
-    private String description;
-    private List<Question> questions = new ArrayList<>();
-}
-
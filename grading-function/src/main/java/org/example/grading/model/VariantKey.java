@@ -0,0 +1,49 @@
+package org.example.grading.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A student's question-pool variant as computed by quiz-service:
+ * drawn question ids, optionOrders[q][shownIndex] = original option index, and the encoded
+ * answer key of the quiz version the variant was drawn from (absent on variants stored before
+ * it was added).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantKey {
+    private Long quizId;
+    private Long userId;
+    private Long version;
+    private List<Long> questionIds;
+    private Map<Long, int[]> optionOrders;
+    private byte[] answerKey;
+
+    // True when the student saw this question's options in a different order than authored
+    public boolean isReordered(Long questionId) {
+        int[] order = optionOrders == null ? null : optionOrders.get(questionId);
+        if (order == null) {
+            return false;
+        }
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != i) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Maps an option index as shown to this student back to the authored option index
+    public int toOriginalIndex(Long questionId, int shownIndex) {
+        int[] order = optionOrders == null ? null : optionOrders.get(questionId);
+        if (order == null || shownIndex < 0 || shownIndex >= order.length) {
+            return shownIndex;
+        }
+        return order[shownIndex];
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.notification.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.notification.config.RabbitMQConfig;
+import org.example.notification.dto.Notification;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Publishes notifications to the cluster exchange instead of the local broker, so they reach
+ * sessions on every node (or, for a user queue, on the nodes where that user is present).
+ *
+ * Per-user messages are mandatory. One that no node routes (the user is not connected anywhere)
+ * is returned and published again on USER_BROADCAST_KEY, so every node journals it and replays
+ * it on whichever node the user reconnects to.
+ */
+@Component
+public class NotificationPublisher {
+    // Set when the sender chose the STOMP destination; otherwise nodes map the type
+    public static final String DESTINATION_HEADER = "x-destination";
+    // Bound by every node (RabbitMQConfig.BROADCAST_KEYS)
+    public static final String USER_BROADCAST_KEY = "notification.user";
+    private static final String USER_QUEUE_PREFIX = "/queue/user-";
+
+    @Autowired
+    @Qualifier(RabbitMQConfig.CLUSTER_TEMPLATE)
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Returns arrive on the connection thread, which must not publish itself
+    private final ExecutorService republisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        rabbitTemplate.setReturnsCallback(this::returned);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        republisher.shutdown();
+    }
+
+    public void publishTo(String destination, Notification notification) throws JsonProcessingException {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setHeader(DESTINATION_HEADER, destination);
+        Message message = new Message(objectMapper.writeValueAsBytes(notification), properties);
+        rabbitTemplate.send(RabbitMQConfig.EXCHANGE, routingKey(destination), message);
+    }
+
+    // Forwards a message from the pre-exchange queue as if it had been published to the exchange
+    public void forward(Message message, String type) {
+        rabbitTemplate.send(RabbitMQConfig.EXCHANGE, typeKey(type), message);
+    }
+
+    public static String typeKey(String type) {
+        return "notification." + (type != null ? type.toLowerCase(Locale.ROOT) : "default");
+    }
+
+    private void returned(ReturnedMessage returned) {
+        if (RabbitMQConfig.EXCHANGE.equals(returned.getExchange())
+                && returned.getRoutingKey().startsWith(UserPresence.USER_KEY_PREFIX)) {
+            republisher.execute(() -> rabbitTemplate.send(RabbitMQConfig.EXCHANGE, USER_BROADCAST_KEY, returned.getMessage()));
+        }
+    }
+
+    private static String routingKey(String destination) {
+        if (destination.startsWith(USER_QUEUE_PREFIX)) {
+            return UserPresence.userKey(destination.substring(USER_QUEUE_PREFIX.length()));
+        }
+        return "notification.direct";
+    }
+
+    static boolean isUserQueue(String destination) {
+        return destination != null && destination.startsWith(USER_QUEUE_PREFIX) && destination.length() > USER_QUEUE_PREFIX.length();
+    }
+
+    static String userOf(String destination) {
+        return destination.substring(USER_QUEUE_PREFIX.length());
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.notification.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Which users are subscribed to their /queue/user-{userId} on this node, mirrored as "user.<userId>"
+ * bindings of the node queue. The broker's binding table is the cluster-wide presence map:
+ * per-user messages are only routed to nodes that hold the user (to every node when none does,
+ * see NotificationPublisher), and bindings disappear with the node queue when a node dies.
+ *
+ * Binding changes run on one thread, outside the lock, and bind or unbind according to the
+ * presence at the time they run, so reordered subscribe/unsubscribe events still converge.
+ * The bindings are re-declared whenever the broker connection is re-established.
+ */
+@Component
+public class UserPresence {
+    static final String USER_KEY_PREFIX = "user.";
+    private static final Logger logger = LoggerFactory.getLogger(UserPresence.class);
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    @Qualifier("nodeQueue")
+    private Queue nodeQueue;
+
+    @Autowired
+    private TopicExchange notificationsExchange;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    // sessionId -> subscriptionId -> user
+    private final Map<String, Map<String, String>> sessions = new HashMap<>();
+    // user -> subscriptions on this node
+    private final Map<String, Integer> users = new HashMap<>();
+    private final ExecutorService binder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "presence-binder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        connectionFactory.addConnectionListener(connection -> rebindAll());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        binder.shutdownNow();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = headers.getDestination();
+        if (!NotificationPublisher.isUserQueue(destination) || headers.getSessionId() == null) {
+            return;
+        }
+        String user = NotificationPublisher.userOf(destination);
+        boolean first;
+        synchronized (this) {
+            sessions.computeIfAbsent(headers.getSessionId(), id -> new HashMap<>()).put(headers.getSubscriptionId(), user);
+            first = users.merge(user, 1, Integer::sum) == 1;
+        }
+        if (first) {
+            sync(user);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        String user;
+        synchronized (this) {
+            Map<String, String> subscriptions = sessions.get(headers.getSessionId());
+            user = subscriptions != null ? subscriptions.remove(headers.getSubscriptionId()) : null;
+        }
+        if (user != null) {
+            release(List.of(user));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions;
+        synchronized (this) {
+            subscriptions = sessions.remove(event.getSessionId());
+        }
+        if (subscriptions != null) {
+            release(new ArrayList<>(subscriptions.values()));
+        }
+    }
+
+    public synchronized boolean isPresent(String user) {
+        return users.containsKey(user);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeQueue", nodeQueue.getName());
+        synchronized (this) {
+            stats.put("sessions", sessions.size());
+            stats.put("presentUsers", users.size());
+        }
+        return stats;
+    }
+
+    // Topic binding keys treat '.', '*' and '#' specially; escape them in user names
+    public static String userKey(String user) {
+        return USER_KEY_PREFIX + user.replace("%", "%25").replace(".", "%2E").replace("*", "%2A").replace("#", "%23");
+    }
+
+    private void release(List<String> released) {
+        List<String> gone = new ArrayList<>();
+        synchronized (this) {
+            for (String user : released) {
+                if (users.merge(user, -1, Integer::sum) <= 0) {
+                    users.remove(user);
+                    gone.add(user);
+                }
+            }
+        }
+        gone.forEach(this::sync);
+    }
+
+    private void rebindAll() {
+        List<String> present;
+        synchronized (this) {
+            present = new ArrayList<>(users.keySet());
+        }
+        present.forEach(this::sync);
+    }
+
+    private void sync(String user) {
+        binder.execute(() -> {
+            Binding binding = BindingBuilder.bind(nodeQueue).to(notificationsExchange).with(userKey(user));
+            try {
+                if (isPresent(user)) {
+                    amqpAdmin.declareBinding(binding);
+                } else {
+                    amqpAdmin.removeBinding(binding);
+                }
+            } catch (RuntimeException e) {
+                // The connection listener re-declares once the broker is back
+                logger.warn("Could not update presence binding for {}: {}", user, e.getMessage());
+            }
+        });
+    }
+}
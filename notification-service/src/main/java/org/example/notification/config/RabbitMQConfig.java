@@ -1,14 +1,91 @@
 package org.example.notification.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
+/**
+ * Notifications are published to a topic exchange and every node consumes its own exclusive,
+ * auto-delete queue, so each message reaches the STOMP sessions on every node. Routing keys are
+ * "notification.<type>" (bound by every node) and "user.<name>" (bound only by nodes where that
+ * user is subscribed, see UserPresence); a per-user message nobody binds is published again as
+ * "notification.user". The broker drops a node's queue and bindings when the node disconnects.
+ */
 @Configuration
 public class RabbitMQConfig {
+    public static final String EXCHANGE = "notifications.topic";
+    public static final String BROADCAST_KEYS = "notification.#";
+    // Producers before the exchange published straight to this queue; NotificationBridge forwards it
+    public static final String LEGACY_QUEUE = "notifications";
+    public static final String BATCH_LISTENER_FACTORY = "batchListenerContainerFactory";
+    public static final String CLUSTER_TEMPLATE = "clusterRabbitTemplate";
+
+    @Bean
+    public TopicExchange notificationsExchange() {
+        return new TopicExchange(EXCHANGE, true, false);
+    }
 
     @Bean
     public Queue notificationsQueue() {
-        return new Queue("notifications", true, false, false);
+        return new Queue(LEGACY_QUEUE, true, false, false);
+    }
+
+    @Bean
+    public Queue nodeQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("notifications.node."));
+    }
+
+    @Bean
+    public Binding broadcastBinding() {
+        return BindingBuilder.bind(nodeQueue()).to(notificationsExchange()).with(BROADCAST_KEYS);
+    }
+
+    // Declaring the cluster template below turns off Boot's default one, so it is declared here
+    @Bean
+    @Primary
+    public RabbitTemplate rabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        return template;
+    }
+
+    // NotificationPublisher's own template: every send is mandatory and returns go to its
+    // callback, without changing how other senders' unroutable messages are handled
+    @Bean(CLUSTER_TEMPLATE)
+    public RabbitTemplate clusterRabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        template.setMandatory(true);
+        return template;
+    }
+
+    // Node queue consumer: up to batch-size messages per listener call, with enough prefetch to
+    // fill the next batch; a partial batch is delivered after receive-timeout-ms without messages
+    @Bean(BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${notifications.consumer.batch-size:100}") int batchSize,
+            @Value("${notifications.consumer.prefetch:250}") int prefetch,
+            @Value("${notifications.consumer.receive-timeout-ms:20}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setReceiveTimeout(receiveTimeout);
+        return factory;
     }
 }
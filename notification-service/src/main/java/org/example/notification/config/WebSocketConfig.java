@@ -1,27 +1,112 @@
 package org.example.notification.config;
 
+import org.example.notification.delivery.ReplayInterceptor;
+import org.example.notification.delivery.SessionSendBuffers;
+import org.example.notification.delivery.StompAuthInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
-import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurationSupport;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Extends the configuration support directly (instead of @EnableWebSocketMessageBroker) to
+// replace Spring's per-session send buffer with SessionSendBuffers' bounded one
 @Configuration
-@EnableWebSocketMessageBroker
-public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+public class WebSocketConfig extends WebSocketMessageBrokerConfigurationSupport {
+
+    @Autowired
+    private SessionSendBuffers sendBuffers;
+
+    @Autowired
+    private StompAuthInterceptor stompAuthInterceptor;
+
+    @Autowired
+    private ReplayInterceptor replayInterceptor;
+
+    // 0 uses Spring's default of two threads per core
+    @Value("${notifications.session.outbound-threads:0}")
+    private int outboundThreads;
+
+    @Value("${notifications.session.outbound-queue-capacity:10000}")
+    private int outboundQueueCapacity;
 
     @Override
-    public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable Redis-backed message broker for scalability
+    protected void configureMessageBroker(MessageBrokerRegistry config) {
+        // In-memory broker for this node's sessions; RabbitMQConfig fans notifications out across nodes
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
     }
 
     @Override
-    public void registerStompEndpoints(StompEndpointRegistry registry) {
+    protected void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
 
+    @Override
+    protected void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthInterceptor, replayInterceptor);
+    }
+
+    // A full queue makes the publishing thread (the Rabbit listener) deliver the frame itself,
+    // so a backlog waits in RabbitMQ instead of on this node's heap
+    @Override
+    protected void configureClientOutboundChannel(ChannelRegistration registration) {
+        int threads = outboundThreads > 0 ? outboundThreads : Runtime.getRuntime().availableProcessors() * 2;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        registration.taskExecutor(executor)
+                .corePoolSize(threads)
+                .maxPoolSize(threads)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel) {
+        BoundedSubProtocolWebSocketHandler handler =
+                new BoundedSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel, sendBuffers);
+        handler.setSendTimeLimit(sendBuffers.sendTimeLimitMillis());
+        handler.setSendBufferSizeLimit(sendBuffers.maxBytes());
+        return decorateWebSocketHandler(handler);
+    }
+
+    private static class BoundedSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+        private final SessionSendBuffers sendBuffers;
+
+        BoundedSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+                                           SubscribableChannel clientOutboundChannel,
+                                           SessionSendBuffers sendBuffers) {
+            super(clientInboundChannel, clientOutboundChannel);
+            this.sendBuffers = sendBuffers;
+        }
+
+        @Override
+        protected WebSocketSession decorateSession(WebSocketSession session) {
+            return sendBuffers.decorate(session);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+            sendBuffers.unregister(session.getId());
+            super.afterConnectionClosed(session, closeStatus);
+        }
+    }
+}
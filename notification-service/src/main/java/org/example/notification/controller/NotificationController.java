@@ -1,23 +1,67 @@
 package org.example.notification.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.example.notification.cluster.NotificationPublisher;
+import org.example.notification.cluster.UserPresence;
+import org.example.notification.delivery.NotificationCoalescer;
+import org.example.notification.delivery.NotificationJournal;
+import org.example.notification.delivery.SessionSendBuffers;
+import org.example.notification.dto.Notification;
+import org.example.notification.listener.NotificationListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
 public class NotificationController {
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationPublisher publisher;
 
+    @Autowired
+    private UserPresence presence;
+
+    @Autowired
+    private NotificationCoalescer coalescer;
+
+    @Autowired
+    private SessionSendBuffers sendBuffers;
+
+    @Autowired
+    private NotificationListener listener;
+
+    @Autowired
+    private NotificationJournal journal;
+
+    // Published through the cluster exchange, so sessions on every node receive it
     @PostMapping("/notifications/send")
-    public void sendNotification(@RequestBody Map<String, Object> notification) {
-        String topic = (String) notification.getOrDefault("topic", "/topic/notifications");
-        messagingTemplate.convertAndSend(topic, notification);
+    public ResponseEntity<Void> sendNotification(@RequestBody Notification notification) throws JsonProcessingException {
+        String destination = notification.getTopic() != null ? notification.getTopic() : "/topic/notifications";
+        if (!destination.startsWith("/")) {
+            return ResponseEntity.badRequest().build();
+        }
+        publisher.publishTo(destination, notification);
+        return ResponseEntity.accepted().build();
     }
-}
 
+    @GetMapping("/notifications/stats")
+    public ResponseEntity<Map<String, Object>> getDeliveryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("consumer", listener.stats());
+        stats.put("coalescing", coalescer.stats());
+        stats.put("sendBuffers", sendBuffers.stats());
+        stats.put("replay", journal.stats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/notifications/cluster")
+    public ResponseEntity<Map<String, Object>> getClusterStats() {
+        return ResponseEntity.ok(presence.stats());
+    }
+}
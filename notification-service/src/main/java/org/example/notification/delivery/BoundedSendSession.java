@@ -0,0 +1,200 @@
+package org.example.notification.delivery;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-session send buffer, used in place of Spring's ConcurrentWebSocketSessionDecorator.
+ *
+ * Sending threads only append to the buffer; whichever thread gets the flush lock writes the
+ * buffered frames to the socket, so one slow client holds at most one outbound thread. The
+ * buffer is bounded by frame count and bytes. When a new frame does not fit, the session's
+ * SlowConsumerPolicy decides what gives. A socket write that takes longer than the send time
+ * limit always ends the session. The session is ended by throwing
+ * SessionLimitExceededException, which SubProtocolWebSocketHandler turns into a close.
+ */
+public class BoundedSendSession extends WebSocketSessionDecorator {
+
+    private final SessionSendBuffers buffers;
+    private final ArrayDeque<Pending> buffer = new ArrayDeque<>();
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private int bufferedBytes;
+    private int highWaterMark;
+    private volatile long sendStartedAt;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private record Pending(WebSocketMessage<?> message, int bytes, boolean critical) {
+    }
+
+    BoundedSendSession(WebSocketSession delegate, SessionSendBuffers buffers) {
+        super(delegate);
+        this.buffers = buffers;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closing.get()) {
+            return;
+        }
+        String overflow;
+        synchronized (buffer) {
+            if (closing.get()) {
+                return;
+            }
+            buffer.add(new Pending(message, message.getPayloadLength(), buffers.isCritical(message)));
+            bufferedBytes += message.getPayloadLength();
+            highWaterMark = Math.max(highWaterMark, buffer.size());
+            overflow = enforceLimits();
+        }
+        if (overflow != null) {
+            terminate(overflow);
+        }
+
+        do {
+            if (!tryFlush()) {
+                long started = sendStartedAt;
+                if (started > 0 && System.currentTimeMillis() - started > buffers.sendTimeLimitMillis()) {
+                    terminate("Send time limit " + buffers.sendTimeLimitMillis() + " ms exceeded");
+                }
+                return;
+            }
+        } while (!isBufferEmpty() && !closing.get());
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closing.set(true);
+        super.close(status);
+    }
+
+    public int getBufferedMessages() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    public int getBufferedBytes() {
+        synchronized (buffer) {
+            return bufferedBytes;
+        }
+    }
+
+    public int getHighWaterMark() {
+        synchronized (buffer) {
+            return highWaterMark;
+        }
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // How long the write in progress has been blocked, 0 when idle
+    public long getSendingForMillis() {
+        long started = sendStartedAt;
+        return started > 0 ? System.currentTimeMillis() - started : 0;
+    }
+
+    private boolean tryFlush() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            while (!closing.get()) {
+                Pending next;
+                synchronized (buffer) {
+                    next = buffer.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    bufferedBytes -= next.bytes();
+                }
+                sendStartedAt = System.currentTimeMillis();
+                getDelegate().sendMessage(next.message());
+                sendStartedAt = 0;
+                sent.increment();
+            }
+        } finally {
+            sendStartedAt = 0;
+            flushLock.unlock();
+        }
+        return true;
+    }
+
+    // Called with the buffer lock held; returns why the session must close, or null
+    private String enforceLimits() {
+        if (fits()) {
+            return null;
+        }
+        switch (buffers.policy()) {
+            case DROP_OLDEST -> {
+                while (!fits()) {
+                    drop(buffer.poll());
+                }
+            }
+            case DROP_NON_CRITICAL -> {
+                Iterator<Pending> oldestFirst = buffer.iterator();
+                while (!fits() && oldestFirst.hasNext()) {
+                    Pending pending = oldestFirst.next();
+                    if (!pending.critical()) {
+                        oldestFirst.remove();
+                        drop(pending);
+                    }
+                }
+            }
+            case DISCONNECT -> {
+            }
+        }
+        return fits() ? null : "Send buffer limit exceeded (" + buffer.size() + " frames, " + bufferedBytes + " bytes)";
+    }
+
+    private boolean fits() {
+        return buffer.size() <= buffers.maxMessages() && bufferedBytes <= buffers.maxBytes();
+    }
+
+    private void drop(Pending pending) {
+        bufferedBytes -= pending.bytes();
+        dropped.increment();
+        buffers.recordDropped(pending.critical());
+    }
+
+    private boolean isBufferEmpty() {
+        synchronized (buffer) {
+            return buffer.isEmpty();
+        }
+    }
+
+    private void terminate(String reason) {
+        if (closing.compareAndSet(false, true)) {
+            synchronized (buffer) {
+                while (!buffer.isEmpty()) {
+                    drop(buffer.poll());
+                }
+            }
+            buffers.recordDisconnect();
+        }
+        throw new SessionLimitExceededException(reason, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Override
+    public String toString() {
+        return getDelegate() + ", buffered " + getBufferedMessages() + " frames";
+    }
+}
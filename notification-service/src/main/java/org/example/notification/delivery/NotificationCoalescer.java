@@ -0,0 +1,218 @@
+package org.example.notification.delivery;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.notification.dto.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces notifications per STOMP destination. The first notification after a quiet window
+ * is sent at once; later ones within window-ms are held and sent together as one frame when
+ * the window ends (or max-batch is reached). A single held notification goes out unchanged.
+ *
+ * Summary destinations (admin topics) get one frame counting the held notifications per type
+ * and quiz, e.g. "1,243 submissions graded for quiz 17". Other destinations, per-user queues
+ * included, get a {"type": "BATCH", "notifications": [...]} frame with every notification intact.
+ */
+@Component
+public class NotificationCoalescer {
+    public static final String BATCH = "BATCH";
+    public static final String SUMMARY = "SUMMARY";
+    // Windows idle this long are dropped, so per-user destinations do not accumulate
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${notifications.coalesce.window-ms:250}")
+    private long windowMillis;
+
+    @Value("${notifications.coalesce.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${notifications.coalesce.summary-destinations:/topic/admin-notifications}")
+    private Set<String> summaryDestinations;
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder batchFrames = new LongAdder();
+    private final LongAdder batchedNotifications = new LongAdder();
+    private final LongAdder summaryFrames = new LongAdder();
+    private final LongAdder summarizedNotifications = new LongAdder();
+    private long windowNanos;
+    private ScheduledExecutorService flusher;
+
+    private static final class Window {
+        final boolean summarize;
+        final List<Notification> pending = new ArrayList<>();
+        long lastSentAt;
+        boolean closed;
+
+        Window(boolean summarize, long now, long windowNanos) {
+            this.summarize = summarize;
+            this.lastSentAt = now - windowNanos;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(10, windowMillis / 2);
+        flusher.scheduleWithFixedDelay(this::flush, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    public void submit(String destination, Notification notification) {
+        received.increment();
+        if (windowNanos == 0) {
+            send(destination, notification);
+            return;
+        }
+        while (true) {
+            Window window = windows.computeIfAbsent(destination,
+                    d -> new Window(summaryDestinations.contains(d), System.nanoTime(), windowNanos));
+            // Sent under the window's lock so frames for one destination keep their order
+            synchronized (window) {
+                if (window.closed) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (window.pending.isEmpty() && now - window.lastSentAt >= windowNanos) {
+                    window.lastSentAt = now;
+                    send(destination, notification);
+                } else {
+                    window.pending.add(notification);
+                    if (window.pending.size() >= maxBatch) {
+                        release(destination, window, now);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long in = received.sum();
+        long out = frames.sum();
+        int pending = 0;
+        for (Window window : windows.values()) {
+            synchronized (window) {
+                pending += window.pending.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMs", windowMillis);
+        stats.put("received", in);
+        stats.put("framesSent", out);
+        stats.put("reductionRatio", out == 0 ? 1.0 : (double) (in - pending) / out);
+        stats.put("batchFrames", batchFrames.sum());
+        stats.put("batchedNotifications", batchedNotifications.sum());
+        stats.put("summaryFrames", summaryFrames.sum());
+        stats.put("summarizedNotifications", summarizedNotifications.sum());
+        stats.put("pending", pending);
+        stats.put("destinations", windows.size());
+        return stats;
+    }
+
+    private void flush() {
+        long now = System.nanoTime();
+        windows.forEach((destination, window) -> {
+            synchronized (window) {
+                if (!window.pending.isEmpty() && now - window.lastSentAt >= windowNanos) {
+                    release(destination, window, now);
+                } else if (window.pending.isEmpty() && now - window.lastSentAt >= IDLE_NANOS) {
+                    window.closed = true;
+                    windows.remove(destination, window);
+                }
+            }
+        });
+    }
+
+    private void release(String destination, Window window, long now) {
+        List<Notification> held = new ArrayList<>(window.pending);
+        window.pending.clear();
+        window.lastSentAt = now;
+        if (held.size() == 1) {
+            send(destination, held.get(0));
+        } else if (window.summarize) {
+            summaryFrames.increment();
+            summarizedNotifications.add(held.size());
+            send(destination, summarize(held));
+        } else {
+            batchFrames.increment();
+            batchedNotifications.add(held.size());
+            Map<String, Object> batch = new LinkedHashMap<>();
+            batch.put("type", BATCH);
+            batch.put("count", held.size());
+            batch.put("notifications", held);
+            send(destination, batch);
+        }
+    }
+
+    private void send(String destination, Object frame) {
+        frames.increment();
+        messagingTemplate.convertAndSend(destination, frame);
+    }
+
+    // One entry per (type, quizId), in order of first appearance
+    private static Map<String, Object> summarize(List<Notification> held) {
+        Map<String, Map<String, Object>> groups = new LinkedHashMap<>();
+        for (Notification notification : held) {
+            String type = notification.getType() != null ? notification.getType() : "DEFAULT";
+            Long quizId = notification.getQuizId();
+            Map<String, Object> group = groups.computeIfAbsent(type + "/" + quizId, key -> {
+                Map<String, Object> created = new LinkedHashMap<>();
+                created.put("type", type);
+                created.put("quizId", quizId);
+                created.put("count", 0L);
+                return created;
+            });
+            group.merge("count", 1L, (a, b) -> (Long) a + (Long) b);
+        }
+        List<String> messages = new ArrayList<>();
+        for (Map<String, Object> group : groups.values()) {
+            String message = describe(group.get("type"), group.get("quizId"), (Long) group.get("count"));
+            group.put("message", message);
+            messages.add(message);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("type", SUMMARY);
+        summary.put("count", held.size());
+        summary.put("summaries", new ArrayList<>(groups.values()));
+        summary.put("message", String.join("; ", messages));
+        return summary;
+    }
+
+    private static String describe(Object type, Object quizId, long count) {
+        String what = "SUBMISSION_GRADED".equals(type)
+                ? String.format(Locale.US, "%,d submissions graded", count)
+                : String.format(Locale.US, "%,d %s notifications", count, type);
+        return quizId != null ? what + " for quiz " + quizId : what;
+    }
+}
@@ -0,0 +1,287 @@
+package org.example.notification.delivery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.notification.dto.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recent per-user notifications, kept in a memory-mapped file so replay does not cost heap and
+ * survives a restart of the process. Every per-user notification gets the next sequence number
+ * of that user's stream; a client that reconnects subscribes with the last seq (and stream) it
+ * saw and gets what it missed (see ReplayInterceptor).
+ *
+ * The file holds a fixed number of user rings, each the last entries-per-user notifications of
+ * one user in fixed-size entries. When every ring is taken, the least recently used one is
+ * reused. A reused ring starts a new stream with a new random id, so clients can tell their
+ * seqs no longer apply. Entries are the notification's JSON; one larger than max-entry-bytes is
+ * still sent, but not retained.
+ *
+ * Ring layout: [key length:2][key:64][pad:6][stream:8][last seq:8][last written:8], then entries
+ * of [seq:8][length:4][json]. Each node has its own journal, so streams are per node.
+ */
+@Component
+public class NotificationJournal {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationJournal.class);
+    private static final int MAGIC = 0x4E4A524E;
+    private static final int FILE_HEADER = 64;
+    private static final int MAX_KEY_BYTES = 64;
+    private static final int RING_HEADER = 96;
+    private static final int STREAM = 72;
+    private static final int LAST_SEQ = 80;
+    private static final int LAST_WRITTEN = 88;
+    private static final int ENTRY_HEADER = 12;
+    private static final byte[] EMPTY = new byte[RING_HEADER];
+
+    @Value("${notifications.data-dir:/data/notifications}")
+    private String dataDir;
+
+    @Value("${notifications.replay.users:4096}")
+    private int users;
+
+    @Value("${notifications.replay.entries-per-user:16}")
+    private int entriesPerUser;
+
+    @Value("${notifications.replay.max-entry-bytes:512}")
+    private int maxEntryBytes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public record Replay(long stream, long lastSeq, int count, boolean truncated, byte[] frame) {
+    }
+
+    private MappedByteBuffer journal;
+    private int ringBytes;
+    // user -> ring, least recently used (written or replayed) first
+    private final LinkedHashMap<String, Integer> rings = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Integer> freeRings = new ArrayDeque<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder notRetained = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void open() throws IOException {
+        ringBytes = RING_HEADER + entriesPerUser * (ENTRY_HEADER + maxEntryBytes);
+        long size = FILE_HEADER + (long) users * ringBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Notification journal of " + size + " bytes exceeds 2 GB; lower notifications.replay.*");
+        }
+        Path directory = Path.of(dataDir);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("replay.journal");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            boolean reuse = raf.length() == size && raf.readInt() == MAGIC && raf.readInt() == users
+                    && raf.readInt() == entriesPerUser && raf.readInt() == maxEntryBytes;
+            if (!reuse && raf.length() > 0) {
+                logger.info("Notification journal layout changed, starting an empty one");
+            }
+            if (!reuse) {
+                raf.setLength(0);
+                raf.setLength(size);
+            }
+            journal = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        journal.putInt(0, MAGIC);
+        journal.putInt(4, users);
+        journal.putInt(8, entriesPerUser);
+        journal.putInt(12, maxEntryBytes);
+        load();
+    }
+
+    @PreDestroy
+    public void close() {
+        journal.force();
+    }
+
+    // Stamps the next seq of the user's stream on a copy and retains it; the copy is what is sent
+    public Notification append(String user, Notification notification) {
+        byte[] key = user.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_BYTES) {
+            notRetained.increment();
+            return notification;
+        }
+        synchronized (this) {
+            int ring = ringOf(user, key);
+            int base = offset(ring);
+            long seq = journal.getLong(base + LAST_SEQ) + 1;
+            Notification stamped = notification.toBuilder()
+                    .seq(seq)
+                    .stream(journal.getLong(base + STREAM))
+                    .build();
+            byte[] json;
+            try {
+                json = objectMapper.writeValueAsBytes(stamped);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Notification is not serializable", e);
+            }
+            int entry = entryOffset(ring, seq);
+            journal.putLong(entry, seq);
+            if (json.length <= maxEntryBytes) {
+                journal.putInt(entry + 8, json.length);
+                journal.put(entry + ENTRY_HEADER, json);
+            } else {
+                journal.putInt(entry + 8, -1);
+                notRetained.increment();
+            }
+            journal.putLong(base + LAST_SEQ, seq);
+            journal.putLong(base + LAST_WRITTEN, System.currentTimeMillis());
+            appended.increment();
+            return stamped;
+        }
+    }
+
+    /**
+     * What a client that last saw seq "since" of "stream" missed, as one BATCH frame, or null if
+     * nothing. For another stream (the ring was reused, or the client was on another node) all
+     * retained notifications are replayed. truncated means the oldest missed ones are gone.
+     */
+    public Replay replay(String user, Long stream, long since) {
+        List<byte[]> entries = new ArrayList<>();
+        boolean truncated;
+        long currentStream;
+        long lastSeq;
+        synchronized (this) {
+            Integer ring = rings.get(user);
+            if (ring == null) {
+                return null;
+            }
+            int base = offset(ring);
+            currentStream = journal.getLong(base + STREAM);
+            lastSeq = journal.getLong(base + LAST_SEQ);
+            long from = stream != null && stream == currentStream ? Math.max(since, 0) + 1 : 1;
+            long oldest = Math.max(1, lastSeq - entriesPerUser + 1);
+            truncated = from < oldest;
+            for (long seq = Math.max(from, oldest); seq <= lastSeq; seq++) {
+                int entry = entryOffset(ring, seq);
+                int length = journal.getInt(entry + 8);
+                if (journal.getLong(entry) != seq || length < 0) {
+                    truncated = true;
+                    continue;
+                }
+                byte[] json = new byte[length];
+                journal.get(entry + ENTRY_HEADER, json);
+                entries.add(json);
+            }
+        }
+        if (entries.isEmpty() && !truncated) {
+            return null;
+        }
+        replays.increment();
+        replayed.add(entries.size());
+        return new Replay(currentStream, lastSeq, entries.size(), truncated, frame(entries, truncated));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("journalBytes", journal.capacity());
+        stats.put("userRings", users);
+        stats.put("entriesPerUser", entriesPerUser);
+        synchronized (this) {
+            stats.put("usersRetained", rings.size());
+        }
+        stats.put("appended", appended.sum());
+        stats.put("notRetained", notRetained.sum());
+        stats.put("ringsReused", evictions.sum());
+        stats.put("replays", replays.sum());
+        stats.put("replayedNotifications", replayed.sum());
+        return stats;
+    }
+
+    // The entries are already JSON, so the frame is assembled around them without re-encoding
+    private static byte[] frame(List<byte[]> entries, boolean truncated) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + entries.size() * 256);
+        out.writeBytes(("{\"type\":\"" + NotificationCoalescer.BATCH + "\",\"count\":" + entries.size()
+                + ",\"replay\":true,\"truncated\":" + truncated + ",\"notifications\":[").getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(entries.get(i));
+        }
+        out.writeBytes("]}".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private int ringOf(String user, byte[] key) {
+        Integer ring = rings.get(user);
+        if (ring != null) {
+            return ring;
+        }
+        if (freeRings.isEmpty()) {
+            Iterator<Map.Entry<String, Integer>> leastRecent = rings.entrySet().iterator();
+            freeRings.add(leastRecent.next().getValue());
+            leastRecent.remove();
+            evictions.increment();
+        }
+        ring = freeRings.poll();
+        int base = offset(ring);
+        journal.put(base, EMPTY);
+        journal.putShort(base, (short) key.length);
+        journal.put(base + 2, key);
+        // Below 2^53 so browsers can hold it as a number
+        journal.putLong(base + STREAM, ThreadLocalRandom.current().nextLong(1, 1L << 53));
+        rings.put(user, ring);
+        return ring;
+    }
+
+    // Rebuilds the user index from the ring headers, oldest written first
+    private void load() {
+        List<long[]> used = new ArrayList<>();
+        Map<Integer, String> keys = new LinkedHashMap<>();
+        for (int ring = 0; ring < users; ring++) {
+            int base = offset(ring);
+            int length = journal.getShort(base);
+            if (length <= 0 || length > MAX_KEY_BYTES) {
+                freeRings.add(ring);
+                continue;
+            }
+            byte[] key = new byte[length];
+            journal.get(base + 2, key);
+            keys.put(ring, new String(key, StandardCharsets.UTF_8));
+            used.add(new long[]{journal.getLong(base + LAST_WRITTEN), ring});
+        }
+        used.sort(Comparator.comparingLong(ring -> ring[0]));
+        for (long[] ring : used) {
+            rings.put(keys.get((int) ring[1]), (int) ring[1]);
+        }
+        if (!rings.isEmpty()) {
+            logger.info("Notification journal holds recent notifications of {} users", rings.size());
+        }
+    }
+
+    private int offset(int ring) {
+        return FILE_HEADER + ring * ringBytes;
+    }
+
+    private int entryOffset(int ring, long seq) {
+        return offset(ring) + RING_HEADER + (int) ((seq - 1) % entriesPerUser) * (ENTRY_HEADER + maxEntryBytes);
+    }
+}
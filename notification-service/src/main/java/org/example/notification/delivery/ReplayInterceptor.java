@@ -0,0 +1,74 @@
+package org.example.notification.delivery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.security.Principal;
+
+/**
+ * Replays missed per-user notifications when a client subscribes to /queue/user-{userId} with a
+ * "since" header (the last seq it received) and optionally "stream". Only a session
+ * authenticated as that user (StompAuthInterceptor) gets a replay. The replay goes to that
+ * subscription only, as one BATCH frame, right after the broker registered the subscription:
+ * anything journaled later reaches the client live, anything earlier is in the replay. The
+ * outbound channel is multi-threaded, so live frames may overtake the replay; a notification in
+ * both has the same seq, and clients deliver each seq once whatever the order.
+ */
+@Component
+public class ReplayInterceptor implements ExecutorChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayInterceptor.class);
+    private static final String USER_QUEUE_PREFIX = "/queue/user-";
+
+    @Autowired
+    private NotificationJournal journal;
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler broker)) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        String since = accessor.getFirstNativeHeader("since");
+        if (accessor.getCommand() != StompCommand.SUBSCRIBE || since == null || destination == null
+                || !destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+        String user = destination.substring(USER_QUEUE_PREFIX.length());
+        Principal principal = accessor.getUser();
+        if (principal == null || !user.equals(principal.getName())) {
+            logger.debug("Refused replay of {} to session {} of another user", destination, accessor.getSessionId());
+            return;
+        }
+        try {
+            String stream = accessor.getFirstNativeHeader("stream");
+            NotificationJournal.Replay replay = journal.replay(user,
+                    stream != null ? Long.valueOf(stream) : null, Long.parseLong(since));
+            if (replay == null) {
+                return;
+            }
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(accessor.getSessionId());
+            headers.setSubscriptionId(accessor.getSubscriptionId());
+            headers.setDestination(destination);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            broker.getClientOutboundChannel().send(MessageBuilder.createMessage(replay.frame(), headers.getMessageHeaders()));
+            logger.debug("Replayed {} notifications to {} since seq {}", replay.count(), destination, since);
+        } catch (NumberFormatException e) {
+            logger.debug("Ignored malformed replay headers on {}: {}", destination, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.notification.delivery;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.security.Principal;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits and metrics for the per-session send buffers (BoundedSendSession). Every STOMP session
+ * of this node is registered here while it is open.
+ *
+ * Critical frames are everything except heartbeats and MESSAGE frames to broadcast destinations:
+ * CONNECTED, RECEIPT and ERROR frames, and messages to the critical-destinations prefixes (the
+ * per-user queues by default, where grades arrive).
+ */
+@Component
+public class SessionSendBuffers {
+    private static final int SLOWEST_REPORTED = 20;
+
+    @Value("${notifications.session.send-buffer-messages:1000}")
+    private int maxMessages;
+
+    @Value("${notifications.session.send-buffer-bytes:524288}")
+    private int maxBytes;
+
+    @Value("${notifications.session.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${notifications.session.slow-consumer-policy:drop-non-critical}")
+    private String policyName;
+
+    @Value("${notifications.session.critical-destinations:/queue/user-}")
+    private List<String> criticalDestinations;
+
+    private SlowConsumerPolicy policy;
+    private final ConcurrentHashMap<String, BoundedSendSession> sessions = new ConcurrentHashMap<>();
+    private final LongAdder droppedNonCritical = new LongAdder();
+    private final LongAdder droppedCritical = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        policy = SlowConsumerPolicy.parse(policyName);
+    }
+
+    public WebSocketSession decorate(WebSocketSession session) {
+        BoundedSendSession bounded = new BoundedSendSession(session, this);
+        sessions.put(session.getId(), bounded);
+        return bounded;
+    }
+
+    public void unregister(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public SlowConsumerPolicy policy() {
+        return policy;
+    }
+
+    public int maxMessages() {
+        return maxMessages;
+    }
+
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    public int sendTimeLimitMillis() {
+        return sendTimeLimitMillis;
+    }
+
+    boolean isCritical(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) {
+            return true;
+        }
+        String frame = text.getPayload();
+        if (frame.isBlank()) {
+            return false;
+        }
+        if (!frame.startsWith("MESSAGE\n")) {
+            return true;
+        }
+        String destination = frameDestination(frame);
+        if (destination == null) {
+            return true;
+        }
+        for (String prefix : criticalDestinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void recordDropped(boolean critical) {
+        (critical ? droppedCritical : droppedNonCritical).increment();
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long bufferedMessages = 0;
+        long bufferedBytes = 0;
+        for (BoundedSendSession session : sessions.values()) {
+            bufferedMessages += session.getBufferedMessages();
+            bufferedBytes += session.getBufferedBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", policy);
+        stats.put("maxMessagesPerSession", maxMessages);
+        stats.put("maxBytesPerSession", maxBytes);
+        stats.put("sendTimeLimitMs", sendTimeLimitMillis);
+        stats.put("sessions", sessions.size());
+        stats.put("bufferedMessages", bufferedMessages);
+        stats.put("bufferedBytes", bufferedBytes);
+        stats.put("droppedNonCritical", droppedNonCritical.sum());
+        stats.put("droppedCritical", droppedCritical.sum());
+        stats.put("slowConsumerDisconnects", disconnects.sum());
+        stats.put("slowestSessions", sessions.values().stream()
+                .filter(session -> session.getBufferedMessages() > 0 || session.getSendingForMillis() > 0)
+                .sorted(Comparator.comparingInt(BoundedSendSession::getBufferedBytes).reversed())
+                .limit(SLOWEST_REPORTED)
+                .map(this::describe)
+                .toList());
+        return stats;
+    }
+
+    private Map<String, Object> describe(BoundedSendSession session) {
+        Principal user = session.getPrincipal();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("sessionId", session.getId());
+        description.put("user", user != null ? user.getName() : null);
+        description.put("bufferedMessages", session.getBufferedMessages());
+        description.put("bufferedBytes", session.getBufferedBytes());
+        description.put("highWaterMark", session.getHighWaterMark());
+        description.put("sendingForMs", session.getSendingForMillis());
+        description.put("sent", session.getSent());
+        description.put("dropped", session.getDropped());
+        return description;
+    }
+
+    private static String frameDestination(String frame) {
+        int headersEnd = frame.indexOf("\n\n");
+        int header = frame.indexOf("\ndestination:");
+        if (header < 0 || (headersEnd >= 0 && header > headersEnd)) {
+            return null;
+        }
+        int start = header + "\ndestination:".length();
+        int end = frame.indexOf('\n', start);
+        return frame.substring(start, end < 0 ? frame.length() : end);
+    }
+}
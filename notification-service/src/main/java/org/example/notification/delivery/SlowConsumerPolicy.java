@@ -0,0 +1,18 @@
+package org.example.notification.delivery;
+
+import java.util.Locale;
+
+// What happens when a session's send buffer is full
+public enum SlowConsumerPolicy {
+    // Discard the oldest buffered frames until the buffer fits again
+    DROP_OLDEST,
+    // Discard broadcast frames and heartbeats, oldest first; disconnect if only critical frames are left
+    DROP_NON_CRITICAL,
+    // Close the session; the client reconnects and resubscribes
+    DISCONNECT;
+
+    // Accepts the property form, e.g. "drop-non-critical"
+    public static SlowConsumerPolicy parse(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
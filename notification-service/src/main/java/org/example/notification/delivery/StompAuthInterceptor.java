@@ -0,0 +1,70 @@
+package org.example.notification.delivery;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+/**
+ * Binds a STOMP session to the user whose token came with CONNECT ("Authorization: Bearer ...",
+ * the same JWT the API gateway checks). The principal's name is the userId claim. Sessions
+ * without a valid token stay anonymous: they still get broadcasts, but no replay.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthInterceptor.class);
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    public record StompUser(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return message;
+        }
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(signingKey())
+                    .build()
+                    .parseSignedClaims(authorization.substring(7))
+                    .getPayload();
+            Number userId = claims.get("userId", Number.class);
+            if (userId != null) {
+                accessor.setUser(new StompUser(String.valueOf(userId.longValue())));
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Ignored invalid token on STOMP CONNECT: {}", e.getMessage());
+        }
+        return message;
+    }
+
+    private SecretKey signingKey() {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+}
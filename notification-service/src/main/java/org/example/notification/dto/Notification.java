@@ -0,0 +1,56 @@
+package org.example.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A notification as published by quiz-service and submission-service and as sent to STOMP
+ * clients. Fields the producers do not set are left out of the JSON; fields this class does not
+ * know (e.g. from POST /notifications/send) are kept in extra and written back unchanged.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Notification {
+    private String type;
+    private String eventType;
+    private Long userId;
+    private Long quizId;
+    private Long submissionId;
+    private String title;
+    private String description;
+    private Boolean active;
+    private Integer score;
+    private Integer maxScore;
+    private String message;
+    // Destination requested through POST /notifications/send
+    private String topic;
+    // Per-user notifications only: position in the user's stream on this node (NotificationJournal)
+    private Long seq;
+    private Long stream;
+
+    private Map<String, Object> extra;
+
+    @JsonAnySetter
+    public void putExtra(String name, Object value) {
+        if (extra == null) {
+            extra = new LinkedHashMap<>();
+        }
+        extra.put(name, value);
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getExtra() {
+        return extra;
+    }
+}
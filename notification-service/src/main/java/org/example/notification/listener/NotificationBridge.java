@@ -0,0 +1,40 @@
+package org.example.notification.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.notification.cluster.NotificationPublisher;
+import org.example.notification.config.RabbitMQConfig;
+import org.example.notification.dto.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Forwards notifications still published straight to the shared "notifications" queue (by
+ * producers deployed before the cluster exchange) to the exchange. Nodes compete on this queue,
+ * so each message is forwarded once.
+ */
+@Component
+public class NotificationBridge {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBridge.class);
+
+    @Autowired
+    private NotificationPublisher publisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @RabbitListener(queues = RabbitMQConfig.LEGACY_QUEUE)
+    public void forward(Message message) {
+        try {
+            Notification notification = objectMapper.readValue(message.getBody(), Notification.class);
+            publisher.forward(message, notification.getType());
+        } catch (IOException e) {
+            logger.error("Dropped unreadable notification: {}", e.getMessage());
+        }
+    }
+}
@@ -1,66 +1,124 @@
 package org.example.notification.listener;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import org.example.notification.cluster.NotificationPublisher;
+import org.example.notification.config.RabbitMQConfig;
+import org.example.notification.delivery.NotificationCoalescer;
+import org.example.notification.delivery.NotificationJournal;
+import org.example.notification.dto.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class NotificationListener {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationListener.class);
+    private static final String DEFAULT_TOPIC = "/topic/notifications";
+    private static final String USER_QUEUE_PREFIX = "/queue/user-";
+    private static final int MAX_CACHED_USER_QUEUES = 10_000;
+
+    // Broadcast destination per notification type; other types go to DEFAULT_TOPIC
+    private static final Map<String, String> TOPICS = Map.of(
+            "QUIZ_CREATED", "/topic/quizzes",
+            "QUIZ_UPDATED", "/topic/quizzes",
+            "QUIZ_DELETED", "/topic/quizzes",
+            "SUBMISSION_GRADED", "/topic/admin-notifications");
+
+    @Autowired
+    private NotificationCoalescer coalescer;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationJournal journal;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    @RabbitListener(queues = "notifications")
-    public void handleNotification(byte[] message) {
-        try {
-            String messageStr = new String(message, "UTF-8");
-            Map<String, Object> notification = objectMapper.readValue(messageStr, Map.class);
+    private ObjectReader reader;
+    private final ConcurrentHashMap<Long, String> userQueues = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
 
-            String type = (String) notification.get("type");
-            System.out.println(" Received notification: " + type + " - " + notification);
+    @PostConstruct
+    public void init() {
+        reader = objectMapper.readerFor(Notification.class);
+    }
 
-            if (type == null) {
-                type = "DEFAULT";
+    // This node's own queue: every node sees every broadcast and delivers to its local sessions.
+    // Messages arrive in batches, acknowledged together once the batch is handed to the coalescer
+    @RabbitListener(queues = "#{nodeQueue.name}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void handleNotifications(List<Message> messages) {
+        long start = System.nanoTime();
+        for (Message message : messages) {
+            try {
+                Notification notification = reader.readValue(message.getBody());
+                String destination = message.getMessageProperties().getHeader(NotificationPublisher.DESTINATION_HEADER);
+                route(notification, destination);
+            } catch (IOException e) {
+                failed.increment();
+                logger.warn("Dropped unreadable notification: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Error delivering notification: {}", e.getMessage(), e);
             }
+        }
+        batches.increment();
+        received.add(messages.size());
+        busyNanos.add(System.nanoTime() - start);
+    }
+
+    public Map<String, Object> stats() {
+        long count = received.sum();
+        long batchCount = batches.sum();
+        long nanos = busyNanos.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("received", count);
+        stats.put("failed", failed.sum());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) count / batchCount);
+        // Throughput of one listener thread while it is handling messages
+        stats.put("messagesPerBusySecond", nanos == 0 ? 0.0 : count * 1_000_000_000.0 / nanos);
+        return stats;
+    }
 
-            switch (type) {
-                case "QUIZ_CREATED":
-                    System.out.println(" Broadcasting QUIZ_CREATED to /topic/quizzes");
-                    messagingTemplate.convertAndSend("/topic/quizzes", notification);
-                    break;
-                case "QUIZ_UPDATED":
-                    System.out.println(" Broadcasting QUIZ_UPDATED to /topic/quizzes");
-                    messagingTemplate.convertAndSend("/topic/quizzes", notification);
-                    break;
-                case "QUIZ_DELETED":
-                    System.out.println(" Broadcasting QUIZ_DELETED to /topic/quizzes");
-                    messagingTemplate.convertAndSend("/topic/quizzes", notification);
-                    break;
-                case "SUBMISSION_GRADED":
-                    // Send to student
-                    if (notification.containsKey("userId")) {
-                        Long userId = ((Number) notification.get("userId")).longValue();
-                        System.out.println("Sending SUBMISSION_GRADED to /queue/user-" + userId);
-                        messagingTemplate.convertAndSend("/queue/user-" + userId, notification);
-                    }
-                    System.out.println("Broadcasting SUBMISSION_GRADED to /topic/admin-notifications");
-                    messagingTemplate.convertAndSend("/topic/admin-notifications", notification);
-                    break;
-                default:
-                    System.out.println("Broadcasting to /topic/notifications");
-                    messagingTemplate.convertAndSend("/topic/notifications", notification);
+    private void route(Notification notification, String destination) {
+        if (destination != null) {
+            if (destination.startsWith(USER_QUEUE_PREFIX)) {
+                submitToUser(destination, destination.substring(USER_QUEUE_PREFIX.length()), notification);
+            } else {
+                coalescer.submit(destination, notification);
             }
-        } catch (Exception e) {
-            System.err.println("Error processing notification: " + e.getMessage());
-            e.printStackTrace();
+            return;
         }
+        String type = notification.getType();
+        if ("SUBMISSION_GRADED".equals(type) && notification.getUserId() != null) {
+            submitToUser(userQueue(notification.getUserId()), notification.getUserId().toString(), notification);
+        }
+        coalescer.submit(type != null ? TOPICS.getOrDefault(type, DEFAULT_TOPIC) : DEFAULT_TOPIC, notification);
+    }
+
+    // Per-user notifications carry the user's next seq and are journaled for replay
+    private void submitToUser(String destination, String user, Notification notification) {
+        coalescer.submit(destination, journal.append(user, notification));
     }
-}
 
+    private String userQueue(Long userId) {
+        if (userQueues.size() > MAX_CACHED_USER_QUEUES) {
+            userQueues.clear();
+        }
+        return userQueues.computeIfAbsent(userId, id -> USER_QUEUE_PREFIX + id);
+    }
+}
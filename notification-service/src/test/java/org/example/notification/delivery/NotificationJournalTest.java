@@ -0,0 +1,138 @@
+package org.example.notification.delivery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.notification.dto.Notification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationJournalTest {
+    private static final int ENTRIES_PER_USER = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void stampsConsecutiveSeqsPerUser() throws IOException {
+        NotificationJournal journal = open(8);
+        Notification first = journal.append("7", graded(1));
+        Notification second = journal.append("7", graded(2));
+        Notification other = journal.append("8", graded(3));
+
+        assertThat(first.getSeq()).isEqualTo(1);
+        assertThat(second.getSeq()).isEqualTo(2);
+        assertThat(second.getStream()).isEqualTo(first.getStream());
+        assertThat(other.getSeq()).isEqualTo(1);
+    }
+
+    @Test
+    void replaysOnlyWhatWasMissed() throws IOException {
+        NotificationJournal journal = open(8);
+        long stream = journal.append("7", graded(1)).getStream();
+        journal.append("7", graded(2));
+        journal.append("7", graded(3));
+
+        NotificationJournal.Replay replay = journal.replay("7", stream, 1);
+        assertThat(replay.truncated()).isFalse();
+        assertThat(replay.lastSeq()).isEqualTo(3);
+        assertThat(seqs(replay)).containsExactly(2L, 3L);
+        assertThat(journal.replay("7", stream, 3)).isNull();
+        assertThat(journal.replay("unknown", null, 0)).isNull();
+    }
+
+    @Test
+    void wrapsAroundAndReportsTruncation() throws IOException {
+        NotificationJournal journal = open(8);
+        long stream = journal.append("7", graded(1)).getStream();
+        for (int i = 2; i <= 6; i++) {
+            journal.append("7", graded(i));
+        }
+
+        // Seqs 1 and 2 were overwritten by 5 and 6
+        NotificationJournal.Replay replay = journal.replay("7", stream, 0);
+        assertThat(replay.truncated()).isTrue();
+        assertThat(seqs(replay)).containsExactly(3L, 4L, 5L, 6L);
+
+        NotificationJournal.Replay recent = journal.replay("7", stream, 4);
+        assertThat(recent.truncated()).isFalse();
+        assertThat(seqs(recent)).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void skipsEntriesTooLargeToRetain() throws IOException {
+        NotificationJournal journal = open(8);
+        long stream = journal.append("7", graded(1)).getStream();
+        Notification large = graded(2);
+        large.setMessage("x".repeat(1024));
+        assertThat(journal.append("7", large).getSeq()).isEqualTo(2);
+        journal.append("7", graded(3));
+
+        NotificationJournal.Replay replay = journal.replay("7", stream, 0);
+        assertThat(replay.truncated()).isTrue();
+        assertThat(seqs(replay)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void reusesTheLeastRecentlyUsedRingWithANewStream() throws IOException {
+        NotificationJournal journal = open(2);
+        long stream = journal.append("7", graded(1)).getStream();
+        journal.append("8", graded(2));
+        journal.append("9", graded(3));
+
+        assertThat(journal.replay("7", stream, 0)).isNull();
+        Notification again = journal.append("7", graded(4));
+        assertThat(again.getSeq()).isEqualTo(1);
+        assertThat(again.getStream()).isNotEqualTo(stream);
+
+        // A client still on the old stream gets everything the new one holds
+        NotificationJournal.Replay replay = journal.replay("7", stream, 1);
+        assertThat(replay.stream()).isEqualTo(again.getStream());
+        assertThat(seqs(replay)).containsExactly(1L);
+    }
+
+    @Test
+    void survivesAReopen() throws IOException {
+        NotificationJournal journal = open(8);
+        long stream = journal.append("7", graded(1)).getStream();
+        journal.append("7", graded(2));
+        journal.close();
+
+        NotificationJournal reopened = open(8);
+        assertThat(seqs(reopened.replay("7", stream, 1))).containsExactly(2L);
+        assertThat(reopened.append("7", graded(3)).getSeq()).isEqualTo(3);
+    }
+
+    private NotificationJournal open(int users) throws IOException {
+        NotificationJournal journal = new NotificationJournal();
+        ReflectionTestUtils.setField(journal, "dataDir", dataDir.toString());
+        ReflectionTestUtils.setField(journal, "users", users);
+        ReflectionTestUtils.setField(journal, "entriesPerUser", ENTRIES_PER_USER);
+        ReflectionTestUtils.setField(journal, "maxEntryBytes", 512);
+        ReflectionTestUtils.setField(journal, "objectMapper", objectMapper);
+        journal.open();
+        return journal;
+    }
+
+    private static Notification graded(long submissionId) {
+        return Notification.builder().type("SUBMISSION_GRADED").userId(7L).submissionId(submissionId).score(8).maxScore(10).build();
+    }
+
+    private List<Long> seqs(NotificationJournal.Replay replay) throws IOException {
+        JsonNode frame = objectMapper.readTree(replay.frame());
+        assertThat(frame.get("type").asText()).isEqualTo(NotificationCoalescer.BATCH);
+        assertThat(frame.get("count").asInt()).isEqualTo(replay.count());
+        List<Long> seqs = new ArrayList<>();
+        frame.get("notifications").forEach(notification -> seqs.add(notification.get("seq").asLong()));
+        return seqs;
+    }
+}
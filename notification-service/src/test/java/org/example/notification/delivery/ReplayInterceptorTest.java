@@ -0,0 +1,73 @@
+package org.example.notification.delivery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplayInterceptorTest {
+
+    private final NotificationJournal journal = mock(NotificationJournal.class);
+    private final SimpleBrokerMessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+    private final MessageChannel outbound = mock(MessageChannel.class);
+    private final ReplayInterceptor interceptor = new ReplayInterceptor();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interceptor, "journal", journal);
+        when(broker.getClientOutboundChannel()).thenReturn(outbound);
+        when(journal.replay(anyString(), any(), anyLong()))
+                .thenReturn(new NotificationJournal.Replay(1L, 2L, 2, false, new byte[0]));
+    }
+
+    @Test
+    void replaysToTheSessionOfThatUser() {
+        interceptor.afterMessageHandled(subscribe("/queue/user-7", new StompAuthInterceptor.StompUser("7")),
+                mock(MessageChannel.class), broker, null);
+
+        verify(journal).replay("7", null, 0L);
+        verify(outbound).send(any());
+    }
+
+    @Test
+    void doesNotReplayToAnotherUser() {
+        interceptor.afterMessageHandled(subscribe("/queue/user-7", new StompAuthInterceptor.StompUser("8")),
+                mock(MessageChannel.class), broker, null);
+
+        verify(journal, never()).replay(anyString(), any(), anyLong());
+        verify(outbound, never()).send(any());
+    }
+
+    @Test
+    void doesNotReplayToAnAnonymousSession() {
+        interceptor.afterMessageHandled(subscribe("/queue/user-7", null), mock(MessageChannel.class), broker, null);
+
+        verify(journal, never()).replay(anyString(), any(), anyLong());
+        verify(outbound, never()).send(any());
+    }
+
+    private static Message<byte[]> subscribe(String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setNativeHeader("since", "0");
+        accessor.setUser(user);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
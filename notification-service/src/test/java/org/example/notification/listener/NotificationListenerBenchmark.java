@@ -0,0 +1,183 @@
+package org.example.notification.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.notification.delivery.NotificationCoalescer;
+import org.example.notification.delivery.NotificationJournal;
+import org.example.notification.dto.Notification;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages per second on one core for the old listener path (byte[] to String to Map, a switch
+ * on the type, string-built destinations, println per message) and for NotificationListener's
+ * batch path, fed the same mix of notifications. Delivery itself is stubbed out on both sides,
+ * and the old path prints to a discarding stream, so only decoding and routing are compared.
+ *
+ * Run from notification-service after mvn test-compile:
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *   org.example.notification.listener.NotificationListenerBenchmark [messages] [batch-size] [rounds]
+ */
+public class NotificationListenerBenchmark {
+    private static final String[] QUIZ_TYPES = {"QUIZ_CREATED", "QUIZ_UPDATED", "QUIZ_DELETED"};
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<byte[]> bodies = bodies(objectMapper, messages);
+        List<List<Message>> batches = batches(bodies, batchSize);
+        LegacyListener legacy = new LegacyListener(objectMapper);
+        NotificationListener listener = batchListener(objectMapper);
+
+        System.out.printf("%d messages, batch size %d, %d measured rounds after one warm-up round%n", messages, batchSize, rounds);
+        double before = 0;
+        double after = 0;
+        for (int round = 0; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (byte[] body : bodies) {
+                legacy.handleNotification(body);
+            }
+            double legacyRate = messages * 1e9 / (System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (List<Message> batch : batches) {
+                listener.handleNotifications(batch);
+            }
+            double batchRate = messages * 1e9 / (System.nanoTime() - start);
+
+            if (round > 0) {
+                before += legacyRate / rounds;
+                after += batchRate / rounds;
+                System.out.printf("round %d: old %,.0f msg/s, batch %,.0f msg/s%n", round, legacyRate, batchRate);
+            }
+        }
+        System.out.printf("old path   %,12.0f msg/s per core%n", before);
+        System.out.printf("batch path %,12.0f msg/s per core (%.1fx)%n", after, after / before);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    // Mostly grades, as after an exam closes, plus quiz broadcasts and an occasional unknown type
+    private static List<byte[]> bodies(ObjectMapper objectMapper, int count) throws Exception {
+        List<byte[]> bodies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Notification notification;
+            if (i % 10 < 7) {
+                notification = Notification.builder().type("SUBMISSION_GRADED").userId((long) (i % 5000))
+                        .quizId((long) (i % 40)).submissionId((long) i).score(i % 11).maxScore(10)
+                        .message("Your submission has been graded").build();
+            } else if (i % 10 < 9) {
+                notification = Notification.builder().type(QUIZ_TYPES[i % 3]).quizId((long) (i % 40))
+                        .title("Quiz " + i % 40).description("Weekly practice").active(true).build();
+            } else {
+                notification = Notification.builder().type("ANNOUNCEMENT").message("Maintenance tonight").build();
+            }
+            bodies.add(objectMapper.writeValueAsBytes(notification));
+        }
+        return bodies;
+    }
+
+    private static List<List<Message>> batches(List<byte[]> bodies, int batchSize) {
+        List<List<Message>> batches = new ArrayList<>();
+        List<Message> batch = new ArrayList<>(batchSize);
+        for (byte[] body : bodies) {
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            batch.add(new Message(body, properties));
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static NotificationListener batchListener(ObjectMapper objectMapper) throws ReflectiveOperationException {
+        NotificationListener listener = new NotificationListener();
+        inject(listener, "objectMapper", objectMapper);
+        inject(listener, "coalescer", new NotificationCoalescer() {
+            @Override
+            public void submit(String destination, Notification notification) {
+                sink += destination.length();
+            }
+        });
+        inject(listener, "journal", new NotificationJournal() {
+            @Override
+            public Notification append(String user, Notification notification) {
+                return notification;
+            }
+        });
+        listener.init();
+        return listener;
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    // NotificationListener as it was before batch consumption, with convertAndSend replaced by send()
+    private static class LegacyListener {
+        private final ObjectMapper objectMapper;
+        private final PrintStream out = new PrintStream(OutputStream.nullOutputStream(), true);
+
+        LegacyListener(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @SuppressWarnings("unchecked")
+        void handleNotification(byte[] message) {
+            try {
+                String messageStr = new String(message, StandardCharsets.UTF_8);
+                Map<String, Object> notification = objectMapper.readValue(messageStr, Map.class);
+
+                String type = (String) notification.get("type");
+                out.println(" Received notification: " + type + " - " + notification);
+
+                if (type == null) {
+                    type = "DEFAULT";
+                }
+
+                switch (type) {
+                    case "QUIZ_CREATED", "QUIZ_UPDATED", "QUIZ_DELETED":
+                        out.println(" Broadcasting " + type + " to /topic/quizzes");
+                        send("/topic/quizzes", notification);
+                        break;
+                    case "SUBMISSION_GRADED":
+                        if (notification.containsKey("userId")) {
+                            Long userId = ((Number) notification.get("userId")).longValue();
+                            out.println("Sending SUBMISSION_GRADED to /queue/user-" + userId);
+                            send("/queue/user-" + userId, notification);
+                        }
+                        out.println("Broadcasting SUBMISSION_GRADED to /topic/admin-notifications");
+                        send("/topic/admin-notifications", notification);
+                        break;
+                    default:
+                        out.println("Broadcasting to /topic/notifications");
+                        send("/topic/notifications", notification);
+                }
+            } catch (Exception e) {
+                System.err.println("Error processing notification: " + e.getMessage());
+            }
+        }
+
+        private void send(String destination, Map<String, Object> notification) {
+            sink += destination.length() + notification.size();
+        }
+    }
+}
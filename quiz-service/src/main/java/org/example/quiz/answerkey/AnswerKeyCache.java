@@ -0,0 +1,57 @@
+package org.example.quiz.answerkey;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.example.quiz.cache.VersionedCache;
+import org.example.quiz.model.Quiz;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Encoded answer keys, one per quiz version. Reads are checked against the quiz's current
+ * version, so a key encoded before another replica's write is never handed to the grader.
+ */
+@Component
+public class AnswerKeyCache {
+
+    @Value("${quiz.cache.max-quizzes:1000}")
+    private int maxQuizzes;
+
+    private VersionedCache<EncodedKey> keys;
+
+    @Data
+    @AllArgsConstructor
+    public static class EncodedKey {
+        private Long quizId;
+        private Long version;
+        private byte[] bytes;
+
+        public String etag() {
+            return "\"k" + quizId + "-" + version + "\"";
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        keys = new VersionedCache<>(maxQuizzes, AnswerKeyCache::encode);
+    }
+
+    public EncodedKey get(Long quizId, long currentVersion, Function<Long, Quiz> loader) {
+        return keys.get(quizId, currentVersion, loader);
+    }
+
+    public void put(Quiz quiz) {
+        keys.put(quiz);
+    }
+
+    public void evict(Long quizId) {
+        keys.evict(quizId);
+    }
+
+    private static EncodedKey encode(Quiz quiz) {
+        return new EncodedKey(quiz.getId(), quiz.getVersion(), AnswerKeyCodec.encode(quiz));
+    }
+}
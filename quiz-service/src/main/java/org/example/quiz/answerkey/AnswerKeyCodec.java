@@ -0,0 +1,89 @@
+package org.example.quiz.answerkey;
+
+import org.example.quiz.model.Question;
+import org.example.quiz.model.Quiz;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary answer key consumed by grading-function (org.example.grading.answerkey.AnswerKey).
+ * All integers are big-endian; answers are never sent as text.
+ *
+ * <pre>
+ * header   magic "QAK1" | u16 format | i64 quizId | i64 quizVersion | u8 flags | i32 questionCount
+ * question i64 id | u8 type | i32 points | u16 answerCount | u16 optionCount | u64 correctOptionMask
+ *          | answerCount x u64 answer hash | optionCount x u64 option hash
+ * </pre>
+ *
+ * Hashes are 64-bit FNV-1a over the exact UTF-8 text, so grading keeps its exact-match semantics.
+ * correctOptionMask has bit j set when option j (authored order, first 64) is a correct answer.
+ */
+public final class AnswerKeyCodec {
+
+    public static final int MAGIC = 0x51414B31; // "QAK1"
+    public static final short FORMAT = 1;
+    public static final int FLAG_VARIANTS = 1;
+
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8 + 1 + 4;
+    private static final int QUESTION_FIXED_BYTES = 8 + 1 + 4 + 2 + 2 + 8;
+
+    private AnswerKeyCodec() {
+    }
+
+    public static byte[] encode(Quiz quiz) {
+        List<Question> questions = quiz.getQuestions().stream()
+                .sorted(Comparator.comparing(Question::getId))
+                .toList();
+
+        int size = HEADER_BYTES;
+        for (Question question : questions) {
+            size += QUESTION_FIXED_BYTES + 8 * (question.getCorrectAnswers().size() + question.getOptions().size());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(FORMAT);
+        buffer.putLong(quiz.getId());
+        buffer.putLong(quiz.getVersion() == null ? 0L : quiz.getVersion());
+        boolean variants = (quiz.getPoolSize() != null && quiz.getPoolSize() > 0) || Boolean.TRUE.equals(quiz.getShuffle());
+        buffer.put((byte) (variants ? FLAG_VARIANTS : 0));
+        buffer.putInt(questions.size());
+
+        for (Question question : questions) {
+            List<String> answers = question.getCorrectAnswers();
+            List<String> options = question.getOptions();
+            long mask = 0L;
+            for (int j = 0; j < Math.min(options.size(), 64); j++) {
+                if (answers.contains(options.get(j))) {
+                    mask |= 1L << j;
+                }
+            }
+
+            buffer.putLong(question.getId());
+            buffer.put((byte) question.getType().ordinal());
+            buffer.putInt(question.getPoints() == null ? 0 : question.getPoints());
+            buffer.putShort((short) answers.size());
+            buffer.putShort((short) options.size());
+            buffer.putLong(mask);
+            for (String answer : answers) {
+                buffer.putLong(hash(answer));
+            }
+            for (String option : options) {
+                buffer.putLong(hash(option));
+            }
+        }
+        return buffer.array();
+    }
+
+    public static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
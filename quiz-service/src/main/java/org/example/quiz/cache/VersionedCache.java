@@ -0,0 +1,103 @@
+package org.example.quiz.cache;
+
+import org.example.quiz.model.Quiz;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A value derived from each quiz, tagged with the Quiz.version it was built from.
+ *
+ * Readers pass the quiz's current version, so an entry built before a write on another replica
+ * is rebuilt instead of served. Concurrent cold readers of one quiz wait for a single build,
+ * which runs outside any map lock. At most maxEntries quizzes are kept, least recently used
+ * first out.
+ */
+public class VersionedCache<V> {
+
+    private record Entry<V>(long version, V value) {
+    }
+
+    private final Function<Quiz, V> builder;
+    private final Map<Long, Entry<V>> entries;
+    private final Map<Long, CompletableFuture<Entry<V>>> building = new ConcurrentHashMap<>();
+
+    public VersionedCache(int maxEntries, Function<Quiz, V> builder) {
+        this.builder = builder;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public V get(Long quizId, long currentVersion, Function<Long, Quiz> loader) {
+        while (true) {
+            Entry<V> entry = entries.get(quizId);
+            if (entry != null && entry.version() >= currentVersion) {
+                return entry.value();
+            }
+            CompletableFuture<Entry<V>> build = new CompletableFuture<>();
+            CompletableFuture<Entry<V>> running = building.putIfAbsent(quizId, build);
+            if (running == null) {
+                return build(quizId, loader, build).value();
+            }
+            Entry<V> built = join(running);
+            // A build that started before the write this reader has seen is not good enough
+            if (built.version() >= currentVersion) {
+                return built.value();
+            }
+        }
+    }
+
+    public V put(Quiz quiz) {
+        return store(quiz.getId(), entry(quiz)).value();
+    }
+
+    public boolean contains(Long quizId) {
+        return entries.containsKey(quizId);
+    }
+
+    public void evict(Long quizId) {
+        entries.remove(quizId);
+    }
+
+    private Entry<V> build(Long quizId, Function<Long, Quiz> loader, CompletableFuture<Entry<V>> build) {
+        try {
+            Entry<V> built = store(quizId, entry(loader.apply(quizId)));
+            build.complete(built);
+            return built;
+        } catch (RuntimeException e) {
+            build.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(quizId, build);
+        }
+    }
+
+    private Entry<V> entry(Quiz quiz) {
+        return new Entry<>(quiz.getVersion() != null ? quiz.getVersion() : 0L, builder.apply(quiz));
+    }
+
+    // Never replaces an entry with one built from an older version
+    private Entry<V> store(Long quizId, Entry<V> entry) {
+        return entries.merge(quizId, entry, (old, built) -> built.version() >= old.version() ? built : old);
+    }
+
+    private static <V> Entry<V> join(CompletableFuture<Entry<V>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package org.example.quiz.config;
 
-import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
@@ -9,10 +9,12 @@ import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfig {
+    // Every notification-service node binds its own queue to this exchange
+    public static final String NOTIFICATIONS_EXCHANGE = "notifications.topic";
 
     @Bean
-    public Queue notificationsQueue() {
-        return new Queue("notifications", true);
+    public TopicExchange notificationsExchange() {
+        return new TopicExchange(NOTIFICATIONS_EXCHANGE, true, false);
     }
 
     @Bean
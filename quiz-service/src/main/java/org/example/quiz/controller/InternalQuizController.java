@@ -0,0 +1,57 @@
+package org.example.quiz.controller;
+
+import org.example.quiz.answerkey.AnswerKeyCache;
+import org.example.quiz.dto.VariantKey;
+import org.example.quiz.model.Quiz;
+import org.example.quiz.service.QuizService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Service-to-service endpoints (grading-function). The API gateway refuses any /internal/ path,
+ * so these are only reachable inside the cluster network.
+ */
+@RestController
+@RequestMapping("/internal/quizzes")
+public class InternalQuizController {
+    private static final Logger logger = LoggerFactory.getLogger(InternalQuizController.class);
+
+    @Autowired
+    private QuizService quizService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Quiz> getQuizWithAnswers(@PathVariable Long id) {
+        Quiz quiz = quizService.getQuizById(id);
+        logger.info(" Internal fetch of quiz {} with {} questions", id, quiz.getQuestions().size());
+        return ResponseEntity.ok(quiz);
+    }
+
+    @GetMapping("/{id}/answer-key")
+    public ResponseEntity<byte[]> getAnswerKey(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        AnswerKeyCache.EncodedKey key = quizService.getAnswerKey(id);
+        if (key.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(key.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .eTag(key.etag())
+                .body(key.getBytes());
+    }
+
+    @GetMapping("/{id}/variant-key")
+    public ResponseEntity<VariantKey> getVariantKey(@PathVariable Long id, @RequestParam Long userId) {
+        return ResponseEntity.ok(quizService.getVariantKey(id, userId));
+    }
+}
@@ -1,25 +1,53 @@
 package org.example.quiz.controller;
 
+import org.example.quiz.dto.ImportResult;
+import org.example.quiz.dto.QuizPage;
+import org.example.quiz.dto.QuizQuery;
+import org.example.quiz.dto.QuizSummary;
+import org.example.quiz.dto.SearchHit;
+import org.example.quiz.dto.StudentQuizView;
 import org.example.quiz.model.Question;
 import org.example.quiz.model.Quiz;
+import org.example.quiz.search.QuizSearchIndex;
+import org.example.quiz.service.QuestionImportService;
 import org.example.quiz.service.QuizService;
+import org.example.quiz.service.StudentViewCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/quizzes")
 @CrossOrigin(origins = "*")
 public class QuizController {
     private static final Logger logger = LoggerFactory.getLogger(QuizController.class);
+    // Set by the API gateway from the caller's token
+    private static final String USER_ID_HEADER = "X-User-Id";
 
     @Autowired
     private QuizService quizService;
 
+    @Autowired
+    private QuestionImportService questionImportService;
+
+    @Autowired
+    private QuizSearchIndex searchIndex;
+
     @PostMapping
     public ResponseEntity<Quiz> createQuiz(@RequestBody Quiz quiz) {
         if (quiz.getCreatedBy() == null) {
@@ -29,29 +57,102 @@ public class QuizController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Quiz>> getAllQuizzes() {
+    public ResponseEntity<List<QuizSummary>> getAllQuizzes() {
         return ResponseEntity.ok(quizService.getAllQuizzes());
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<QuizPage> getQuizPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) Long createdBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        QuizQuery query = new QuizQuery();
+        query.setLimit(limit);
+        query.setActive(active);
+        query.setCreatedBy(createdBy);
+        query.setFrom(from);
+        query.setTo(to);
+        try {
+            query.setSort(sort);
+            query.setCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(quizService.getQuizPage(query));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<SearchHit>> search(@RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(searchIndex.search(query, Math.min(limit, 100)));
+    }
+
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Object>> searchStats() {
+        return ResponseEntity.ok(searchIndex.stats());
+    }
+
     @GetMapping("/active")
-    public ResponseEntity<List<Quiz>> getActiveQuizzes() {
+    public ResponseEntity<List<QuizSummary>> getActiveQuizzes() {
         return ResponseEntity.ok(quizService.getActiveQuizzes());
     }
 
     @GetMapping("/creator/{userId}")
-    public ResponseEntity<List<Quiz>> getQuizzesByCreator(@PathVariable Long userId) {
+    public ResponseEntity<List<QuizSummary>> getQuizzesByCreator(@PathVariable Long userId) {
         return ResponseEntity.ok(quizService.getQuizzesByCreator(userId));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Quiz> getQuizById(@PathVariable Long id) {
-        logger.info(" REST API call: GET /quizzes/{}", id);
-        Quiz quiz = quizService.getQuizById(id);
-        logger.info(" Returning quiz {} with {} questions, options: {}, correctAnswers: {}", 
-            id, quiz.getQuestions().size(),
-            quiz.getQuestions().isEmpty() ? "Null" : quiz.getQuestions().get(0).getOptions().size(),
-            quiz.getQuestions().isEmpty() ? "Null" : quiz.getQuestions().get(0).getCorrectAnswers().size());
-        return ResponseEntity.ok(quiz);
+    public ResponseEntity<byte[]> getQuizById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Student view: pre-serialized, pre-compressed bytes written straight to the response
+        StudentViewCache.Payload view = quizService.getStudentView(id);
+        if (view.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(view.etag()).build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(view.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(view.getGzipped());
+        }
+        return response.body(gunzip(view.getGzipped(), view.getRawLength()));
+    }
+
+    @GetMapping("/{id}/variant")
+    public ResponseEntity<StudentQuizView> getQuizVariant(@PathVariable Long id,
+            @RequestHeader(USER_ID_HEADER) Long userId) {
+        return ResponseEntity.ok(quizService.getVariant(id, userId));
+    }
+
+    @GetMapping("/{id}/authoring")
+    public ResponseEntity<Quiz> getQuizForAuthoring(@PathVariable Long id) {
+        // Full entity including answers, for the quiz editor (gateway restricts to TEACHER/ADMIN)
+        return ResponseEntity.ok(quizService.getQuizById(id));
+    }
+
+    private static byte[] gunzip(byte[] gzipped, int rawLength) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength) {
+                int n = in.read(raw, read, rawLength - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            return raw;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @PutMapping("/{id}")
@@ -75,10 +176,27 @@ public class QuizController {
         return ResponseEntity.ok(saved);
     }
 
+    @PostMapping(value = "/{quizId}/questions/import",
+            consumes = {"application/x-ndjson", "application/jsonl", "text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ImportResult> importQuestions(@PathVariable Long quizId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        QuestionImportService.Format format = contentType.contains("csv")
+                ? QuestionImportService.Format.CSV
+                : QuestionImportService.Format.JSONL;
+        return ResponseEntity.ok(questionImportService.importQuestions(quizId, body, format));
+    }
+
     @DeleteMapping("/questions/{questionId}")
     public ResponseEntity<Void> deleteQuestion(@PathVariable Long questionId) {
         quizService.deleteQuestion(questionId);
         return ResponseEntity.noContent().build();
     }
+
+    @PostMapping("/questions/bulk-delete")
+    public ResponseEntity<Map<String, Object>> deleteQuestions(@RequestBody List<Long> questionIds) {
+        int deleted = quizService.deleteQuestions(questionIds);
+        return ResponseEntity.ok(Map.of("requested", questionIds.size(), "deleted", deleted));
+    }
 }
 
@@ -0,0 +1,37 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+    // Only the first MAX_REPORTED_ERRORS rejected rows are listed; errorCount has the total
+    public static final int MAX_REPORTED_ERRORS = 200;
+
+    private Long quizId;
+    private int rowsRead;
+    private int imported;
+    private int errorCount;
+    private long durationMs;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;
+        private String message;
+    }
+
+    public void reject(int row, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+}
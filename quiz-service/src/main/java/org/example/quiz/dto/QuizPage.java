@@ -0,0 +1,17 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizPage {
+    private List<QuizSummary> items;
+    // Opaque cursor for the next page, null when this is the last one
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,90 @@
+package org.example.quiz.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Filters and keyset position for the quiz catalogue. Ordering is always (createdAt, id)
+ * so the cursor stays stable while quizzes are being added. Quizzes without createdAt sort
+ * as the newest, which is PostgreSQL's default placement of NULLs and matches the indexes.
+ *
+ * A cursor carries the sort and filters it was issued for; it only applies to the same query.
+ */
+@Data
+@NoArgsConstructor
+public class QuizQuery {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+    private static final String CURSOR_VERSION = "v2";
+
+    private Boolean active;
+    private Long createdBy;
+    // Time window: quizzes starting at/after 'from' and ending at/before 'to'
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private boolean ascending;
+    private int limit = DEFAULT_LIMIT;
+
+    // Keyset position decoded from the cursor (exclusive); afterCreatedAt is null when the
+    // last row of the previous page had none
+    private LocalDateTime afterCreatedAt;
+    private Long afterId;
+
+    public void setLimit(int limit) {
+        this.limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public void setSort(String sort) {
+        if (sort == null || sort.isBlank() || "newest".equalsIgnoreCase(sort)) {
+            this.ascending = false;
+        } else if ("oldest".equalsIgnoreCase(sort)) {
+            this.ascending = true;
+        } else {
+            throw new IllegalArgumentException("Unsupported sort: " + sort + " (expected newest or oldest)");
+        }
+    }
+
+    // Set after the sort and filters: a cursor issued for a different query is rejected
+    public void setCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !CURSOR_VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!queryKey().equals(parts[1])) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort or filter");
+        }
+        try {
+            this.afterCreatedAt = parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]);
+            this.afterId = Long.parseLong(parts[3]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public boolean hasCursor() {
+        return afterId != null;
+    }
+
+    public String encodeCursor(QuizSummary last) {
+        String raw = CURSOR_VERSION + "|" + queryKey() + "|"
+                + (last.getCreatedAt() != null ? last.getCreatedAt() : "") + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Sort and filters the cursor is bound to; '|' never occurs in it
+    private String queryKey() {
+        return (ascending ? "oldest" : "newest") + "," + active + "," + createdBy + "," + from + "," + to;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Catalogue row for listings - quiz columns and a question count, never the question graph.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizSummary {
+    private Long id;
+    private String title;
+    private String description;
+    private Long createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer timeLimit;
+    private Integer passingScore;
+    private boolean active;
+    private Integer questionCount;
+}
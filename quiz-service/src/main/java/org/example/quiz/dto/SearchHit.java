@@ -0,0 +1,16 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+    // QUIZ (title/description matched) or QUESTION (question text matched)
+    private String type;
+    private Long quizId;
+    private Long questionId;
+    private float score;
+}
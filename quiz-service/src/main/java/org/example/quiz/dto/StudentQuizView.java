@@ -0,0 +1,52 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.quiz.model.Question;
+import org.example.quiz.model.Quiz;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a student is allowed to see of a quiz: no correctAnswers, no correctOptionIndex.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentQuizView {
+    private Long id;
+    private String title;
+    private String description;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer timeLimit;
+    private Integer passingScore;
+    private boolean active;
+    private Long version;
+    private List<QuestionView> questions = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuestionView {
+        private Long id;
+        private String text;
+        private Question.QuestionType type;
+        private Integer points;
+        private List<String> options;
+    }
+
+    public static StudentQuizView from(Quiz quiz) {
+        List<QuestionView> questions = new ArrayList<>(quiz.getQuestions().size());
+        for (Question question : quiz.getQuestions()) {
+            questions.add(new QuestionView(question.getId(), question.getText(), question.getType(),
+                    question.getPoints(), new ArrayList<>(question.getOptions())));
+        }
+        return new StudentQuizView(quiz.getId(), quiz.getTitle(), quiz.getDescription(),
+                quiz.getStartTime(), quiz.getEndTime(), quiz.getTimeLimit(), quiz.getPassingScore(),
+                quiz.isActive(), quiz.getVersion(), questions);
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.quiz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grader-side description of one student's variant: which questions were drawn, in what order,
+ * and for each question optionOrders[q][shownIndex] = original option index. answerKey is the
+ * encoded answer key of the same quiz version, so the variant can be graded after later edits.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantKey {
+    private Long quizId;
+    private Long userId;
+    private Long version;
+    private List<Long> questionIds;
+    private Map<Long, int[]> optionOrders;
+    private byte[] answerKey;
+}
@@ -45,6 +45,16 @@ public class Question {
     @JsonBackReference
     private Quiz quiz;
 
+    // Populate correctAnswers from correctOptionIndex if not already set
+    public void resolveCorrectAnswers() {
+        if ((correctAnswers == null || correctAnswers.isEmpty())
+                && correctOptionIndex != null
+                && options != null
+                && correctOptionIndex >= 0 && correctOptionIndex < options.size()) {
+            correctAnswers = new ArrayList<>(List.of(options.get(correctOptionIndex)));
+        }
+    }
+
     public enum QuestionType {
         MULTIPLE_CHOICE, TRUE_FALSE, SHORT_ANSWER
     }
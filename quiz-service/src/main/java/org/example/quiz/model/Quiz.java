@@ -11,7 +11,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "quizzes")
+@Table(name = "quizzes", indexes = {
+        // Keyset pagination for the catalogue, optionally narrowed by active flag or creator
+        @Index(name = "idx_quizzes_created", columnList = "created_at, id"),
+        @Index(name = "idx_quizzes_active_created", columnList = "active, created_at, id"),
+        @Index(name = "idx_quizzes_creator_created", columnList = "created_by, created_at, id"),
+        @Index(name = "idx_quizzes_window", columnList = "start_time, end_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,8 +48,21 @@ public class Quiz {
 
     private boolean active = true;
 
+    // Question pool: each student gets poolSize of the questions (null = all of them)
+    private Integer poolSize;
+
+    // Shuffle question and option order per student
+    private Boolean shuffle = false;
+
+    // Bumped on every content change; derived views and caches are keyed on it
+    private Long version = 0L;
+
     @OneToMany(mappedBy = "quiz", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<Question> questions = new ArrayList<>();
+
+    public void bumpVersion() {
+        version = (version == null ? 0L : version) + 1;
+    }
 }
 
@@ -0,0 +1,13 @@
+package org.example.quiz.repository;
+
+import org.example.quiz.model.Question;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface QuestionRepository extends JpaRepository<Question, Long> {
+    List<Question> findByIdIn(Collection<Long> ids);
+}
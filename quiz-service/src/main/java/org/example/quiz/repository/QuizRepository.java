@@ -2,13 +2,34 @@ package org.example.quiz.repository;
 
 import org.example.quiz.model.Quiz;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface QuizRepository extends JpaRepository<Quiz, Long> {
+public interface QuizRepository extends JpaRepository<Quiz, Long>, QuizRepositoryCustom {
     List<Quiz> findByCreatedBy(Long userId);
     List<Quiz> findByActiveTrue();
+
+    // What cached views of the quiz are checked against; a primary-key read of one column
+    @Query("select coalesce(q.version, 0) from Quiz q where q.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Quizzes with a transition ahead of them, or one that came due while no replica was running
+    @Query("select q from Quiz q where q.startTime > :now or q.endTime > :now"
+            + " or (q.active = true and q.endTime <= :now)"
+            + " or (q.active = false and q.startTime <= :now and q.endTime is null)")
+    List<Quiz> findWithPendingTransitions(@Param("now") LocalDateTime now);
+
+    // Conditional, so when several replicas apply the same transition only one changes the row
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Quiz q set q.active = :active, q.version = coalesce(q.version, 0) + 1"
+            + " where q.id = :id and q.active <> :active")
+    int updateActiveIfChanged(@Param("id") Long id, @Param("active") boolean active);
 }
 
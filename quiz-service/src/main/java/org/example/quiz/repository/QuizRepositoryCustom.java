@@ -0,0 +1,14 @@
+package org.example.quiz.repository;
+
+import org.example.quiz.dto.QuizQuery;
+import org.example.quiz.dto.QuizSummary;
+
+import java.util.List;
+
+public interface QuizRepositoryCustom {
+    // Returns at most limit + 1 rows so the caller can tell whether another page exists
+    List<QuizSummary> findSummaries(QuizQuery query);
+
+    // Every matching row in the query's order; its cursor and limit are ignored
+    List<QuizSummary> findAllSummaries(QuizQuery query);
+}
@@ -0,0 +1,94 @@
+package org.example.quiz.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.quiz.dto.QuizQuery;
+import org.example.quiz.dto.QuizSummary;
+import org.example.quiz.model.Question;
+import org.example.quiz.model.Quiz;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QuizRepositoryImpl implements QuizRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<QuizSummary> findSummaries(QuizQuery query) {
+        return entityManager.createQuery(summaries(query, true))
+                .setMaxResults(query.getLimit() + 1)
+                .getResultList();
+    }
+
+    @Override
+    public List<QuizSummary> findAllSummaries(QuizQuery query) {
+        return entityManager.createQuery(summaries(query, false)).getResultList();
+    }
+
+    private CriteriaQuery<QuizSummary> summaries(QuizQuery query, boolean fromCursor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<QuizSummary> cq = cb.createQuery(QuizSummary.class);
+        Root<Quiz> quiz = cq.from(Quiz.class);
+
+        // Constructor projection keeps the question graph out of the query entirely
+        cq.select(cb.construct(QuizSummary.class,
+                quiz.get("id"), quiz.get("title"), quiz.get("description"), quiz.get("createdBy"),
+                quiz.get("createdAt"), quiz.get("startTime"), quiz.get("endTime"),
+                quiz.get("timeLimit"), quiz.get("passingScore"), quiz.get("active"),
+                cb.size(quiz.<List<Question>>get("questions"))));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getActive() != null) {
+            predicates.add(cb.equal(quiz.get("active"), query.getActive()));
+        }
+        if (query.getCreatedBy() != null) {
+            predicates.add(cb.equal(quiz.get("createdBy"), query.getCreatedBy()));
+        }
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(quiz.get("startTime"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(quiz.get("endTime"), query.getTo()));
+        }
+
+        Path<LocalDateTime> createdAt = quiz.get("createdAt");
+        Path<Long> id = quiz.get("id");
+        if (fromCursor && query.hasCursor()) {
+            // (createdAt, id) > cursor  /  (createdAt, id) < cursor, expanded for the planner.
+            // A null createdAt sorts after every timestamp (PostgreSQL's default NULL order)
+            LocalDateTime cursorTime = query.getAfterCreatedAt();
+            Long cursorId = query.getAfterId();
+            if (cursorTime == null) {
+                Predicate sameKey = cb.and(cb.isNull(createdAt),
+                        query.isAscending() ? cb.greaterThan(id, cursorId) : cb.lessThan(id, cursorId));
+                predicates.add(query.isAscending() ? sameKey : cb.or(cb.isNotNull(createdAt), sameKey));
+            } else if (query.isAscending()) {
+                predicates.add(cb.or(
+                        cb.greaterThan(createdAt, cursorTime),
+                        cb.and(cb.equal(createdAt, cursorTime), cb.greaterThan(id, cursorId)),
+                        cb.isNull(createdAt)));
+            } else {
+                predicates.add(cb.or(
+                        cb.lessThan(createdAt, cursorTime),
+                        cb.and(cb.equal(createdAt, cursorTime), cb.lessThan(id, cursorId))));
+            }
+        }
+
+        cq.where(predicates.toArray(new Predicate[0]));
+        if (query.isAscending()) {
+            cq.orderBy(cb.asc(createdAt), cb.asc(id));
+        } else {
+            cq.orderBy(cb.desc(createdAt), cb.desc(id));
+        }
+
+        return cq;
+    }
+}
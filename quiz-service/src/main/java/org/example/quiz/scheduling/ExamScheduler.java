@@ -0,0 +1,217 @@
+package org.example.quiz.scheduling;
+
+import jakarta.annotation.PreDestroy;
+import org.example.quiz.model.Quiz;
+import org.example.quiz.repository.QuizRepository;
+import org.example.quiz.service.QuizService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acts on Quiz.startTime/endTime. Each quiz contributes up to three timed transitions to a
+ * DelayQueue (pre-warm at start - lead, activate at start, deactivate at end) and a single worker
+ * thread sleeps until the next one is due - nothing ever scans the quizzes table periodically.
+ *
+ * Rescheduling a quiz bumps its generation; entries queued under an older generation are skipped
+ * when they come due rather than being searched for and removed.
+ *
+ * On startup, transitions that came due while the service was down are applied right away. Every
+ * replica runs its own scheduler: QuizService applies a transition with a conditional update, so
+ * only one replica changes the quiz and announces it, and each one refreshes its own caches.
+ */
+@Component
+public class ExamScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ExamScheduler.class);
+
+    enum Action { PREWARM, ACTIVATE, DEACTIVATE }
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    @Lazy
+    private QuizService quizService;
+
+    @Value("${quiz.scheduler.prewarm-lead:PT2M}")
+    private Duration prewarmLead;
+
+    @Value("${grading.function.url:http://grading-function:9000}")
+    private String gradingFunctionUrl;
+
+    private final RestTemplate restTemplate;
+    private final DelayQueue<Transition> queue = new DelayQueue<>();
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong generationCounter = new AtomicLong();
+    private volatile Thread worker;
+
+    public ExamScheduler(RestTemplateBuilder restTemplateBuilder) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(2))
+                .setReadTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    private static final class Transition implements Delayed {
+        final long quizId;
+        final long generation;
+        final Action action;
+        final long dueAtMillis;
+
+        Transition(long quizId, long generation, Action action, long dueAtMillis) {
+            this.quizId = quizId;
+            this.generation = generation;
+            this.action = action;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Transition) other).dueAtMillis);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // One-off load of quizzes with a transition still ahead of them or overdue
+        for (Quiz quiz : quizRepository.findWithPendingTransitions(LocalDateTime.now())) {
+            schedule(quiz);
+            scheduleOverdue(quiz);
+        }
+        worker = new Thread(this::run, "exam-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Exam scheduler started with {} pending transitions (pre-warm lead {})", queue.size(), prewarmLead);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    public void schedule(Quiz quiz) {
+        long generation = generationCounter.incrementAndGet();
+        generations.put(quiz.getId(), generation);
+
+        long now = System.currentTimeMillis();
+        if (quiz.getStartTime() != null) {
+            long start = toMillis(quiz.getStartTime());
+            if (start > now) {
+                queue.add(new Transition(quiz.getId(), generation, Action.PREWARM, Math.max(now, start - prewarmLead.toMillis())));
+                queue.add(new Transition(quiz.getId(), generation, Action.ACTIVATE, start));
+            }
+        }
+        if (quiz.getEndTime() != null) {
+            long end = toMillis(quiz.getEndTime());
+            if (end > now) {
+                queue.add(new Transition(quiz.getId(), generation, Action.DEACTIVATE, end));
+            }
+        }
+    }
+
+    // A quiz past its end that is still active, or inside its window but not active, missed a
+    // transition while no scheduler ran. Only checked on startup: after that, a teacher turning a
+    // quiz off inside its window is deliberate
+    private void scheduleOverdue(Quiz quiz) {
+        long now = System.currentTimeMillis();
+        boolean started = quiz.getStartTime() == null || toMillis(quiz.getStartTime()) <= now;
+        boolean ended = quiz.getEndTime() != null && toMillis(quiz.getEndTime()) <= now;
+        Long generation = generations.get(quiz.getId());
+        if (ended && quiz.isActive()) {
+            queue.add(new Transition(quiz.getId(), generation, Action.DEACTIVATE, now));
+        } else if (started && !ended && !quiz.isActive() && quiz.getStartTime() != null) {
+            queue.add(new Transition(quiz.getId(), generation, Action.ACTIVATE, now));
+        }
+    }
+
+    public void cancel(Long quizId) {
+        // Any queued transitions now carry a stale generation and are dropped when due
+        generations.remove(quizId);
+    }
+
+    public int pendingTransitions() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (worker != null) {
+            Transition transition;
+            try {
+                transition = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Long current = generations.get(transition.quizId);
+            if (current == null || current != transition.generation) {
+                continue;
+            }
+            try {
+                apply(transition);
+            } catch (Exception e) {
+                logger.error("Scheduled {} of quiz {} failed: {}", transition.action, transition.quizId, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Transition transition) {
+        long quizId = transition.quizId;
+        switch (transition.action) {
+            case PREWARM -> {
+                quizService.warmDerivedViews(quizId);
+                warmGradingFunction(quizId);
+                logger.info("Pre-warmed caches for quiz {} ahead of its start", quizId);
+            }
+            case ACTIVATE -> {
+                quizService.applyScheduledActivation(quizId, true);
+                // Activation bumps the version, so grading-function revalidates its key once more now
+                warmGradingFunction(quizId);
+                logger.info("Activated quiz {} at its start time", quizId);
+            }
+            case DEACTIVATE -> {
+                quizService.applyScheduledActivation(quizId, false);
+                generations.remove(quizId);
+                logger.info("Deactivated quiz {} at its end time", quizId);
+            }
+        }
+    }
+
+    private void warmGradingFunction(long quizId) {
+        try {
+            restTemplate.postForEntity(gradingFunctionUrl + "/answer-keys/" + quizId + "/warm", null, Void.class);
+        } catch (Exception e) {
+            // Best effort: grading still fetches the key on first use
+            logger.warn("Could not pre-warm grading-function for quiz {}: {}", quizId, e.getMessage());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,341 @@
+package org.example.quiz.search;
+
+import org.example.quiz.dto.SearchHit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over quiz titles/descriptions and question texts, ranked with BM25.
+ *
+ * Quizzes and questions are separate documents so a question change touches one document only.
+ * Postings are parallel int/short arrays per term; the term dictionary is sorted so the last
+ * query token can be expanded as a prefix. Readers share a read lock, updates take the write lock.
+ */
+@Component
+public class QuizSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Title words count this many times towards a quiz document's term frequency
+    private static final int TITLE_WEIGHT = 3;
+    private static final float PREFIX_WEIGHT = 0.6f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final byte QUIZ = 0;
+    private static final byte QUESTION = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private Doc[] docs = new Doc[1024];
+    private int docLimit;
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private int liveDocs;
+    private long totalLength;
+    private long postingCount;
+
+    private final Map<Long, Integer> quizDocs = new HashMap<>();
+    private final Map<Long, Integer> questionDocs = new HashMap<>();
+    private final Map<Long, Set<Long>> questionsByQuiz = new HashMap<>();
+
+    private static final class Doc {
+        byte kind;
+        long quizId;
+        long questionId;
+        int length;
+        String[] terms;
+    }
+
+    private static final class Postings {
+        int[] docs = new int[2];
+        short[] tfs = new short[2];
+        int size;
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = (short) Math.min(tf, Short.MAX_VALUE);
+            size++;
+        }
+
+        boolean remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    tfs[i] = tfs[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public void upsertQuiz(Long quizId, String title, String description) {
+        Map<String, Integer> tf = new HashMap<>();
+        for (String token : SearchTokenizer.tokenize(title)) {
+            tf.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : SearchTokenizer.tokenize(description)) {
+            tf.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = quizDocs.remove(quizId);
+            if (existing != null) {
+                removeDoc(existing);
+            }
+            quizDocs.put(quizId, addDoc(QUIZ, quizId, 0L, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsertQuestion(Long questionId, Long quizId, String text) {
+        if (questionId == null || quizId == null) {
+            return;
+        }
+        Map<String, Integer> tf = new HashMap<>();
+        for (String token : SearchTokenizer.tokenize(text)) {
+            tf.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = questionDocs.remove(questionId);
+            if (existing != null) {
+                removeDoc(existing);
+            }
+            questionDocs.put(questionId, addDoc(QUESTION, quizId, questionId, tf));
+            questionsByQuiz.computeIfAbsent(quizId, id -> new HashSet<>()).add(questionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeQuestion(Long questionId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = questionDocs.remove(questionId);
+            if (doc != null) {
+                Set<Long> siblings = questionsByQuiz.get(docs[doc].quizId);
+                if (siblings != null) {
+                    siblings.remove(questionId);
+                }
+                removeDoc(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeQuiz(Long quizId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = quizDocs.remove(quizId);
+            if (doc != null) {
+                removeDoc(doc);
+            }
+            Set<Long> questions = questionsByQuiz.remove(quizId);
+            if (questions != null) {
+                for (Long questionId : questions) {
+                    Integer questionDoc = questionDocs.remove(questionId);
+                    if (questionDoc != null) {
+                        removeDoc(questionDoc);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            docs = new Doc[1024];
+            docLimit = 0;
+            freeDocs.clear();
+            liveDocs = 0;
+            totalLength = 0;
+            postingCount = 0;
+            quizDocs.clear();
+            questionDocs.clear();
+            questionsByQuiz.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return new ArrayList<>();
+            }
+            float avgLength = (float) totalLength / liveDocs;
+            float[] scores = new float[docLimit];
+            int[] touched = new int[64];
+            int touchedCount = 0;
+
+            for (int t = 0; t < tokens.size(); t++) {
+                String token = tokens.get(t);
+                // Exact term plus, for the token being typed (the last one), every term it prefixes
+                Map<Postings, Float> matches = new LinkedHashMap<>();
+                Postings exact = terms.get(token);
+                if (exact != null) {
+                    matches.put(exact, 1f);
+                }
+                if (t == tokens.size() - 1) {
+                    NavigableMap<String, Postings> expansions = terms.subMap(token, false, token + Character.MAX_VALUE, false);
+                    int expanded = 0;
+                    for (Postings postings : expansions.values()) {
+                        if (expanded++ == MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        matches.putIfAbsent(postings, PREFIX_WEIGHT);
+                    }
+                }
+
+                for (Map.Entry<Postings, Float> match : matches.entrySet()) {
+                    Postings postings = match.getKey();
+                    float idf = (float) Math.log(1 + (liveDocs - postings.size + 0.5) / (postings.size + 0.5));
+                    float weight = idf * match.getValue();
+                    for (int i = 0; i < postings.size; i++) {
+                        int doc = postings.docs[i];
+                        float tf = postings.tfs[i];
+                        float norm = K1 * (1 - B + B * docs[doc].length / avgLength);
+                        if (scores[doc] == 0f) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = doc;
+                        }
+                        scores[doc] += weight * (tf * (K1 + 1)) / (tf + norm);
+                    }
+                }
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int i = 0; i < touchedCount; i++) {
+                top.offer(touched[i]);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<SearchHit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int doc = top.poll();
+                Doc d = docs[doc];
+                hits.add(new SearchHit(d.kind == QUIZ ? "QUIZ" : "QUESTION", d.quizId,
+                        d.kind == QUESTION ? d.questionId : null, scores[doc]));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postingBytes = 0;
+            long termBytes = 0;
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                // int + short per allocated slot, array headers, Postings object, TreeMap entry, String
+                postingBytes += entry.getValue().docs.length * 6L + 32 + 24;
+                termBytes += 40 + 56 + entry.getKey().length();
+            }
+            long docBytes = (long) docs.length * 4;
+            for (int i = 0; i < docLimit; i++) {
+                if (docs[i] != null) {
+                    docBytes += 40 + 16 + docs[i].terms.length * 4L;
+                }
+            }
+            // HashMap entries for id lookups (~48 bytes each with boxed keys/values)
+            long lookupBytes = (quizDocs.size() + questionDocs.size() * 2L) * 48;
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("documents", liveDocs);
+            stats.put("quizzes", quizDocs.size());
+            stats.put("questions", questionDocs.size());
+            stats.put("terms", terms.size());
+            stats.put("postings", postingCount);
+            stats.put("averageDocumentLength", liveDocs == 0 ? 0 : (double) totalLength / liveDocs);
+            stats.put("estimatedBytes", postingBytes + termBytes + docBytes + lookupBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int addDoc(byte kind, long quizId, long questionId, Map<String, Integer> tf) {
+        int id = freeDocs.isEmpty() ? docLimit++ : freeDocs.pop();
+        if (id >= docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+        }
+        Doc doc = new Doc();
+        doc.kind = kind;
+        doc.quizId = quizId;
+        doc.questionId = questionId;
+        doc.terms = new String[tf.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : tf.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            String term = entry.getKey();
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term, postings);
+            } else {
+                // Reuse the dictionary's String instance rather than keeping a copy per document
+                term = terms.ceilingKey(term);
+            }
+            postings.add(id, entry.getValue());
+            doc.terms[i++] = term;
+            doc.length += entry.getValue();
+        }
+        docs[id] = doc;
+        liveDocs++;
+        totalLength += doc.length;
+        postingCount += doc.terms.length;
+        return id;
+    }
+
+    private void removeDoc(int id) {
+        Doc doc = docs[id];
+        for (String term : doc.terms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        liveDocs--;
+        totalLength -= doc.length;
+        postingCount -= doc.terms.length;
+        docs[id] = null;
+        freeDocs.push(id);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.quiz.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Builds the search index at startup by streaming plain rows over JDBC, so no entity graphs are
+ * materialized. Afterwards QuizService keeps the index current incrementally.
+ */
+@Component
+public class SearchIndexLoader {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexLoader.class);
+    private static final int FETCH_SIZE = 2000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuizSearchIndex searchIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        searchIndex.clear();
+
+        // Cursor-based fetch needs autocommit off, which the read-only transaction provides
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("select id, title, description from quizzes");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            searchIndex.upsertQuiz(rs.getLong(1), rs.getString(2), rs.getString(3));
+        });
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("select id, quiz_id, text from questions where quiz_id is not null");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            searchIndex.upsertQuestion(rs.getLong(1), rs.getLong(2), rs.getString(3));
+        });
+
+        logger.info("Search index built in {} ms: {}", System.currentTimeMillis() - started, searchIndex.stats());
+    }
+}
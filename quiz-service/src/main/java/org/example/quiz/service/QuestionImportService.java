@@ -0,0 +1,356 @@
+package org.example.quiz.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.quiz.dto.ImportResult;
+import org.example.quiz.model.Question;
+import org.example.quiz.repository.QuizRepository;
+import org.example.quiz.search.QuizSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a question bank (JSON lines or CSV) into an existing quiz. Rows are parsed one at a
+ * time and written with JDBC batches; the quiz aggregate is never loaded.
+ *
+ * JSON lines: one object per line with the Question fields
+ *   {"text": "...", "type": "MULTIPLE_CHOICE", "points": 1, "options": ["a", "b"], "correctOptionIndex": 0}
+ * CSV: a header row naming any of text,type,points,options,correctAnswers,correctOptionIndex;
+ *   list cells (options, correctAnswers) are separated by '|'.
+ */
+@Service
+public class QuestionImportService {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionImportService.class);
+
+    private static final String INSERT_QUESTION =
+            "insert into questions (id, text, type, points, correct_option_index, quiz_id) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_OPTION = "insert into question_options (question_id, option_text) values (?, ?)";
+    private static final String INSERT_ANSWER = "insert into question_answers (question_id, answer) values (?, ?)";
+    private static final String ALLOCATE_IDS =
+            "select nextval(pg_get_serial_sequence('questions', 'id')) from generate_series(1, ?)";
+
+    public enum Format { JSONL, CSV }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    private QuizService quizService;
+
+    @Autowired
+    private QuizSearchIndex searchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${quiz.import.batch-size:500}")
+    private int batchSize;
+
+    @Transactional
+    public ImportResult importQuestions(Long quizId, InputStream body, Format format) throws IOException {
+        if (!quizRepository.existsById(quizId)) {
+            throw new RuntimeException("Quiz not found");
+        }
+
+        long started = System.nanoTime();
+        ImportResult result = new ImportResult();
+        result.setQuizId(quizId);
+
+        JsonFactory jsonFactory = objectMapper.getFactory();
+        List<Question> batch = new ArrayList<>(batchSize);
+        List<Long> indexedIds = new ArrayList<>();
+        List<String> indexedTexts = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String[] csvHeader = null;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && csvHeader == null) {
+                csvHeader = splitCsv(line).toArray(new String[0]);
+                continue;
+            }
+
+            result.setRowsRead(result.getRowsRead() + 1);
+            try {
+                Question question = format == Format.CSV
+                        ? parseCsvRow(csvHeader, splitCsv(line))
+                        : parseJsonRow(jsonFactory, line);
+                validate(question);
+                batch.add(question);
+            } catch (JsonProcessingException e) {
+                result.reject(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                result.reject(lineNumber, e.getMessage());
+                continue;
+            }
+
+            if (batch.size() >= batchSize) {
+                indexedIds.addAll(insertBatch(quizId, batch));
+                batch.forEach(question -> indexedTexts.add(question.getText()));
+                result.setImported(result.getImported() + batch.size());
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            indexedIds.addAll(insertBatch(quizId, batch));
+            batch.forEach(question -> indexedTexts.add(question.getText()));
+            result.setImported(result.getImported() + batch.size());
+        }
+
+        if (result.getImported() > 0) {
+            quizService.markQuestionsChanged(quizId);
+            // Rows only become searchable once the import has committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (int i = 0; i < indexedIds.size(); i++) {
+                        searchIndex.upsertQuestion(indexedIds.get(i), quizId, indexedTexts.get(i));
+                    }
+                }
+            });
+        }
+
+        result.setDurationMs((System.nanoTime() - started) / 1_000_000);
+        logger.info("Imported {} of {} rows into quiz {} in {} ms ({} rejected)",
+                result.getImported(), result.getRowsRead(), quizId, result.getDurationMs(), result.getErrorCount());
+        return result;
+    }
+
+    private List<Long> insertBatch(Long quizId, List<Question> batch) {
+        // IDENTITY keys defeat JDBC batching, so reserve the ids up front in a single round trip
+        List<Long> ids = jdbcTemplate.queryForList(ALLOCATE_IDS, Long.class, batch.size());
+
+        jdbcTemplate.batchUpdate(INSERT_QUESTION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Question question = batch.get(i);
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, question.getText());
+                ps.setString(3, question.getType().name());
+                ps.setInt(4, question.getPoints());
+                if (question.getCorrectOptionIndex() != null) {
+                    ps.setInt(5, question.getCorrectOptionIndex());
+                } else {
+                    ps.setNull(5, Types.INTEGER);
+                }
+                ps.setLong(6, quizId);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+
+        List<Object[]> options = new ArrayList<>();
+        List<Object[]> answers = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = ids.get(i);
+            for (String option : batch.get(i).getOptions()) {
+                options.add(new Object[]{id, option});
+            }
+            for (String answer : batch.get(i).getCorrectAnswers()) {
+                answers.add(new Object[]{id, answer});
+            }
+        }
+        if (!options.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OPTION, options);
+        }
+        if (!answers.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ANSWER, answers);
+        }
+        return ids;
+    }
+
+    private Question parseJsonRow(JsonFactory jsonFactory, String line) throws IOException {
+        Question question = new Question();
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "text" -> question.setText(parser.getText());
+                    case "type" -> question.setType(parseType(parser.getText()));
+                    case "points" -> question.setPoints(readInt(parser, field));
+                    case "correctOptionIndex" -> question.setCorrectOptionIndex(readInt(parser, field));
+                    case "options" -> question.setOptions(readStrings(parser, field));
+                    case "correctAnswers" -> question.setCorrectAnswers(readStrings(parser, field));
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+        }
+        return question;
+    }
+
+    // getValueAsInt would turn "abc", true or an array into 0
+    private static int readInt(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT) {
+            throw new IllegalArgumentException("'" + field + "' must be an integer");
+        }
+        return parser.getIntValue();
+    }
+
+    private List<String> readStrings(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("'" + field + "' must be an array of strings");
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                throw new IllegalArgumentException("'" + field + "' must be an array of strings");
+            }
+            values.add(parser.getText());
+        }
+        return values;
+    }
+
+    private Question parseCsvRow(String[] header, List<String> cells) {
+        if (cells.size() > header.length) {
+            throw new IllegalArgumentException("Row has " + cells.size() + " cells but header has " + header.length);
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < cells.size(); i++) {
+            row.put(header[i].trim(), cells.get(i));
+        }
+
+        Question question = new Question();
+        question.setText(row.get("text"));
+        if (notBlank(row.get("type"))) {
+            question.setType(parseType(row.get("type").trim()));
+        }
+        if (notBlank(row.get("points"))) {
+            question.setPoints(parseInt("points", row.get("points")));
+        }
+        if (notBlank(row.get("correctOptionIndex"))) {
+            question.setCorrectOptionIndex(parseInt("correctOptionIndex", row.get("correctOptionIndex")));
+        }
+        if (notBlank(row.get("options"))) {
+            question.setOptions(new ArrayList<>(Arrays.asList(row.get("options").split("\\|", -1))));
+        }
+        if (notBlank(row.get("correctAnswers"))) {
+            question.setCorrectAnswers(new ArrayList<>(Arrays.asList(row.get("correctAnswers").split("\\|", -1))));
+        }
+        return question;
+    }
+
+    // RFC 4180 style split of a single line: quoted cells may contain commas and "" escapes
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted cell");
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private void validate(Question question) {
+        if (question.getText() == null || question.getText().isBlank()) {
+            throw new IllegalArgumentException("'text' is required");
+        }
+        if (question.getText().length() > 1000) {
+            throw new IllegalArgumentException("'text' is longer than 1000 characters");
+        }
+        if (question.getType() == null) {
+            question.setType(Question.QuestionType.MULTIPLE_CHOICE);
+        }
+        if (question.getPoints() == null || question.getPoints() < 0) {
+            throw new IllegalArgumentException("'points' must be zero or positive");
+        }
+        if (question.getType() == Question.QuestionType.MULTIPLE_CHOICE && question.getOptions().isEmpty()) {
+            throw new IllegalArgumentException("Multiple choice questions need 'options'");
+        }
+        if (question.getCorrectOptionIndex() != null
+                && (question.getCorrectOptionIndex() < 0 || question.getCorrectOptionIndex() >= question.getOptions().size())) {
+            throw new IllegalArgumentException("'correctOptionIndex' is out of range");
+        }
+        question.resolveCorrectAnswers();
+        if (question.getCorrectAnswers().isEmpty()) {
+            throw new IllegalArgumentException("Either 'correctAnswers' or 'correctOptionIndex' is required");
+        }
+    }
+
+    private static Question.QuestionType parseType(String type) {
+        try {
+            return Question.QuestionType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown question type '" + type + "'");
+        }
+    }
+
+    private static int parseInt(String field, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + field + "' must be an integer");
+        }
+    }
+
+    private static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -1,19 +1,40 @@
 package org.example.quiz.service;
 
+import org.example.quiz.answerkey.AnswerKeyCache;
+import org.example.quiz.answerkey.AnswerKeyCodec;
+import org.example.quiz.config.RabbitMQConfig;
+import org.example.quiz.dto.QuizPage;
+import org.example.quiz.dto.QuizQuery;
+import org.example.quiz.dto.QuizSummary;
+import org.example.quiz.dto.StudentQuizView;
+import org.example.quiz.dto.VariantKey;
 import org.example.quiz.model.Question;
 import org.example.quiz.model.Quiz;
+import org.example.quiz.repository.QuestionRepository;
 import org.example.quiz.repository.QuizRepository;
+import org.example.quiz.scheduling.ExamScheduler;
+import org.example.quiz.search.QuizSearchIndex;
+import org.example.quiz.variant.QuestionPool;
+import org.example.quiz.variant.QuestionPoolCache;
+import org.example.quiz.variant.VariantGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class QuizService {
@@ -22,6 +43,24 @@ public class QuizService {
     @Autowired
     private QuizRepository quizRepository;
 
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private StudentViewCache studentViewCache;
+
+    @Autowired
+    private QuizSearchIndex searchIndex;
+
+    @Autowired
+    private QuestionPoolCache questionPoolCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private ExamScheduler examScheduler;
+
     @Autowired
     private KafkaTemplate<String, Object> kafkaTemplate;
 
@@ -29,23 +68,15 @@ public class QuizService {
     private RabbitTemplate rabbitTemplate;
 
     public Quiz createQuiz(Quiz quiz) {
-        // Populate correctAnswers from correctOptionIndex if not already set
         if (quiz.getQuestions() != null) {
-            for (Question question : quiz.getQuestions()) {
-                if ((question.getCorrectAnswers() == null || question.getCorrectAnswers().isEmpty()) 
-                    && question.getCorrectOptionIndex() != null 
-                    && question.getOptions() != null) {
-                    // Get the option text at the index and set it as the correct answer
-                    if (question.getCorrectOptionIndex() < question.getOptions().size()) {
-                        String correctAnswer = question.getOptions().get(question.getCorrectOptionIndex());
-                        question.setCorrectAnswers(new ArrayList<>(List.of(correctAnswer)));
-                        System.out.println("Set correctAnswers for Q" + question.getId() + ": [" + correctAnswer + "]");
-                    }
-                }
-            }
+            quiz.getQuestions().forEach(Question::resolveCorrectAnswers);
         }
 
+        deactivateUntilStart(quiz);
+
         Quiz savedQuiz = quizRepository.save(quiz);
+        indexQuiz(savedQuiz);
+        examScheduler.schedule(savedQuiz);
 
         // Publish event to Kafka
         Map<String, Object> event = new HashMap<>();
@@ -63,7 +94,7 @@ public class QuizService {
         notification.put("title", savedQuiz.getTitle());
         notification.put("description", savedQuiz.getDescription());
         notification.put("active", savedQuiz.isActive());
-        rabbitTemplate.convertAndSend("notifications", notification);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.NOTIFICATIONS_EXCHANGE, "notification.quiz_created", notification);
 
         System.out.println(" Quiz created and notification sent: " + savedQuiz.getTitle());
 
@@ -78,6 +109,49 @@ public class QuizService {
         return quiz;
     }
 
+    @Transactional(readOnly = true)
+    public StudentViewCache.Payload getStudentView(Long id) {
+        return studentViewCache.get(id, currentVersion(id), this::getQuizById);
+    }
+
+    @Transactional(readOnly = true)
+    public QuestionPool getQuestionPool(Long id) {
+        return questionPoolCache.get(id, currentVersion(id), this::getQuizById);
+    }
+
+    @Transactional(readOnly = true)
+    public AnswerKeyCache.EncodedKey getAnswerKey(Long id) {
+        return answerKeyCache.get(id, currentVersion(id), this::getQuizById);
+    }
+
+    // Cached views are checked against this, so one built before another replica's write is rebuilt
+    private long currentVersion(Long id) {
+        return quizRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
+    }
+
+    public StudentQuizView getVariant(Long id, Long userId) {
+        // Only the first call per quiz version touches the database; variants are pure computation
+        return VariantGenerator.render(getQuestionPool(id), userId);
+    }
+
+    // Carries the answer key of the pool's version. If a write landed between the two cached reads,
+    // both are built from one load of the quiz instead
+    @Transactional(readOnly = true)
+    public VariantKey getVariantKey(Long id, Long userId) {
+        QuestionPool pool = getQuestionPool(id);
+        AnswerKeyCache.EncodedKey key = getAnswerKey(id);
+        byte[] answerKey = key.getBytes();
+        if (!Objects.equals(key.getVersion(), pool.getVersion())) {
+            Quiz quiz = getQuizById(id);
+            pool = QuestionPool.of(quiz);
+            answerKey = AnswerKeyCodec.encode(quiz);
+        }
+        VariantKey variant = VariantGenerator.key(pool, userId);
+        variant.setAnswerKey(answerKey);
+        return variant;
+    }
+
     private void initializeLazyCollections(Quiz quiz) {
         if (quiz != null && quiz.getQuestions() != null) {
             logger.info(" Initializing lazy collections for quiz {}", quiz.getId());
@@ -91,20 +165,30 @@ public class QuizService {
         }
     }
 
-    public List<Quiz> getAllQuizzes() {
-        List<Quiz> quizzes = quizRepository.findAll();
-        quizzes.forEach(this::initializeLazyCollections);
-        return quizzes;
+    // Listings are readable by every role and polled by the UI, so they are summaries from one
+    // query: no answers and no question graphs. Questions come from the student view or authoring
+    public List<QuizSummary> getAllQuizzes() {
+        return quizRepository.findAllSummaries(new QuizQuery());
+    }
+
+    public List<QuizSummary> getActiveQuizzes() {
+        QuizQuery query = new QuizQuery();
+        query.setActive(true);
+        return quizRepository.findAllSummaries(query);
     }
 
-    public List<Quiz> getActiveQuizzes() {
-        List<Quiz> quizzes = quizRepository.findByActiveTrue();
-        quizzes.forEach(this::initializeLazyCollections);
-        return quizzes;
+    public List<QuizSummary> getQuizzesByCreator(Long userId) {
+        QuizQuery query = new QuizQuery();
+        query.setCreatedBy(userId);
+        return quizRepository.findAllSummaries(query);
     }
 
-    public List<Quiz> getQuizzesByCreator(Long userId) {
-        return quizRepository.findByCreatedBy(userId);
+    public QuizPage getQuizPage(QuizQuery query) {
+        List<QuizSummary> rows = quizRepository.findSummaries(query);
+        boolean hasMore = rows.size() > query.getLimit();
+        List<QuizSummary> items = hasMore ? rows.subList(0, query.getLimit()) : rows;
+        String nextCursor = hasMore ? query.encodeCursor(items.get(items.size() - 1)) : null;
+        return new QuizPage(new ArrayList<>(items), nextCursor, hasMore);
     }
 
     public Quiz updateQuiz(Long id, Quiz quiz) {
@@ -116,32 +200,138 @@ public class QuizService {
         existingQuiz.setTimeLimit(quiz.getTimeLimit());
         existingQuiz.setPassingScore(quiz.getPassingScore());
         existingQuiz.setActive(quiz.isActive());
+        existingQuiz.setPoolSize(quiz.getPoolSize());
+        existingQuiz.setShuffle(quiz.getShuffle());
+        deactivateUntilStart(existingQuiz);
+        existingQuiz.bumpVersion();
 
         Quiz updatedQuiz = quizRepository.save(existingQuiz);
+        invalidateDerivedViews(id);
+        searchIndex.upsertQuiz(id, updatedQuiz.getTitle(), updatedQuiz.getDescription());
+        examScheduler.schedule(updatedQuiz);
+
+        publishQuizUpdated(updatedQuiz);
+
+        System.out.println("✓ Quiz updated and notification sent: " + updatedQuiz.getTitle());
+
+        return updatedQuiz;
+    }
+
+    // Called after questions were written outside the aggregate (bulk import)
+    @Transactional
+    public Quiz markQuestionsChanged(Long quizId) {
+        Quiz quiz = quizRepository.findById(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
+        quiz.bumpVersion();
+        invalidateDerivedViews(quizId);
+        publishQuizUpdated(quiz);
+        return quiz;
+    }
 
+    // Loads every derived view so the first students at start time hit warm caches
+    @Transactional(readOnly = true)
+    public void warmDerivedViews(Long quizId) {
+        studentViewCache.get(quizId, currentVersion(quizId), this::getQuizById);
+        questionPoolCache.get(quizId, currentVersion(quizId), this::getQuizById);
+        answerKeyCache.get(quizId, currentVersion(quizId), this::getQuizById);
+    }
+
+    // Start/end time transition from ExamScheduler; views are rebuilt rather than evicted. Every
+    // replica runs it, but the conditional update lets only one change the quiz and announce it
+    @Transactional
+    public Quiz applyScheduledActivation(Long quizId, boolean active) {
+        boolean applied = quizRepository.updateActiveIfChanged(quizId, active) > 0;
+        Quiz quiz = getQuizById(quizId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                studentViewCache.put(quiz);
+                questionPoolCache.put(quiz);
+                answerKeyCache.put(quiz);
+            }
+        });
+        if (applied) {
+            publishQuizUpdated(quiz);
+        }
+        return quiz;
+    }
+
+    // A quiz that has not opened yet is not active, whatever the request said; ExamScheduler
+    // activates it at startTime
+    private static void deactivateUntilStart(Quiz quiz) {
+        if (quiz.getStartTime() != null && quiz.getStartTime().isAfter(LocalDateTime.now())) {
+            quiz.setActive(false);
+        }
+    }
+
+    // Inside a transaction the views are evicted after commit: evicted earlier, a concurrent read
+    // could rebuild them from the old row and keep that until the next write
+    private void invalidateDerivedViews(Long quizId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictDerivedViews(quizId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictDerivedViews(quizId);
+            }
+        });
+    }
+
+    private void evictDerivedViews(Long quizId) {
+        studentViewCache.evict(quizId);
+        questionPoolCache.evict(quizId);
+        answerKeyCache.evict(quizId);
+    }
+
+    private void indexQuiz(Quiz quiz) {
+        searchIndex.upsertQuiz(quiz.getId(), quiz.getTitle(), quiz.getDescription());
+        for (Question question : quiz.getQuestions()) {
+            searchIndex.upsertQuestion(question.getId(), quiz.getId(), question.getText());
+        }
+    }
+
+    private void publishQuizUpdated(Quiz quiz) {
         // Publish event to Kafka
         Map<String, Object> event = new HashMap<>();
         event.put("eventType", "QUIZ_UPDATED");
-        event.put("quizId", updatedQuiz.getId());
-        kafkaTemplate.send("quiz-events", event);
+        event.put("quizId", quiz.getId());
+        event.put("version", quiz.getVersion());
 
         // Send notification via RabbitMQ (for WebSocket broadcast)
         Map<String, Object> notification = new HashMap<>();
         notification.put("type", "QUIZ_UPDATED");
         notification.put("eventType", "QUIZ_UPDATED");
-        notification.put("quizId", updatedQuiz.getId());
-        notification.put("title", updatedQuiz.getTitle());
-        notification.put("active", updatedQuiz.isActive());
-        rabbitTemplate.convertAndSend("notifications", notification);
+        notification.put("quizId", quiz.getId());
+        notification.put("title", quiz.getTitle());
+        notification.put("active", quiz.isActive());
 
-        System.out.println("✓ Quiz updated and notification sent: " + updatedQuiz.getTitle());
+        // Consumers re-fetch the quiz on this event, so inside a transaction it goes out after
+        // commit; a rollback publishes nothing
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sendQuizUpdated(event, notification);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sendQuizUpdated(event, notification);
+            }
+        });
+    }
 
-        return updatedQuiz;
+    private void sendQuizUpdated(Map<String, Object> event, Map<String, Object> notification) {
+        kafkaTemplate.send("quiz-events", event);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.NOTIFICATIONS_EXCHANGE, "notification.quiz_updated", notification);
     }
 
     public void deleteQuiz(Long id) {
         Quiz quiz = getQuizById(id);
         quizRepository.delete(quiz);
+        invalidateDerivedViews(id);
+        searchIndex.removeQuiz(id);
+        examScheduler.cancel(id);
 
         // Publish event to Kafka
         Map<String, Object> event = new HashMap<>();
@@ -155,24 +345,80 @@ public class QuizService {
         notification.put("eventType", "QUIZ_DELETED");
         notification.put("quizId", id);
         notification.put("title", quiz.getTitle());
-        rabbitTemplate.convertAndSend("notifications", notification);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.NOTIFICATIONS_EXCHANGE, "notification.quiz_deleted", notification);
 
         System.out.println("✓ Quiz deleted and notification sent: " + quiz.getTitle());
     }
 
+    @Transactional
     public Question addQuestionToQuiz(Long quizId, Question question) {
         Quiz quiz = getQuizById(quizId);
         question.setQuiz(quiz);
-        quiz.getQuestions().add(question);
-        quizRepository.save(quiz);
-        return question;
+        // Saved directly so the returned (and indexed) question is the managed copy with its id
+        Question saved = questionRepository.save(question);
+        quiz.getQuestions().add(saved);
+        quiz.bumpVersion();
+        invalidateDerivedViews(quizId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                searchIndex.upsertQuestion(saved.getId(), quizId, saved.getText());
+            }
+        });
+        return saved;
     }
 
+    @Transactional
     public void deleteQuestion(Long questionId) {
-        for (Quiz quiz : quizRepository.findAll()) {
-            quiz.getQuestions().removeIf(q -> q.getId().equals(questionId));
-            quizRepository.save(quiz);
+        Question question = questionRepository.findById(questionId)
+                .orElseThrow(() -> new RuntimeException("Question not found"));
+        // Only the owning quiz row is touched; its question list is never loaded
+        Quiz quiz = question.getQuiz();
+        questionRepository.delete(question);
+        // Removed after commit, like additions: a rollback keeps the question searchable
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                searchIndex.removeQuestion(questionId);
+            }
+        });
+        if (quiz != null) {
+            quiz.bumpVersion();
+            invalidateDerivedViews(quiz.getId());
+            publishQuizUpdated(quiz);
+        }
+    }
+
+    @Transactional
+    public int deleteQuestions(Collection<Long> questionIds) {
+        List<Question> questions = questionRepository.findByIdIn(questionIds);
+        if (questions.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Quiz> affectedQuizzes = new LinkedHashMap<>();
+        for (Question question : questions) {
+            if (question.getQuiz() != null) {
+                affectedQuizzes.putIfAbsent(question.getQuiz().getId(), question.getQuiz());
+            }
+        }
+
+        questionRepository.deleteAll(questions);
+        List<Long> deletedIds = questions.stream().map(Question::getId).toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deletedIds.forEach(searchIndex::removeQuestion);
+            }
+        });
+
+        for (Quiz quiz : affectedQuizzes.values()) {
+            quiz.bumpVersion();
+            invalidateDerivedViews(quiz.getId());
+            publishQuizUpdated(quiz);
         }
+        logger.info("Deleted {} questions across {} quizzes", questions.size(), affectedQuizzes.size());
+        return questions.size();
     }
 }
 
@@ -0,0 +1,88 @@
+package org.example.quiz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.example.quiz.cache.VersionedCache;
+import org.example.quiz.dto.StudentQuizView;
+import org.example.quiz.model.Quiz;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Student views serialized and gzip-compressed once per quiz version. Reads are checked against
+ * the quiz's current version, so after a write on any replica the body and its ETag are rebuilt
+ * from the database exactly once per replica.
+ */
+@Component
+public class StudentViewCache {
+    private static final Logger logger = LoggerFactory.getLogger(StudentViewCache.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${quiz.cache.max-quizzes:1000}")
+    private int maxQuizzes;
+
+    private VersionedCache<Payload> payloads;
+
+    @Data
+    @AllArgsConstructor
+    public static class Payload {
+        private Long quizId;
+        private Long version;
+        private byte[] gzipped;
+        private int rawLength;
+
+        public String etag() {
+            return "\"" + quizId + "-" + version + "\"";
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        payloads = new VersionedCache<>(maxQuizzes, this::build);
+    }
+
+    public Payload get(Long quizId, long currentVersion, Function<Long, Quiz> loader) {
+        return payloads.get(quizId, currentVersion, loader);
+    }
+
+    public Payload put(Quiz quiz) {
+        return payloads.put(quiz);
+    }
+
+    public boolean contains(Long quizId) {
+        return payloads.contains(quizId);
+    }
+
+    public void evict(Long quizId) {
+        payloads.evict(quizId);
+    }
+
+    private Payload build(Quiz quiz) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(StudentQuizView.from(quiz));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(json);
+            }
+            byte[] gzipped = buffer.toByteArray();
+            logger.info("Built student view for quiz {} v{}: {} bytes json, {} bytes gzip",
+                    quiz.getId(), quiz.getVersion(), json.length, gzipped.length);
+            return new Payload(quiz.getId(), quiz.getVersion(), gzipped, json.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
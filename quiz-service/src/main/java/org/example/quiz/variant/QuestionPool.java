@@ -0,0 +1,79 @@
+package org.example.quiz.variant;
+
+import lombok.Getter;
+import org.example.quiz.model.Question;
+import org.example.quiz.model.Quiz;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a quiz's questions for variant rendering, taken once per quiz version.
+ * Questions are kept in id order so every node draws from the same sequence.
+ */
+@Getter
+public final class QuestionPool {
+
+    @Getter
+    public static final class PooledQuestion {
+        private final Long id;
+        private final String text;
+        private final Question.QuestionType type;
+        private final Integer points;
+        private final List<String> options;
+
+        private PooledQuestion(Question question) {
+            this.id = question.getId();
+            this.text = question.getText();
+            this.type = question.getType();
+            this.points = question.getPoints();
+            this.options = List.copyOf(question.getOptions());
+        }
+    }
+
+    private final Long quizId;
+    private final Long version;
+    private final String title;
+    private final String description;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final Integer timeLimit;
+    private final Integer passingScore;
+    private final boolean active;
+    private final int drawCount;
+    private final boolean shuffle;
+    private final List<PooledQuestion> questions;
+
+    private QuestionPool(Quiz quiz) {
+        this.quizId = quiz.getId();
+        this.version = quiz.getVersion();
+        this.title = quiz.getTitle();
+        this.description = quiz.getDescription();
+        this.startTime = quiz.getStartTime();
+        this.endTime = quiz.getEndTime();
+        this.timeLimit = quiz.getTimeLimit();
+        this.passingScore = quiz.getPassingScore();
+        this.active = quiz.isActive();
+        this.shuffle = Boolean.TRUE.equals(quiz.getShuffle());
+
+        List<PooledQuestion> pooled = new ArrayList<>(quiz.getQuestions().size());
+        quiz.getQuestions().stream()
+                .sorted(Comparator.comparing(Question::getId))
+                .forEach(question -> pooled.add(new PooledQuestion(question)));
+        this.questions = List.copyOf(pooled);
+
+        Integer poolSize = quiz.getPoolSize();
+        this.drawCount = poolSize == null || poolSize <= 0 ? questions.size() : Math.min(poolSize, questions.size());
+    }
+
+    public static QuestionPool of(Quiz quiz) {
+        return new QuestionPool(quiz);
+    }
+
+    // True when every student sees the same questions in the same order
+    public boolean isFixed() {
+        return !shuffle && drawCount == questions.size();
+    }
+}
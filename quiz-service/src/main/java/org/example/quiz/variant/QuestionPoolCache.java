@@ -0,0 +1,39 @@
+package org.example.quiz.variant;
+
+import jakarta.annotation.PostConstruct;
+import org.example.quiz.cache.VersionedCache;
+import org.example.quiz.model.Quiz;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * One immutable QuestionPool per quiz version. Reads are checked against the quiz's current
+ * version, so no replica draws variants from a pool older than the last write.
+ */
+@Component
+public class QuestionPoolCache {
+
+    @Value("${quiz.cache.max-quizzes:1000}")
+    private int maxQuizzes;
+
+    private VersionedCache<QuestionPool> pools;
+
+    @PostConstruct
+    public void init() {
+        pools = new VersionedCache<>(maxQuizzes, QuestionPool::of);
+    }
+
+    public QuestionPool get(Long quizId, long currentVersion, Function<Long, Quiz> loader) {
+        return pools.get(quizId, currentVersion, loader);
+    }
+
+    public void put(Quiz quiz) {
+        pools.put(quiz);
+    }
+
+    public void evict(Long quizId) {
+        pools.evict(quizId);
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.quiz.variant;
+
+import org.example.quiz.dto.StudentQuizView;
+import org.example.quiz.dto.VariantKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Pure, deterministic variant rendering: the same (pool, userId) always yields the same draw,
+ * question order and option order, on any node. SplittableRandom's sequence is fully specified
+ * for a given seed, which is what lets the grader recompute a student's variant later.
+ */
+public final class VariantGenerator {
+
+    private VariantGenerator() {
+    }
+
+    public static StudentQuizView render(QuestionPool pool, long userId) {
+        VariantKey key = key(pool, userId);
+        Map<Long, QuestionPool.PooledQuestion> byId = new LinkedHashMap<>();
+        pool.getQuestions().forEach(question -> byId.put(question.getId(), question));
+
+        List<StudentQuizView.QuestionView> questions = new ArrayList<>(key.getQuestionIds().size());
+        for (Long questionId : key.getQuestionIds()) {
+            QuestionPool.PooledQuestion question = byId.get(questionId);
+            int[] order = key.getOptionOrders().get(questionId);
+            List<String> options = new ArrayList<>(order.length);
+            for (int original : order) {
+                options.add(question.getOptions().get(original));
+            }
+            questions.add(new StudentQuizView.QuestionView(question.getId(), question.getText(),
+                    question.getType(), question.getPoints(), options));
+        }
+        return new StudentQuizView(pool.getQuizId(), pool.getTitle(), pool.getDescription(),
+                pool.getStartTime(), pool.getEndTime(), pool.getTimeLimit(), pool.getPassingScore(),
+                pool.isActive(), pool.getVersion(), questions);
+    }
+
+    public static VariantKey key(QuestionPool pool, long userId) {
+        List<QuestionPool.PooledQuestion> all = pool.getQuestions();
+        long seed = seed(pool.getQuizId(), userId);
+
+        // Partial Fisher-Yates: the first drawCount slots are a uniform sample of the pool
+        int[] picks = identity(all.size());
+        SplittableRandom random = new SplittableRandom(seed);
+        int draw = pool.getDrawCount();
+        for (int i = 0; i < draw; i++) {
+            swap(picks, i, i + random.nextInt(picks.length - i));
+        }
+        if (!pool.isShuffle()) {
+            // Sampled but not shuffled: keep the authored order of the drawn questions
+            Arrays.sort(picks, 0, draw);
+        }
+
+        List<Long> questionIds = new ArrayList<>(draw);
+        Map<Long, int[]> optionOrders = new LinkedHashMap<>();
+        for (int i = 0; i < draw; i++) {
+            QuestionPool.PooledQuestion question = all.get(picks[i]);
+            questionIds.add(question.getId());
+            int[] order = identity(question.getOptions().size());
+            if (pool.isShuffle()) {
+                // Seeded per question so option order does not depend on which questions were drawn
+                shuffle(order, new SplittableRandom(mix(seed ^ question.getId())));
+            }
+            optionOrders.put(question.getId(), order);
+        }
+        return new VariantKey(pool.getQuizId(), userId, pool.getVersion(), questionIds, optionOrders, null);
+    }
+
+    private static long seed(long quizId, long userId) {
+        return mix(mix(quizId) + 0x9E3779B97F4A7C15L * userId);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int[] identity(int size) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    private static void shuffle(int[] values, SplittableRandom random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            swap(values, i, random.nextInt(i + 1));
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.quiz.cache;
+
+import org.example.quiz.model.Quiz;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedCacheTest {
+
+    private final Map<Long, Long> versions = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Quiz> loader = id -> {
+        loads.incrementAndGet();
+        return quiz(id, versions.get(id));
+    };
+
+    @Test
+    void rebuildsAnEntryOlderThanTheCurrentVersion() {
+        VersionedCache<String> cache = new VersionedCache<>(10, quiz -> "v" + quiz.getVersion());
+        versions.put(1L, 3L);
+        assertThat(cache.get(1L, 3, loader)).isEqualTo("v3");
+        assertThat(cache.get(1L, 3, loader)).isEqualTo("v3");
+        assertThat(loads).hasValue(1);
+
+        // Another replica wrote the quiz: this one never saw an eviction
+        versions.put(1L, 4L);
+        assertThat(cache.get(1L, 4, loader)).isEqualTo("v4");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void neverReplacesAnEntryWithAnOlderOne() {
+        VersionedCache<String> cache = new VersionedCache<>(10, quiz -> "v" + quiz.getVersion());
+        cache.put(quiz(1L, 5L));
+        cache.put(quiz(1L, 4L));
+
+        assertThat(cache.get(1L, 5, loader)).isEqualTo("v5");
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void keepsAtMostMaxEntriesLeastRecentlyUsedFirstOut() {
+        VersionedCache<String> cache = new VersionedCache<>(2, quiz -> "q" + quiz.getId());
+        cache.put(quiz(1L, 0L));
+        cache.put(quiz(2L, 0L));
+        versions.put(1L, 0L);
+        cache.get(1L, 0, loader);
+        cache.put(quiz(3L, 0L));
+
+        assertThat(cache.contains(1L)).isTrue();
+        assertThat(cache.contains(2L)).isFalse();
+        assertThat(cache.contains(3L)).isTrue();
+    }
+
+    @Test
+    void concurrentColdReadersShareOneBuild() throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VersionedCache<String> cache = new VersionedCache<>(10, quiz -> {
+            building.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "built";
+        });
+        versions.put(1L, 0L);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = readers.submit(() -> cache.get(1L, 0, loader));
+            assertThat(building.await(5, TimeUnit.SECONDS)).isTrue();
+            List<Future<String>> others = List.of(
+                    readers.submit(() -> cache.get(1L, 0, loader)),
+                    readers.submit(() -> cache.get(1L, 0, loader)));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("built");
+            for (Future<String> other : others) {
+                assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("built");
+            }
+            assertThat(loads).hasValue(1);
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private static Quiz quiz(Long id, Long version) {
+        Quiz quiz = new Quiz();
+        quiz.setId(id);
+        quiz.setVersion(version);
+        return quiz;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.quiz.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuizQueryTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 14, 9, 26, 53);
+
+    @Test
+    void cursorRoundTripsTheKeysetPosition() {
+        QuizQuery first = query("oldest", true, 5L);
+        String cursor = first.encodeCursor(summary(42L, CREATED));
+
+        QuizQuery next = query("oldest", true, 5L);
+        next.setCursor(cursor);
+
+        assertThat(next.hasCursor()).isTrue();
+        assertThat(next.getAfterId()).isEqualTo(42L);
+        assertThat(next.getAfterCreatedAt()).isEqualTo(CREATED);
+    }
+
+    @Test
+    void cursorKeepsAMissingCreatedAt() {
+        String cursor = query(null, null, null).encodeCursor(summary(7L, null));
+
+        QuizQuery next = query(null, null, null);
+        next.setCursor(cursor);
+
+        assertThat(next.getAfterId()).isEqualTo(7L);
+        assertThat(next.getAfterCreatedAt()).isNull();
+    }
+
+    @Test
+    void rejectsACursorOfAnotherSort() {
+        String cursor = query("newest", null, null).encodeCursor(summary(42L, CREATED));
+
+        assertThatThrownBy(() -> query("oldest", null, null).setCursor(cursor))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsACursorOfOtherFilters() {
+        String cursor = query(null, true, 5L).encodeCursor(summary(42L, CREATED));
+
+        assertThatThrownBy(() -> query(null, false, 5L).setCursor(cursor)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> query(null, true, 6L).setCursor(cursor)).isInstanceOf(IllegalArgumentException.class);
+
+        QuizQuery windowed = query(null, true, 5L);
+        windowed.setFrom(CREATED);
+        assertThatThrownBy(() -> windowed.setCursor(cursor)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        String unknownVersion = Base64.getUrlEncoder().encodeToString("v1|2026-03-14T09:26:53|42".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().encodeToString("v2|newest,null,null,null,null||x".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : new String[]{"not base64!", unknownVersion, badId}) {
+            assertThatThrownBy(() -> query(null, null, null).setCursor(cursor)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void blankCursorStartsAtTheFirstPage() {
+        QuizQuery query = query(null, null, null);
+        query.setCursor(" ");
+
+        assertThat(query.hasCursor()).isFalse();
+    }
+
+    @Test
+    void validatesSortAndClampsLimit() {
+        QuizQuery query = new QuizQuery();
+        assertThatThrownBy(() -> query.setSort("random")).isInstanceOf(IllegalArgumentException.class);
+
+        query.setLimit(0);
+        assertThat(query.getLimit()).isEqualTo(1);
+        query.setLimit(1000);
+        assertThat(query.getLimit()).isEqualTo(QuizQuery.MAX_LIMIT);
+    }
+
+    private static QuizQuery query(String sort, Boolean active, Long createdBy) {
+        QuizQuery query = new QuizQuery();
+        query.setActive(active);
+        query.setCreatedBy(createdBy);
+        query.setSort(sort);
+        return query;
+    }
+
+    private static QuizSummary summary(Long id, LocalDateTime createdAt) {
+        QuizSummary summary = new QuizSummary();
+        summary.setId(id);
+        summary.setCreatedAt(createdAt);
+        return summary;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.quiz.search;
+
+import org.example.quiz.dto.SearchHit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuizSearchIndexTest {
+
+    private final QuizSearchIndex index = new QuizSearchIndex();
+
+    @Test
+    void ranksTitleMatchesAboveDescriptionMatches() {
+        index.upsertQuiz(1L, "Photosynthesis basics", "Plants and light");
+        index.upsertQuiz(2L, "Cell biology", "Covers photosynthesis in one question");
+        index.upsertQuiz(3L, "World history", "Empires and wars");
+
+        List<SearchHit> hits = index.search("photosynthesis", 10);
+
+        assertThat(hits).extracting(SearchHit::getQuizId).containsExactly(1L, 2L);
+        assertThat(hits.get(0).getScore()).isGreaterThan(hits.get(1).getScore());
+        assertThat(hits).allMatch(hit -> "QUIZ".equals(hit.getType()));
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        index.upsertQuiz(1L, "Algebra", "equations equations");
+        index.upsertQuiz(2L, "Algebra", "matrices");
+        index.upsertQuiz(3L, "Algebra", "polynomials");
+
+        // "algebra" is in every document, "matrices" only in one
+        assertThat(index.search("algebra matrices", 10).get(0).getQuizId()).isEqualTo(2L);
+    }
+
+    @Test
+    void expandsTheLastTokenAsAPrefix() {
+        index.upsertQuiz(1L, "Thermodynamics", null);
+        index.upsertQuiz(2L, "Thermal physics", null);
+        index.upsertQuiz(3L, "Optics", null);
+
+        assertThat(index.search("therm", 10)).extracting(SearchHit::getQuizId).containsExactlyInAnyOrder(1L, 2L);
+        // Only the token being typed is expanded
+        assertThat(index.search("therm optics", 10)).extracting(SearchHit::getQuizId).containsExactly(3L);
+    }
+
+    @Test
+    void normalizesCaseAndDiacriticsAndIgnoresStopWords() {
+        index.upsertQuiz(1L, "Éléments de géométrie", null);
+
+        assertThat(index.search("GEOMETRIE", 10)).extracting(SearchHit::getQuizId).containsExactly(1L);
+        assertThat(index.search("the of and", 10)).isEmpty();
+    }
+
+    @Test
+    void findsQuestionsAndReplacesThemOnUpdate() {
+        index.upsertQuiz(1L, "Chemistry", null);
+        index.upsertQuestion(10L, 1L, "What is the boiling point of water?");
+        index.upsertQuestion(11L, 1L, "Name a noble gas");
+
+        SearchHit hit = index.search("boiling", 10).get(0);
+        assertThat(hit.getType()).isEqualTo("QUESTION");
+        assertThat(hit.getQuizId()).isEqualTo(1L);
+        assertThat(hit.getQuestionId()).isEqualTo(10L);
+
+        index.upsertQuestion(10L, 1L, "What is the freezing point of water?");
+        assertThat(index.search("boiling", 10)).isEmpty();
+        assertThat(index.search("freezing", 10)).extracting(SearchHit::getQuestionId).containsExactly(10L);
+    }
+
+    @Test
+    void removingAQuizRemovesItsQuestions() {
+        index.upsertQuiz(1L, "Chemistry", null);
+        index.upsertQuestion(10L, 1L, "Name a noble gas");
+        index.upsertQuiz(2L, "Physics", null);
+        index.upsertQuestion(20L, 2L, "Name a noble prize winner");
+
+        index.removeQuiz(1L);
+
+        assertThat(index.search("noble", 10)).extracting(SearchHit::getQuestionId).containsExactly(20L);
+        assertThat(index.search("chemistry", 10)).isEmpty();
+        assertThat(index.stats()).containsEntry("quizzes", 1).containsEntry("questions", 1);
+    }
+
+    @Test
+    void ignoresQuestionsWithoutIds() {
+        index.upsertQuestion(null, 1L, "Unsaved question");
+        index.upsertQuestion(10L, null, "Orphan question");
+
+        assertThat(index.search("question", 10)).isEmpty();
+        assertThat(index.stats()).containsEntry("documents", 0);
+    }
+
+    @Test
+    void returnsAtMostLimitHitsBestFirst() {
+        for (long id = 1; id <= 30; id++) {
+            index.upsertQuiz(id, "Quiz " + "review ".repeat((int) id), null);
+        }
+
+        List<SearchHit> hits = index.search("review", 5);
+
+        assertThat(hits).hasSize(5);
+        assertThat(hits).extracting(SearchHit::getScore).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+        assertThat(index.search("review", 0)).isEmpty();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.quiz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.quiz.dto.ImportResult;
+import org.example.quiz.repository.QuizRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuestionImportServiceTest {
+    private static final String VALID = "{\"text\": \"2+2?\", \"options\": [\"3\", \"4\"], \"correctOptionIndex\": 1";
+
+    private final QuizRepository quizRepository = mock(QuizRepository.class);
+    private final QuestionImportService importService = new QuestionImportService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importService, "quizRepository", quizRepository);
+        ReflectionTestUtils.setField(importService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "batchSize", 500);
+        when(quizRepository.existsById(1L)).thenReturn(true);
+    }
+
+    @Test
+    void rejectsPointsThatAreNotAnInteger() throws IOException {
+        ImportResult result = importJsonl(
+                VALID + ", \"points\": \"abc\"}",
+                VALID + ", \"points\": \"\"}",
+                VALID + ", \"points\": 1.5}",
+                VALID + ", \"points\": [2]}");
+
+        assertThat(result.getImported()).isZero();
+        assertThat(result.getErrors()).extracting(ImportResult.RowError::getRow).containsExactly(1, 2, 3, 4);
+        assertThat(result.getErrors()).extracting(ImportResult.RowError::getMessage)
+                .containsOnly("'points' must be an integer");
+    }
+
+    @Test
+    void rejectsContentAfterTheObject() throws IOException {
+        ImportResult result = importJsonl(
+                VALID + "} {\"text\": \"extra\"}",
+                VALID + "} trailing");
+
+        assertThat(result.getImported()).isZero();
+        assertThat(result.getErrorCount()).isEqualTo(2);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Unexpected content after the JSON object");
+        assertThat(result.getErrors().get(1).getMessage()).startsWith("Malformed JSON");
+    }
+
+    @Test
+    void rejectsOptionsThatAreNotStrings() throws IOException {
+        ImportResult result = importJsonl("{\"text\": \"2+2?\", \"options\": [\"3\", {\"a\": 4}], \"correctOptionIndex\": 1}");
+
+        assertThat(result.getErrors()).extracting(ImportResult.RowError::getMessage)
+                .containsExactly("'options' must be an array of strings");
+    }
+
+    private ImportResult importJsonl(String... lines) throws IOException {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return importService.importQuestions(1L, new ByteArrayInputStream(body), QuestionImportService.Format.JSONL);
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.submission.config;
 
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
@@ -9,7 +10,14 @@ import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitConfig {
-    
+    // Every notification-service node binds its own queue to this exchange
+    public static final String NOTIFICATIONS_EXCHANGE = "notifications.topic";
+
+    @Bean
+    public TopicExchange notificationsExchange() {
+        return new TopicExchange(NOTIFICATIONS_EXCHANGE, true, false);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
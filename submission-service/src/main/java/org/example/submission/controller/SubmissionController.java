@@ -22,8 +22,9 @@ public class SubmissionController {
     @PostMapping("/start")
     public ResponseEntity<Submission> startSubmission(
             @RequestParam Long quizId,
-            @RequestParam Long userId) {
-        return ResponseEntity.ok(submissionService.startSubmission(quizId, userId));
+            @RequestParam Long userId,
+            @RequestParam(required = false) Long quizVersion) {
+        return ResponseEntity.ok(submissionService.startSubmission(quizId, userId, quizVersion));
     }
 
     @PostMapping("/{id}/submit")
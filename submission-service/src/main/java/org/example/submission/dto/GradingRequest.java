@@ -15,5 +15,9 @@ public class GradingRequest implements Serializable {
     private Long submissionId;
     private Long quizId;
     private Map<Long, String> answers;
+    // Needed to recompute the student's question-pool variant
+    private Long userId;
+    // The variant the student received; when set, grading uses it instead of recomputing
+    private VariantKey variant;
 }
 
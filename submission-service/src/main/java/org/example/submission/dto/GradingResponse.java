@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,5 +13,6 @@ public class GradingResponse {
     private Long submissionId;
     private Integer score;
     private Integer maxScore;
+    private List<QuestionResult> questionResults;
 }
 
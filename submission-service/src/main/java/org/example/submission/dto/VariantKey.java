@@ -0,0 +1,27 @@
+package org.example.submission.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The question-pool variant a student received, as computed by quiz-service when the
+ * submission was started: drawn question ids, optionOrders[q][shownIndex] = original index, and
+ * the encoded answer key of that quiz version.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Long quizId;
+    private Long userId;
+    private Long version;
+    private List<Long> questionIds;
+    private Map<Long, int[]> optionOrders;
+    private byte[] answerKey;
+}
@@ -1,5 +1,6 @@
 package org.example.submission.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -47,6 +48,13 @@ public class Submission implements Serializable {
 
     private LocalDateTime gradedAt;
 
+    // Quiz version the student was shown, and the variant drawn from it (JSON), fixed at start
+    private Long quizVersion;
+
+    @JsonIgnore
+    @Column(columnDefinition = "text")
+    private String variantKey;
+
     public enum Status {
         IN_PROGRESS, SUBMITTED, GRADED
     }
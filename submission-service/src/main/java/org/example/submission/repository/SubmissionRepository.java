@@ -2,8 +2,13 @@ package org.example.submission.repository;
 
 import org.example.submission.model.Submission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -11,5 +16,14 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     List<Submission> findByUserId(Long userId);
     List<Submission> findByQuizId(Long quizId);
     List<Submission> findByUserIdAndQuizId(Long userId, Long quizId);
+
+    // Moves the submission from one status to another; 0 when it was no longer in the first
+    @Modifying
+    @Transactional
+    @Query("update Submission s set s.status = :to, s.score = :score, s.maxScore = :maxScore, s.gradedAt = :gradedAt " +
+           "where s.id = :id and s.status = :from")
+    int updateGrade(@Param("id") Long id, @Param("from") Submission.Status from, @Param("to") Submission.Status to,
+                    @Param("score") Integer score, @Param("maxScore") Integer maxScore,
+                    @Param("gradedAt") LocalDateTime gradedAt);
 }
 
@@ -3,14 +3,11 @@ package org.example.submission.service;
 import org.example.submission.model.Submission;
 import org.example.submission.repository.SubmissionRepository;
 import org.example.submission.dto.GradingRequest;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Service
 public class GradingScheduler {
@@ -22,7 +19,7 @@ public class GradingScheduler {
     private WebClient.Builder webClientBuilder;
     
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private SubmissionService submissionService;
     
 
     @Scheduled(fixedDelay = 5000) 
@@ -45,14 +42,11 @@ public class GradingScheduler {
     private void gradeSubmission(Submission submission) {
         try {
             // Call the grading function to calculate the actual score
-            GradingRequest gradingRequest = new GradingRequest(
-                submission.getId(),
-                submission.getQuizId(),
-                submission.getAnswers()
-            );
+            GradingRequest gradingRequest = submissionService.gradingRequest(submission);
 
+            org.example.submission.dto.GradingResponse gradingResponse;
             try {
-                org.example.submission.dto.GradingResponse gradingResponse = webClientBuilder.build()
+                gradingResponse = webClientBuilder.build()
                     .post()
                     .uri("http://grading-function:9000/grade")
                     .bodyValue(gradingRequest)
@@ -60,11 +54,7 @@ public class GradingScheduler {
                     .bodyToMono(org.example.submission.dto.GradingResponse.class)
                     .block();
 
-                if (gradingResponse != null) {
-                    submission.setStatus(Submission.Status.GRADED);
-                    submission.setScore(gradingResponse.getScore());
-                    submission.setMaxScore(gradingResponse.getMaxScore());
-                } else {
+                if (gradingResponse == null) {
                     System.err.println("No response from grading function for submission " + submission.getId());
                     return;
                 }
@@ -73,21 +63,15 @@ public class GradingScheduler {
                 return;
             }
 
-            Submission gradedSubmission = submissionRepository.save(submission);
-            
+            // Publishes the Kafka event and the notification, unless the grading queue graded it first
+            Submission gradedSubmission = submissionService.applyGrade(submission, gradingResponse);
+            if (gradedSubmission == null) {
+                System.out.println(" Submission " + submission.getId() + " was already graded");
+                return;
+            }
+
             System.out.println(" Graded submission " + submission.getId() + " with score: " + submission.getScore() + "/" + submission.getMaxScore());
             
-            // Send notification via RabbitMQ to notify students and admins
-            Map<String, Object> notification = new HashMap<>();
-            notification.put("type", "SUBMISSION_GRADED");
-            notification.put("userId", gradedSubmission.getUserId());
-            notification.put("submissionId", gradedSubmission.getId());
-            notification.put("score", gradedSubmission.getScore());
-            notification.put("maxScore", gradedSubmission.getMaxScore());
-            
-            System.out.println(" Publishing SUBMISSION_GRADED notification for user " + gradedSubmission.getUserId());
-            rabbitTemplate.convertAndSend("notifications", notification);
-            
         } catch (Exception e) {
             System.err.println("Error grading submission " + submission.getId() + ": " + e.getMessage());
             e.printStackTrace();
@@ -1,7 +1,12 @@
 package org.example.submission.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.submission.config.RabbitConfig;
 import org.example.submission.dto.GradingRequest;
 import org.example.submission.dto.GradingResponse;
+import org.example.submission.dto.QuestionResult;
+import org.example.submission.dto.VariantKey;
 import org.example.submission.model.Submission;
 import org.example.submission.repository.SubmissionRepository;
 import org.slf4j.Logger;
@@ -9,9 +14,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -34,14 +41,23 @@ public class SubmissionService {
     @Autowired
     private WebClient.Builder webClientBuilder;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Value("${grading.function.url}")
     private String gradingFunctionUrl;
 
-    public Submission startSubmission(Long quizId, Long userId) {
+    @Value("${quiz.service.url}")
+    private String quizServiceUrl;
+
+    public Submission startSubmission(Long quizId, Long userId, Long quizVersion) {
         Submission submission = new Submission();
         submission.setQuizId(quizId);
         submission.setUserId(userId);
         submission.setStatus(Submission.Status.IN_PROGRESS);
+        if (quizVersion != null) {
+            fixVariant(submission, quizVersion);
+        }
 
         Submission savedSubmission = submissionRepository.save(submission);
 
@@ -59,6 +75,46 @@ public class SubmissionService {
         return savedSubmission;
     }
 
+    // Grading later uses the variant the student was shown, even if the quiz is edited meanwhile.
+    // If it was already edited since the student loaded it, that variant is gone: reject
+    private void fixVariant(Submission submission, Long quizVersion) {
+        VariantKey variant = webClientBuilder.build()
+            .get()
+            .uri(quizServiceUrl + "/internal/quizzes/" + submission.getQuizId() + "/variant-key?userId=" + submission.getUserId())
+            .retrieve()
+            .bodyToMono(VariantKey.class)
+            .block();
+        if (variant == null || !quizVersion.equals(variant.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "Quiz " + submission.getQuizId() + " changed since version " + quizVersion + " was loaded");
+        }
+        try {
+            submission.setQuizVersion(quizVersion);
+            submission.setVariantKey(objectMapper.writeValueAsString(variant));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Variant key is not serializable", e);
+        }
+    }
+
+    public GradingRequest gradingRequest(Submission submission) {
+        VariantKey variant = null;
+        if (submission.getVariantKey() != null) {
+            try {
+                variant = objectMapper.readValue(submission.getVariantKey(), VariantKey.class);
+            } catch (JsonProcessingException e) {
+                logger.warn("Unreadable variant key of submission {}, grading the current one: {}",
+                    submission.getId(), e.getMessage());
+            }
+        }
+        return new GradingRequest(
+            submission.getId(),
+            submission.getQuizId(),
+            submission.getAnswers(),
+            submission.getUserId(),
+            variant
+        );
+    }
+
     public Submission submitQuiz(Long submissionId, Map<Long, String> answers) {
         logger.info(" RECEIVED ANSWERS: {}", answers);
         for (Map.Entry<Long, String> entry : answers.entrySet()) {
@@ -78,11 +134,7 @@ public class SubmissionService {
         Submission savedSubmission = submissionRepository.save(submission);
 
         // Send to RabbitMQ for async grading
-        GradingRequest gradingRequest = new GradingRequest(
-            savedSubmission.getId(),
-            savedSubmission.getQuizId(),
-            savedSubmission.getAnswers()
-        );
+        GradingRequest gradingRequest = gradingRequest(savedSubmission);
         rabbitTemplate.convertAndSend("grading-queue", gradingRequest);
 
         try {
@@ -102,13 +154,13 @@ public class SubmissionService {
     public Submission gradeSubmission(Long submissionId) {
         Submission submission = submissionRepository.findById(submissionId)
                 .orElseThrow(() -> new RuntimeException("Submission not found"));
+        // Already graded (by the scheduler or a redelivered grading request), or not submitted yet
+        if (submission.getStatus() != Submission.Status.SUBMITTED) {
+            return submission;
+        }
 
         // Call FaaS grading function
-        GradingRequest request = new GradingRequest(
-            submission.getId(),
-            submission.getQuizId(),
-            submission.getAnswers()
-        );
+        GradingRequest request = gradingRequest(submission);
 
         GradingResponse response = webClientBuilder.build()
             .post()
@@ -119,39 +171,62 @@ public class SubmissionService {
             .block();
 
         if (response != null) {
-            submission.setScore(response.getScore());
-            submission.setMaxScore(response.getMaxScore());
-            submission.setStatus(Submission.Status.GRADED);
-            submission.setGradedAt(LocalDateTime.now());
-
-            Submission gradedSubmission = submissionRepository.save(submission);
-
-            try {
-                Map<String, Object> event = new HashMap<>();
-                event.put("eventType", "SUBMISSION_GRADED");
-                event.put("submissionId", gradedSubmission.getId());
-                event.put("userId", gradedSubmission.getUserId());
-                event.put("score", gradedSubmission.getScore());
-                event.put("maxScore", gradedSubmission.getMaxScore());
-                kafkaTemplate.send("submission-events", event);
-            } catch (Exception e) {
-                System.err.println("Failed to send Kafka event: " + e.getMessage());
-            }
+            Submission gradedSubmission = applyGrade(submission, response);
+            return gradedSubmission != null ? gradedSubmission : getSubmissionById(submissionId);
+        }
 
-            // Send notification via RabbitMQ
-            Map<String, Object> notification = new HashMap<>();
-            notification.put("type", "SUBMISSION_GRADED");
-            notification.put("userId", gradedSubmission.getUserId());
-            notification.put("submissionId", gradedSubmission.getId());
-            notification.put("score", gradedSubmission.getScore());
-            rabbitTemplate.convertAndSend("notifications", notification);
+        return submission;
+    }
 
-            return gradedSubmission;
+    // The scheduler and the grading queue can both grade a submission. Only the one that moves it
+    // from SUBMITTED to GRADED publishes, so analytics and the student see a single grade.
+    // Returns null when the other one got there first
+    public Submission applyGrade(Submission submission, GradingResponse response) {
+        LocalDateTime gradedAt = LocalDateTime.now();
+        int updated = submissionRepository.updateGrade(submission.getId(), Submission.Status.SUBMITTED,
+            Submission.Status.GRADED, response.getScore(), response.getMaxScore(), gradedAt);
+        if (updated == 0) {
+            return null;
         }
+        submission.setScore(response.getScore());
+        submission.setMaxScore(response.getMaxScore());
+        submission.setStatus(Submission.Status.GRADED);
+        submission.setGradedAt(gradedAt);
+
+        publishGradedEvent(submission, response.getQuestionResults());
+
+        // Send notification via RabbitMQ to notify students and admins
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("type", "SUBMISSION_GRADED");
+        notification.put("userId", submission.getUserId());
+        notification.put("submissionId", submission.getId());
+        notification.put("quizId", submission.getQuizId());
+        notification.put("score", submission.getScore());
+        notification.put("maxScore", submission.getMaxScore());
+        rabbitTemplate.convertAndSend(RabbitConfig.NOTIFICATIONS_EXCHANGE, "notification.submission_graded", notification);
 
         return submission;
     }
 
+    // Per-question results feed analytics' item analysis; they are not stored on the submission
+    public void publishGradedEvent(Submission gradedSubmission, List<QuestionResult> questionResults) {
+        try {
+            Map<String, Object> event = new HashMap<>();
+            event.put("eventType", "SUBMISSION_GRADED");
+            event.put("submissionId", gradedSubmission.getId());
+            event.put("quizId", gradedSubmission.getQuizId());
+            event.put("userId", gradedSubmission.getUserId());
+            event.put("score", gradedSubmission.getScore());
+            event.put("maxScore", gradedSubmission.getMaxScore());
+            if (questionResults != null) {
+                event.put("questionResults", questionResults);
+            }
+            kafkaTemplate.send("submission-events", event);
+        } catch (Exception e) {
+            System.err.println("Failed to send Kafka event: " + e.getMessage());
+        }
+    }
+
     public Submission getSubmissionById(Long id) {
         return submissionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Submission not found"));
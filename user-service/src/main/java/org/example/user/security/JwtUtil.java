@@ -26,9 +26,11 @@ public class JwtUtil {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    public String generateToken(String username, String role) {
+    public String generateToken(String username, String role, Long userId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
+        // Forwarded by the gateway as X-User-Id, so services never trust a caller-supplied id
+        claims.put("userId", userId);
         return createToken(claims, username);
     }
 
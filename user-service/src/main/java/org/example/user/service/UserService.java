@@ -58,7 +58,7 @@ public class UserService {
             System.err.println("Failed to publish Kafka event: " + e.getMessage());
         }
 
-        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().toString());
+        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().toString(), user.getId());
         return new AuthResponse(token, user.getUsername(), user.getRole().toString(), user.getId());
     }
 
@@ -84,7 +84,7 @@ public class UserService {
             System.err.println("Failed to publish Kafka event: " + e.getMessage());
         }
 
-        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().toString());
+        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().toString(), user.getId());
         return new AuthResponse(token, user.getUsername(), user.getRole().toString(), user.getId());
     }
 